@@ -1,5 +1,6 @@
 package com.lending.backend.common.audit;
 
+import com.lending.backend.crud.annotations.GeneratedUuidV7;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.SQLDelete;
@@ -39,8 +40,10 @@ public abstract class BaseEntity implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    // Time-ordered, so new rows append to the primary key index and the id is a
+    // stable tiebreaker for keyset pagination
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedUuidV7
     @NotAudited
     private UUID id;
 
@@ -2,6 +2,7 @@ package com.lending.backend.common.domain;
 
 import com.lending.backend.common.audit.BaseEntity;
 import com.lending.backend.common.exception.ValidationException;
+import com.lending.backend.common.hook.HookOperation;
 import com.lending.backend.common.hook.HookPhase;
 import com.lending.backend.common.hook.HookRegistry;
 import jakarta.persistence.EntityNotFoundException;
@@ -190,7 +191,61 @@ public abstract class BaseServiceImpl<T extends BaseEntity, D, ID extends Serial
     }
     
     /**
-     * Create multiple entities in a batch.
+     * Execute hooks for the given phase over a whole batch.
+     *
+     * @param phase     the hook phase
+     * @param operation the operation the batch is processed for
+     * @param entities  the entities
+     * @param dtos      the DTOs, in the same order (can be null for deletes)
+     * @return the modified entities (or the originals if not modified)
+     */
+    @SuppressWarnings("unchecked")
+    protected List<T> executeHooks(HookPhase phase, HookOperation operation, List<T> entities, List<D> dtos) {
+        if (hookRegistry == null || entities.isEmpty()) {
+            return entities;
+        }
+        return hookRegistry.executeHooks(
+                (Class<T>) entities.get(0).getClass(),
+                phase,
+                operation,
+                entities,
+                dtos
+        );
+    }
+
+    /**
+     * Validate a batch of entities and DTOs in one pass, reporting the
+     * violations of every item rather than stopping at the first one.
+     *
+     * @param entities the entities to validate
+     * @param dtos     the DTOs to validate, in the same order
+     */
+    protected void validateAll(List<T> entities, List<D> dtos) {
+        if (validator == null) {
+            return;
+        }
+
+        List<String> errors = new ArrayList<>();
+        for (int i = 0; i < entities.size(); i++) {
+            for (ConstraintViolation<T> v : validator.validate(entities.get(i))) {
+                errors.add("[" + i + "] " + v.getPropertyPath() + ": " + v.getMessage());
+            }
+            D dto = dtos.get(i);
+            if (dto != null) {
+                for (ConstraintViolation<D> v : validator.validate(dto)) {
+                    errors.add("[" + i + "] " + v.getPropertyPath() + ": " + v.getMessage());
+                }
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new ValidationException("Validation failed: " + String.join(", ", errors), errors);
+        }
+    }
+
+    /**
+     * Create multiple entities in a batch. Hooks run once per phase for the
+     * whole batch and the inserts are flushed together, so they go out as
+     * JDBC batches rather than one statement per round trip.
      *
      * @param dtos the DTOs to create
      * @return the created DTOs
@@ -200,31 +255,71 @@ public abstract class BaseServiceImpl<T extends BaseEntity, D, ID extends Serial
         if (CollectionUtils.isEmpty(dtos)) {
             return Collections.emptyList();
         }
-        
-        return dtos.stream()
-                .map(this::create)
+
+        List<T> entities = dtos.stream()
+                .map(mapper::toEntity)
+                .collect(Collectors.toList());
+
+        entities = executeHooks(HookPhase.PRE_VALIDATE, HookOperation.CREATE, entities, dtos);
+        validateAll(entities, dtos);
+        entities = executeHooks(HookPhase.PRE_OPERATION, HookOperation.CREATE, entities, dtos);
+
+        List<T> savedEntities = repository.saveAll(entities);
+        repository.flush();
+
+        executeHooks(HookPhase.POST_OPERATION, HookOperation.CREATE, savedEntities, dtos);
+
+        return savedEntities.stream()
+                .map(mapper::toDto)
                 .collect(Collectors.toList());
     }
-    
+
     /**
-     * Update multiple entities in a batch.
+     * Update multiple entities in a batch. The targets are loaded with a
+     * single query; if any of them does not exist nothing is updated.
      *
      * @param updates map of IDs to DTOs with updates
-     * @return the updated DTOs
+     * @return the updated DTOs, in the map's iteration order
      */
     @Transactional
     public List<D> updateAll(Map<ID, D> updates) {
         if (updates == null || updates.isEmpty()) {
             return Collections.emptyList();
         }
-        
-        return updates.entrySet().stream()
-                .map(entry -> update(entry.getKey(), entry.getValue()))
+
+        Map<Object, T> existing = loadById(updates.keySet());
+        List<ID> missing = updates.keySet().stream()
+                .filter(id -> !existing.containsKey(id))
+                .collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            throw new EntityNotFoundException("Entities not found with ids: " + missing);
+        }
+
+        List<T> entities = new ArrayList<>(updates.size());
+        List<D> dtos = new ArrayList<>(updates.size());
+        updates.forEach((id, dto) -> {
+            entities.add(mapper.updateEntity(dto, existing.get(id)));
+            dtos.add(dto);
+        });
+
+        List<T> updatedEntities = executeHooks(HookPhase.PRE_VALIDATE, HookOperation.UPDATE, entities, dtos);
+        validateAll(updatedEntities, dtos);
+        updatedEntities = executeHooks(HookPhase.PRE_OPERATION, HookOperation.UPDATE, updatedEntities, dtos);
+
+        List<T> savedEntities = repository.saveAll(updatedEntities);
+        repository.flush();
+
+        executeHooks(HookPhase.POST_OPERATION, HookOperation.UPDATE, savedEntities, dtos);
+
+        return savedEntities.stream()
+                .map(mapper::toDto)
                 .collect(Collectors.toList());
     }
-    
+
     /**
-     * Delete multiple entities in a batch.
+     * Delete multiple entities in a batch. The targets are loaded with a
+     * single query; IDs that do not exist are ignored, as in
+     * {@link #delete(Serializable)}.
      *
      * @param ids the IDs of entities to delete
      */
@@ -233,7 +328,32 @@ public abstract class BaseServiceImpl<T extends BaseEntity, D, ID extends Serial
         if (CollectionUtils.isEmpty(ids)) {
             return;
         }
-        
-        ids.forEach(this::delete);
+
+        List<T> entities = new ArrayList<>(loadById(ids).values());
+        if (entities.isEmpty()) {
+            return;
+        }
+
+        executeHooks(HookPhase.PRE_OPERATION, HookOperation.DELETE, entities, null);
+
+        // Removed one by one so the soft-delete statement applies, but flushed as a batch
+        repository.deleteAll(entities);
+        repository.flush();
+
+        executeHooks(HookPhase.POST_OPERATION, HookOperation.DELETE, entities, null);
+    }
+
+    /**
+     * Load the entities with the given IDs in one query.
+     *
+     * @param ids the IDs to load
+     * @return the entities found, by ID
+     */
+    private Map<Object, T> loadById(Collection<ID> ids) {
+        Map<Object, T> byId = new LinkedHashMap<>();
+        for (T entity : repository.findAllById(new LinkedHashSet<>(ids))) {
+            byId.put(entity.getId(), entity);
+        }
+        return byId;
     }
 }
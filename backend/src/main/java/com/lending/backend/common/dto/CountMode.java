@@ -0,0 +1,44 @@
+package com.lending.backend.common.dto;
+
+import com.lending.backend.common.exception.ApiException;
+import com.lending.backend.common.exception.ErrorConstants;
+import org.springframework.http.HttpStatus;
+
+import java.util.Locale;
+
+/**
+ * How the totals of a {@link PagedResult} are obtained.
+ */
+public enum CountMode {
+    /**
+     * Totals from a {@code count(*)} of the matching rows.
+     */
+    EXACT,
+    /**
+     * No totals; only whether a next page exists, from fetching one extra row.
+     */
+    SLICE,
+    /**
+     * Totals estimated from the database's planner statistics.
+     */
+    ESTIMATE;
+
+    /**
+     * Parses the {@code count} request parameter.
+     *
+     * @return the mode, or {@code null} if the parameter is absent
+     * @throws ApiException if the value is not a known mode
+     */
+    public static CountMode fromParameter(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(HttpStatus.BAD_REQUEST,
+                    "Unknown count mode '" + value + "', expected exact, slice or estimate",
+                    ErrorConstants.INVALID_REQUEST);
+        }
+    }
+}
@@ -1,22 +1,36 @@
 package com.lending.backend.common.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import lombok.Data;
 
+import java.io.Serializable;
 import java.util.List;
 
+/**
+ * A page of results. Offset pages carry totals according to their
+ * {@link CountMode}; slice and cursor pages leave the totals out, and cursor
+ * pages carry the {@code nextCursor} of the following page instead.
+ */
 @Data
-public class PagedResult<T> {
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PagedResult<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
     private List<T> content;
     private int page;
     private int size;
-    private long totalElements;
-    private int totalPages;
+    private Long totalElements;
+    private Integer totalPages;
     private boolean first;
     private boolean last;
     private boolean hasNext;
     private boolean hasPrevious;
+    private String nextCursor;
+    private CountMode countMode;
 
     public PagedResult() {
     }
@@ -31,5 +45,49 @@ public class PagedResult<T> {
         this.last = page.isLast();
         this.hasNext = page.hasNext();
         this.hasPrevious = page.hasPrevious();
+        this.countMode = CountMode.EXACT;
+    }
+
+    /**
+     * @param slice         the rows and paging flags
+     * @param totalElements the exact or estimated total, or {@code null} if
+     *                      not counted
+     * @param countMode     how the total was obtained
+     */
+    public PagedResult(Slice<T> slice, Long totalElements, CountMode countMode) {
+        this.content = slice.getContent();
+        this.page = slice.getNumber();
+        this.size = slice.getSize();
+        this.first = slice.isFirst();
+        this.last = slice.isLast();
+        this.hasNext = slice.hasNext();
+        this.hasPrevious = slice.hasPrevious();
+        this.countMode = countMode;
+        if (totalElements != null) {
+            this.totalElements = totalElements;
+            this.totalPages = size > 0 ? (int) Math.ceil((double) totalElements / size) : 1;
+        }
+    }
+
+    /**
+     * Creates a cursor page.
+     *
+     * @param content    the rows of the page
+     * @param size       the requested page size
+     * @param first      whether the page was requested without a cursor
+     * @param nextCursor the cursor of the following page, or {@code null} on
+     *                   the last page
+     */
+    public static <T> PagedResult<T> ofCursor(List<T> content, int size, boolean first, String nextCursor) {
+        PagedResult<T> result = new PagedResult<>();
+        result.content = content;
+        result.size = size;
+        result.first = first;
+        result.last = nextCursor == null;
+        result.hasNext = nextCursor != null;
+        result.hasPrevious = !first;
+        result.nextCursor = nextCursor;
+        result.countMode = CountMode.SLICE;
+        return result;
     }
-}
\ No newline at end of file
+}
@@ -15,6 +15,7 @@ public final class ErrorConstants {
     public static final String SERVER_ERROR = "server_error";
     public static final String SERVICE_UNAVAILABLE = "service_unavailable";
     public static final String VALIDATION_ERROR = "validation_error";
+    public static final String QUERY_TOO_EXPENSIVE = "query_too_expensive";
 
     // Common error messages
     public static final String MSG_INVALID_REQUEST = "The request was invalid";
@@ -25,6 +26,7 @@ public final class ErrorConstants {
     public static final String MSG_SERVER_ERROR = "An unexpected error occurred";
     public static final String MSG_SERVICE_UNAVAILABLE = "The service is currently unavailable";
     public static final String MSG_VALIDATION_ERROR = "Validation failed";
+    public static final String MSG_QUERY_TOO_EXPENSIVE = "The query is too expensive; narrow the filters or sort differently";
 
     // Documentation URLs
     public static final String DOCS_BASE_URL = "https://docs.your-api.com/errors";
@@ -2,6 +2,9 @@ package com.lending.backend.common.hook;
 
 import com.lending.backend.common.audit.BaseEntity;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Interface for entity lifecycle hooks.
  *
@@ -81,6 +84,101 @@ public interface EntityHook<T extends BaseEntity, D> {
         // Default implementation does nothing
     }
 
+    /**
+     * Called before a batch of entities is validated. The default
+     * implementation calls {@link #preValidate} for each entity; hooks that
+     * look up related data should override it to do so once per batch.
+     *
+     * @param entities the entities to be validated
+     * @param dtos     the DTOs being processed, in the same order
+     * @return the modified entities, in the same order
+     */
+    default List<T> preValidateAll(List<T> entities, List<D> dtos) {
+        List<T> result = new ArrayList<>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            result.add(preValidate(entities.get(i), dtos.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Called before a batch of entities is created. The default
+     * implementation calls {@link #preCreate} for each entity.
+     *
+     * @param entities the entities to be created
+     * @param dtos     the DTOs being processed, in the same order
+     * @return the modified entities, in the same order
+     */
+    default List<T> preCreateAll(List<T> entities, List<D> dtos) {
+        List<T> result = new ArrayList<>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            result.add(preCreate(entities.get(i), dtos.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Called after a batch of entities is created. The default
+     * implementation calls {@link #postCreate} for each entity.
+     *
+     * @param entities the created entities
+     * @param dtos     the DTOs that were used, in the same order
+     */
+    default void postCreateAll(List<T> entities, List<D> dtos) {
+        for (int i = 0; i < entities.size(); i++) {
+            postCreate(entities.get(i), dtos.get(i));
+        }
+    }
+
+    /**
+     * Called before a batch of entities is updated. The default
+     * implementation calls {@link #preUpdate} for each entity.
+     *
+     * @param entities the entities to be updated
+     * @param dtos     the DTOs with new values, in the same order
+     * @return the modified entities, in the same order
+     */
+    default List<T> preUpdateAll(List<T> entities, List<D> dtos) {
+        List<T> result = new ArrayList<>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            result.add(preUpdate(entities.get(i), dtos.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Called after a batch of entities is updated. The default
+     * implementation calls {@link #postUpdate} for each entity.
+     *
+     * @param entities the updated entities
+     * @param dtos     the DTOs that were used, in the same order
+     */
+    default void postUpdateAll(List<T> entities, List<D> dtos) {
+        for (int i = 0; i < entities.size(); i++) {
+            postUpdate(entities.get(i), dtos.get(i));
+        }
+    }
+
+    /**
+     * Called before a batch of entities is deleted. The default
+     * implementation calls {@link #preDelete} for each entity.
+     *
+     * @param entities the entities to be deleted
+     */
+    default void preDeleteAll(List<T> entities) {
+        entities.forEach(this::preDelete);
+    }
+
+    /**
+     * Called after a batch of entities is deleted. The default
+     * implementation calls {@link #postDelete} for each entity.
+     *
+     * @param entities the deleted entities
+     */
+    default void postDeleteAll(List<T> entities) {
+        entities.forEach(this::postDelete);
+    }
+
     /**
      * Get the entity class this hook is for.
      *
@@ -0,0 +1,21 @@
+package com.lending.backend.common.hook;
+
+/**
+ * Represents the operation a batch of hooks is executed for.
+ */
+public enum HookOperation {
+    /**
+     * New entities are being created.
+     */
+    CREATE,
+
+    /**
+     * Existing entities are being updated.
+     */
+    UPDATE,
+
+    /**
+     * Existing entities are being deleted.
+     */
+    DELETE
+}
@@ -93,4 +93,53 @@ public class HookRegistry {
 
         return result;
     }
+
+    /**
+     * Execute hooks for a specific phase over a whole batch, calling each
+     * hook's batch callback once.
+     *
+     * @param entityClass the entity class
+     * @param phase       the hook phase
+     * @param operation   the operation the batch is processed for
+     * @param entities    the entities
+     * @param dtos        the DTOs, in the same order as the entities (ignored
+     *                    for deletes)
+     * @param <T>         the entity type
+     * @param <D>         the DTO type
+     * @return the modified entities (or the originals if not modified)
+     */
+    public <T extends BaseEntity, D> List<T> executeHooks(Class<T> entityClass, HookPhase phase,
+            HookOperation operation, List<T> entities, List<D> dtos) {
+        List<EntityHook<T, D>> entityHooks = getHooks(entityClass);
+        List<T> result = entities;
+
+        for (EntityHook<T, D> hook : entityHooks) {
+            switch (phase) {
+                case PRE_VALIDATE:
+                    if (operation != HookOperation.DELETE) {
+                        result = hook.preValidateAll(result, dtos);
+                    }
+                    break;
+                case PRE_OPERATION:
+                    switch (operation) {
+                        case CREATE -> result = hook.preCreateAll(result, dtos);
+                        case UPDATE -> result = hook.preUpdateAll(result, dtos);
+                        case DELETE -> hook.preDeleteAll(result);
+                    }
+                    break;
+                case POST_OPERATION:
+                    switch (operation) {
+                        case CREATE -> hook.postCreateAll(result, dtos);
+                        case UPDATE -> hook.postUpdateAll(result, dtos);
+                        case DELETE -> hook.postDeleteAll(result);
+                    }
+                    break;
+                case AFTER_COMMIT:
+                    // Handle after commit logic if needed
+                    break;
+            }
+        }
+
+        return result;
+    }
 }
@@ -1,20 +1,30 @@
 package com.lending.backend.config;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lending.backend.crud.service.audit.AuditJournal;
+import com.lending.backend.crud.service.cache.CacheEntryWeigher;
+import com.lending.backend.crud.service.cache.CachePolicyRegistry;
+import com.lending.backend.crud.service.cache.OffHeapCacheStore;
+import com.lending.backend.crud.service.cache.PolicyCaffeineCacheManager;
 import org.springframework.cache.CacheManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.concurrent.Executor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync
 @EnableCaching
+@EnableConfigurationProperties(CrudProperties.class)
 public class CrudFrameworkConfig {
 
     @Bean("asyncExecutor")
@@ -28,20 +38,44 @@ public class CrudFrameworkConfig {
         return executor;
     }
 
+    @Bean("bulkHookExecutor")
+    public Executor bulkHookExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(20);
+        executor.setThreadNamePrefix("BulkHook-");
+        // Each task holds the hooks of a whole chunk: a full queue slows the bulk create down instead of dropping them
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean
+    public CacheManager cacheManager(CachePolicyRegistry cachePolicyRegistry, ObjectMapper objectMapper,
+            ObjectProvider<OffHeapCacheStore> offHeapCacheStore) {
+        // One Caffeine cache per entity, sized and expired by its @CrudEntity policy
+        return new PolicyCaffeineCacheManager(cachePolicyRegistry, new CacheEntryWeigher(objectMapper),
+                offHeapCacheStore.getIfAvailable());
+    }
+
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
-        cacheManager.setCaffeine(caffeineCacheBuilder());
-        return cacheManager;
+    @ConditionalOnProperty(prefix = "crud.cache.l2", name = "enabled", havingValue = "true")
+    public OffHeapCacheStore offHeapCacheStore(CrudProperties properties) throws IOException {
+        CrudProperties.OffHeap l2 = properties.getCache().getL2();
+        Path directory = l2.getDirectory() == null || l2.getDirectory().isBlank() ? null : Path.of(l2.getDirectory());
+        return new OffHeapCacheStore(
+                l2.getCapacityMb() * 1024L * 1024L,
+                l2.getPageSizeKb() * 1024,
+                l2.getMaxEntryKb() * 1024,
+                directory);
     }
 
     @Bean
-    public Caffeine<Object, Object> caffeineCacheBuilder() {
-        return Caffeine.newBuilder()
-                .initialCapacity(100)
-                .maximumSize(500)
-                .expireAfterWrite(10, TimeUnit.MINUTES)
-                .weakKeys()
-                .recordStats();
+    @ConditionalOnProperty(prefix = "crud.audit.journal", name = "enabled", havingValue = "true")
+    public AuditJournal auditJournal(CrudProperties properties) throws IOException {
+        CrudProperties.Journal journal = properties.getAudit().getJournal();
+        return new AuditJournal(Path.of(journal.getDirectory()), journal.getSegmentSizeMb() * 1024 * 1024,
+                journal.getMaxSegments());
     }
 }
\ No newline at end of file
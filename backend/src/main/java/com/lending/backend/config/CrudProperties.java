@@ -0,0 +1,415 @@
+package com.lending.backend.config;
+
+import com.lending.backend.common.dto.CountMode;
+import com.lending.backend.crud.annotations.ViewAuditMode;
+import com.lending.backend.crud.service.audit.AuditOverflowPolicy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Tuning knobs of the generic CRUD framework, bound from the {@code crud.*}
+ * properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "crud")
+public class CrudProperties {
+
+    private Cache cache = new Cache();
+
+    private Paging paging = new Paging();
+
+    private Export export = new Export();
+
+    private Analytics analytics = new Analytics();
+
+    private Guard guard = new Guard();
+
+    private Bulk bulk = new Bulk();
+
+    private Ingest ingest = new Ingest();
+
+    private Jobs jobs = new Jobs();
+
+    private Audit audit = new Audit();
+
+    @Data
+    public static class Cache {
+        /**
+         * Time-to-live of caches that are not backed by a {@code @CrudEntity}.
+         */
+        private int defaultTtlMinutes = 10;
+
+        /**
+         * Maximum entries of caches that are not backed by a {@code @CrudEntity}.
+         */
+        private long defaultMaxEntries = 500;
+
+        /**
+         * Time-to-live of cached exact counts. Counts are invalidated by writes
+         * like list pages, but can be kept longer since many pages share one.
+         */
+        private int countTtlMinutes = 60;
+
+        /**
+         * Reload entries in the background once they are close to expiry, so
+         * hot keys never expire under load.
+         */
+        private boolean refreshAhead = false;
+
+        /**
+         * Fraction of an entry's time-to-live after which a read triggers a
+         * background refresh.
+         */
+        private double refreshAheadRatio = 0.8;
+
+        private OffHeap l2 = new OffHeap();
+
+        private Coherence coherence = new Coherence();
+    }
+
+    @Data
+    public static class OffHeap {
+        /**
+         * Back L1 caches with an off-heap store of serialized values.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Off-heap bytes available for values. Direct memory must be allowed
+         * accordingly through -XX:MaxDirectMemorySize.
+         */
+        private long capacityMb = 1024;
+
+        /**
+         * Unit in which off-heap memory is reserved.
+         */
+        private int pageSizeKb = 4096;
+
+        /**
+         * Largest serialized value that is stored off-heap.
+         */
+        private int maxEntryKb = 256;
+
+        /**
+         * Directory of a memory-mapped backing file; empty for direct memory.
+         */
+        private String directory = "";
+    }
+
+    @Data
+    public static class Coherence {
+        /**
+         * Mirror cache invalidations across nodes through PostgreSQL
+         * LISTEN/NOTIFY.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Notification channel shared by all nodes of one deployment.
+         */
+        private String channel = "crud_cache_invalidation";
+
+        /**
+         * Interval at which queued invalidations are coalesced and sent.
+         */
+        private long flushIntervalMs = 50;
+
+        /**
+         * Evictions of one cache within a flush above which the cache is
+         * cleared on the other nodes instead.
+         */
+        private int maxEvictionsPerCache = 256;
+
+        /**
+         * How long the listener waits for notifications per poll.
+         */
+        private int pollTimeoutMs = 500;
+
+        /**
+         * Delay before the listener reconnects after losing its connection.
+         */
+        private long reconnectDelayMs = 5000;
+    }
+
+    @Data
+    public static class Paging {
+        /**
+         * Count mode of list requests that do not pass a {@code count}
+         * parameter.
+         */
+        private CountMode defaultCountMode = CountMode.EXACT;
+
+        /**
+         * Estimates below this many rows are replaced by an exact count, which
+         * is cheap at that size and more useful than an estimate.
+         */
+        private long exactCountThreshold = 10_000;
+    }
+
+    @Data
+    public static class Export {
+        /**
+         * Rows fetched per round trip of the export cursor; also how many
+         * entities the persistence context holds at most.
+         */
+        private int fetchSize = 1000;
+
+        /**
+         * How long an export may stream before the request times out.
+         */
+        private Duration timeout = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Analytics {
+        /**
+         * Whether list queries are recorded per filter shape.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Most filter shapes tracked; queries of further shapes are counted
+         * but not recorded, bounding memory and metric cardinality.
+         */
+        private int maxShapes = 500;
+
+        /**
+         * Queries slower than this make their shape a candidate for an
+         * {@code EXPLAIN} sample and an index recommendation.
+         */
+        private Duration slowQueryThreshold = Duration.ofMillis(200);
+
+        /**
+         * How long the plan sample of a shape is kept before a slow query
+         * samples it again.
+         */
+        private Duration resampleAfter = Duration.ofMinutes(15);
+
+        /**
+         * Delay between two {@code EXPLAIN} samples, so sampling adds at most
+         * one planner call per interval.
+         */
+        private long sampleIntervalMs = 10_000;
+    }
+
+    @Data
+    public static class Guard {
+        /**
+         * Whether list queries are checked against the planner's cost
+         * estimate before they run.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Planner cost of a page query above which it is rejected.
+         */
+        private double maxQueryCost = 1_000_000;
+
+        /**
+         * Planner cost of a count above which exact counts are replaced by
+         * slices without a total.
+         */
+        private double maxCountCost = 100_000;
+
+        /**
+         * How long the cost estimate of a filter shape is reused.
+         */
+        private Duration costCacheTtl = Duration.ofMinutes(10);
+
+        /**
+         * Most filter shapes whose cost estimate is kept.
+         */
+        private long costCacheMaxEntries = 1000;
+    }
+
+    @Data
+    public static class Bulk {
+        /**
+         * Rows per JDBC batch of bulk writes; also how many new entities the
+         * persistence context holds at most before it is flushed and cleared.
+         */
+        private int batchSize = 500;
+    }
+
+    @Data
+    public static class Ingest {
+        /**
+         * Rows mapped, validated and encoded together by one worker.
+         */
+        private int chunkRows = 5000;
+
+        /**
+         * Worker threads mapping rows; 0 for one per available processor.
+         */
+        private int parallelism = 0;
+
+        /**
+         * Most rejected rows reported with their line and reason.
+         */
+        private int maxReportedErrors = 1000;
+    }
+
+    @Data
+    public static class Jobs {
+        /**
+         * Rows written and committed together by a bulk job.
+         */
+        private int chunkSize = 1000;
+
+        /**
+         * Bulk jobs running at the same time.
+         */
+        private int workers = 2;
+
+        /**
+         * Bulk jobs waiting for a worker; further submissions are refused.
+         */
+        private int maxQueuedJobs = 20;
+
+        /**
+         * Most rejected rows reported per job.
+         */
+        private int maxReportedErrors = 1000;
+    }
+
+    @Data
+    public static class Audit {
+        /**
+         * Audit entries waiting to be written; beyond this the overflow policy
+         * applies.
+         */
+        private int queueCapacity = 10_000;
+
+        /**
+         * Entries written together in one transaction and JDBC batch. A full
+         * batch is written at once.
+         */
+        private int batchSize = 500;
+
+        /**
+         * Longest time an entry waits for its batch to fill.
+         */
+        private Duration flushInterval = Duration.ofMillis(200);
+
+        /**
+         * What happens to an entry while the queue is full.
+         */
+        private AuditOverflowPolicy overflow = AuditOverflowPolicy.CALLER_RUNS;
+
+        private Partitions partitions = new Partitions();
+
+        private Views views = new Views();
+
+        private Journal journal = new Journal();
+    }
+
+    @Data
+    public static class Journal {
+        /**
+         * Append audit entries to a local memory-mapped journal, from which
+         * they are shipped to the database, instead of holding them in memory.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Directory of the journal's segment files and checkpoint; one per
+         * process.
+         */
+        private String directory = "audit-journal";
+
+        /**
+         * Size of each segment file, which bounds the largest entry.
+         */
+        private int segmentSizeMb = 64;
+
+        /**
+         * Segments kept at most while shipping lags; beyond this, entries fall
+         * back to the in-memory queue.
+         */
+        private int maxSegments = 32;
+    }
+
+    @Data
+    public static class Views {
+        /**
+         * How reads are audited for entities whose {@code @CrudEntity} leaves
+         * the mode at {@code DEFAULT}.
+         */
+        private ViewAuditMode mode = ViewAuditMode.FULL;
+
+        /**
+         * Share of reads recorded in the sampled mode, from 0 to 1.
+         */
+        private double sampleRate = 0.1;
+
+        /**
+         * Time window over which the aggregated mode counts reads into one
+         * entry.
+         */
+        private Duration window = Duration.ofMinutes(5);
+
+        /**
+         * Interval at which closed windows of the aggregated mode are written.
+         */
+        private long flushIntervalMs = 10_000;
+    }
+
+    @Data
+    public static class Partitions {
+        /**
+         * Maintain the monthly partitions of {@code audit_trail}.
+         */
+        private boolean enabled = true;
+
+        /**
+         * When partitions are maintained; they are also checked at startup.
+         */
+        private String cron = "0 15 2 * * *";
+
+        /**
+         * Months after the current one whose partitions exist in advance.
+         */
+        private int premakeMonths = 3;
+
+        /**
+         * Months after which a partition, no longer written, gets a BRIN index
+         * on {@code created_at}.
+         */
+        private int brinAfterMonths = 1;
+
+        /**
+         * Months a partition is kept after its last day; 0 keeps all of them.
+         */
+        private int retentionMonths = 24;
+
+        /**
+         * What happens to a partition past retention.
+         */
+        private RetentionPolicy retentionPolicy = RetentionPolicy.DETACH;
+
+        /**
+         * Schema that archived partitions are moved to.
+         */
+        private String archiveSchema = "audit_archive";
+    }
+
+    /**
+     * What happens to an expired audit partition.
+     */
+    public enum RetentionPolicy {
+        /**
+         * Detached from {@code audit_trail} but kept as a table of its own.
+         */
+        DETACH,
+        /**
+         * Detached and moved to the archive schema.
+         */
+        ARCHIVE,
+        /**
+         * Dropped with its rows.
+         */
+        DROP
+    }
+}
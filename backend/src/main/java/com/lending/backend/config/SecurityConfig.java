@@ -1,5 +1,6 @@
 package com.lending.backend.config;
 
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
@@ -34,6 +35,8 @@ public class SecurityConfig {
 								"/api/test/errors/**",
 								"/error")
 						.permitAll()
+						// Filter statistics span all tenants and can be reset
+						.requestMatchers(EndpointRequest.to("crudindexes")).hasRole("ADMIN")
 						.anyRequest().authenticated())
 				.exceptionHandling(exception -> exception
 						.authenticationEntryPoint((request, response, authException) -> {
@@ -3,6 +3,7 @@ package com.lending.backend.config;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.lang.NonNull;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.PathMatchConfigurer;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
@@ -15,6 +16,7 @@ import com.lending.backend.config.logging.LoggingInterceptor;
 public class WebConfig implements WebMvcConfigurer {
 
     private final LoggingInterceptor loggingInterceptor;
+    private final CrudProperties crudProperties;
 
     @Override
     public void addInterceptors(@NonNull InterceptorRegistry registry) {
@@ -35,6 +37,12 @@ public class WebConfig implements WebMvcConfigurer {
         WebMvcConfigurer.super.configurePathMatch(configurer);
     }
 
+    // Async requests are streaming exports, which run far longer than the container default
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(crudProperties.getExport().getTimeout().toMillis());
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         registry.addResourceHandler("/**")
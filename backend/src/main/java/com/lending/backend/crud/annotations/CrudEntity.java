@@ -6,7 +6,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 @Target(ElementType.TYPE)
-@Retention(RetentionPolicy.CLASS)
+@Retention(RetentionPolicy.RUNTIME)
 public @interface CrudEntity {
     String value() default "";
 
@@ -16,11 +16,22 @@ public @interface CrudEntity {
 
     boolean enableAudit() default true;
 
+    // How reads are audited when enableAudit is on, see ViewAuditMode
+    ViewAuditMode viewAudit() default ViewAuditMode.DEFAULT;
+
     boolean enableCache() default true;
 
     int cacheTimeoutMinutes() default 30;
 
+    long cacheMaxEntries() default 500;
+
+    // Budget of the entity's cache in estimated bytes; 0 bounds it by cacheMaxEntries instead
+    long cacheMaxBytes() default 0;
+
+    // Text fields matched by the q= search and indexed for it, see SearchMode
     String[] searchableFields() default {};
 
+    SearchMode searchMode() default SearchMode.TRIGRAM;
+
     String[] sortableFields() default {};
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.lending.backend.crud.annotations;
+
+/**
+ * How the {@link CrudEntity#searchableFields()} of an entity are indexed and
+ * matched.
+ */
+public enum SearchMode {
+    /**
+     * Substring search backed by {@code pg_trgm} GIN indexes on
+     * {@code lower(column)}. Keeps the semantics of {@code _like} filters and
+     * suits identifiers such as mobile numbers; results are ranked by
+     * trigram similarity.
+     */
+    TRIGRAM,
+    /**
+     * Word-prefix search backed by {@code tsvector} GIN indexes with the
+     * {@code simple} configuration. {@code _like} filters on searchable
+     * fields match whole words by prefix instead of substrings; results are
+     * ranked by {@code ts_rank}.
+     */
+    FULL_TEXT
+}
@@ -0,0 +1,32 @@
+package com.lending.backend.crud.annotations;
+
+/**
+ * How reads of a {@link CrudEntity} are recorded in the audit trail. Reads of
+ * entities with {@link CrudEntity#enableAudit()} off are not recorded at all.
+ */
+public enum ViewAuditMode {
+    /**
+     * The mode of {@code crud.audit.views.mode}.
+     */
+    DEFAULT,
+    /**
+     * One entry per read.
+     */
+    FULL,
+    /**
+     * One entry for a random share of the reads, given by
+     * {@code crud.audit.views.sample-rate}. Each entry notes the rate, so
+     * counts can be scaled back up.
+     */
+    SAMPLED,
+    /**
+     * Reads are counted in memory per entity, user, tenant and time window
+     * of {@code crud.audit.views.window}, and each window's counts are written
+     * as one entry once the window has closed.
+     */
+    AGGREGATED,
+    /**
+     * Reads are not recorded.
+     */
+    NONE
+}
@@ -1,21 +1,46 @@
 package com.lending.backend.crud.controller;
 
 import com.lending.backend.common.audit.BaseEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lending.backend.crud.entity.BulkJob;
+import com.lending.backend.crud.entity.BulkJobError;
+import com.lending.backend.crud.export.ExportFormat;
+import com.lending.backend.crud.export.ExportQuery;
+import com.lending.backend.crud.export.ExportWriter;
+import com.lending.backend.crud.ingest.IngestFormat;
+import com.lending.backend.crud.ingest.IngestResult;
 import com.lending.backend.crud.service.CrudService;
 import com.lending.backend.common.dto.ApiResponse;
+import com.lending.backend.common.dto.CountMode;
 import com.lending.backend.common.dto.PagedResult;
+import com.lending.backend.common.exception.ApiException;
+import com.lending.backend.common.exception.ErrorConstants;
+import com.lending.backend.crud.util.JsonArrayReader;
+import com.lending.backend.crud.util.ProjectionPlan;
+import com.lending.backend.crud.util.QueryDescriptor;
 import com.lending.backend.crud.util.SpecificationBuilder;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
-import java.util.List;
+import jakarta.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
 import java.util.Map;
+import java.util.UUID;
 
 public abstract class CrudController<T extends BaseEntity> {
 
@@ -25,23 +50,100 @@ public abstract class CrudController<T extends BaseEntity> {
     @Autowired
     protected SpecificationBuilder<T> specificationBuilder;
 
+    @Autowired
+    protected ObjectMapper objectMapper;
+
+    @Autowired
+    protected Validator validator;
+
+    protected Class<T> entityClass;
+
     @GetMapping
-    public ResponseEntity<ApiResponse<PagedResult<T>>> findAll(
+    public ResponseEntity<ApiResponse<PagedResult<?>>> findAll(
             @RequestParam(required = false) Map<String, String> filters,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String count,
+            @RequestParam(required = false) String fields,
             Pageable pageable) {
 
-        Specification<T> spec = specificationBuilder.build(filters);
-        PagedResult<T> result = service.findAll(spec, pageable);
+        QueryDescriptor descriptor = specificationBuilder.describe(entityClass, filters, pageable);
+        ProjectionPlan projection = service.planProjection(fields);
+        CountMode countMode = CountMode.fromParameter(count);
+        // Passing a cursor, even an empty one for the first page, switches to keyset pagination
+        if (cursor != null && (pageable.getPageNumber() > 0 || countMode != null)) {
+            throw new ApiException(HttpStatus.BAD_REQUEST,
+                    "cursor cannot be combined with page or count; keyset pages are neither numbered nor counted",
+                    ErrorConstants.INVALID_REQUEST);
+        }
+        PagedResult<?> result;
+        if (projection != null) {
+            result = cursor != null
+                    ? service.findAllAfter(descriptor, cursor, pageable.getPageSize(), projection)
+                    : service.findAll(descriptor, pageable, countMode, projection);
+        } else {
+            result = cursor != null
+                    ? service.findAllAfter(descriptor, cursor, pageable.getPageSize())
+                    : service.findAll(descriptor, pageable, countMode);
+        }
 
         return ResponseEntity.ok(ApiResponse.success(result));
     }
 
+    /**
+     * Streams every matching row as NDJSON or CSV. Accepts the same filters as
+     * {@link #findAll}; the response is written while rows are read, so memory
+     * use does not depend on the size of the export.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) Map<String, String> filters,
+            @RequestParam(defaultValue = "ndjson") String format,
+            Sort sort) {
+
+        ExportFormat exportFormat = ExportFormat.fromParameter(format);
+        ExportQuery<T> export = service.prepareExport(specificationBuilder.describe(entityClass, filters, sort));
+        StreamingResponseBody body = out -> {
+            try (ExportWriter writer = exportFormat.open(out, objectMapper)) {
+                service.export(export, row -> {
+                    try {
+                        writer.write(row);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("export." + exportFormat.getExtension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<T>> findById(@PathVariable Long id) {
-        T entity = service.findById(id);
+    public ResponseEntity<ApiResponse<?>> findById(
+            @PathVariable Long id,
+            @RequestParam(required = false) String fields) {
+        ProjectionPlan projection = service.planProjection(fields);
+        Object entity = projection != null ? service.findById(id, projection) : service.findById(id);
         return ResponseEntity.ok(ApiResponse.success(entity));
     }
 
+    /**
+     * Returns an entity as it was at a version or a time, rebuilt from the
+     * audit trail; without either, as of its latest audited change.
+     */
+    @GetMapping("/{id}/revision")
+    public ResponseEntity<ApiResponse<ObjectNode>> findRevision(
+            @PathVariable String id,
+            @RequestParam(required = false) Long version,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant asOf) {
+        return ResponseEntity.ok(ApiResponse.success(service.findRevision(id, version, asOf)));
+    }
+
     @PostMapping
     public ResponseEntity<ApiResponse<T>> create(@Valid @RequestBody T entity) {
         T created = service.create(entity);
@@ -71,10 +173,94 @@ public abstract class CrudController<T extends BaseEntity> {
         return ResponseEntity.ok(ApiResponse.success(null));
     }
 
+    /**
+     * Creates the entities of a JSON array body in one transaction. The body
+     * is parsed element by element as the entities are written, so its size
+     * is not limited by memory.
+     */
     @PostMapping("/bulk")
-    public ResponseEntity<ApiResponse<List<T>>> bulkCreate(@Valid @RequestBody List<T> entities) {
-        List<T> created = service.bulkCreate(entities);
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(ApiResponse.success(created));
+    public ResponseEntity<ApiResponse<Long>> bulkCreate(InputStream body) {
+        try (JsonArrayReader<T> entities = new JsonArrayReader<>(objectMapper, body, entityClass, validator)) {
+            long created = service.bulkCreate(entities);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(ApiResponse.success(created, created + " records created"));
+        }
+    }
+
+    /**
+     * Creates the rows of the body in the background, in independently
+     * committed chunks. Responds with the queued job at once; its progress is
+     * polled at {@code /bulk/jobs/{jobId}}.
+     */
+    @PostMapping("/bulk/jobs")
+    public ResponseEntity<ApiResponse<BulkJob>> submitBulkJob(InputStream body) {
+        try (JsonArrayReader<JsonNode> rows = new JsonArrayReader<>(objectMapper, body, JsonNode.class, null)) {
+            BulkJob job = service.submitBulkJob(rows);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(ApiResponse.success(job));
+        }
+    }
+
+    @GetMapping("/bulk/jobs/{jobId}")
+    public ResponseEntity<ApiResponse<BulkJob>> getBulkJob(@PathVariable UUID jobId) {
+        return ResponseEntity.ok(ApiResponse.success(service.getBulkJob(jobId)));
+    }
+
+    @GetMapping("/bulk/jobs/{jobId}/errors")
+    public ResponseEntity<ApiResponse<PagedResult<BulkJobError>>> getBulkJobErrors(
+            @PathVariable UUID jobId,
+            Pageable pageable) {
+        return ResponseEntity.ok(ApiResponse.success(new PagedResult<>(service.getBulkJobErrors(jobId, pageable))));
+    }
+
+    /**
+     * Continues an interrupted or failed job with its first uncommitted chunk.
+     */
+    @PostMapping("/bulk/jobs/{jobId}/resume")
+    public ResponseEntity<ApiResponse<BulkJob>> resumeBulkJob(@PathVariable UUID jobId) {
+        BulkJob job = service.resumeBulkJob(jobId);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(job));
+    }
+
+    /**
+     * Loads a CSV or NDJSON request body into the entity's table through
+     * {@code COPY}. The body is streamed, so its size is not limited by
+     * memory; rejected rows are reported with their line.
+     */
+    @PostMapping("/ingest")
+    public ResponseEntity<ApiResponse<IngestResult>> ingest(
+            @RequestParam(defaultValue = "ndjson") String format,
+            InputStream body) {
+
+        IngestResult result = service.ingest(IngestFormat.fromParameter(format).open(body, objectMapper));
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    /**
+     * Applies the body's field values to every row matching the filters, for
+     * example {@code PATCH /bulk?id_in=...} or {@code PATCH /bulk?status=NEW},
+     * with a single statement.
+     */
+    @PatchMapping("/bulk")
+    public ResponseEntity<ApiResponse<Long>> bulkPatch(
+            @RequestParam(required = false) Map<String, String> filters,
+            @RequestBody Map<String, Object> changes) {
+
+        long count = service.bulkPatch(specificationBuilder.describe(entityClass, filters, Sort.unsorted()),
+                changes);
+        return ResponseEntity.ok(ApiResponse.success(count, count + " records updated"));
+    }
+
+    /**
+     * Deletes every row matching the filters, for example
+     * {@code DELETE /bulk?id_in=...}, with a single statement.
+     */
+    @DeleteMapping("/bulk")
+    public ResponseEntity<ApiResponse<Long>> bulkDelete(
+            @RequestParam(required = false) Map<String, String> filters) {
+
+        long count = service.bulkDelete(specificationBuilder.describe(entityClass, filters, Sort.unsorted()));
+        return ResponseEntity.ok(ApiResponse.success(count, count + " records deleted"));
     }
-}
\ No newline at end of file
+}
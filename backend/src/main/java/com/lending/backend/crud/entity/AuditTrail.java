@@ -8,6 +8,10 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
+
+// Spring's auditing listener would stamp created_at with the write time, see prePersist
+@ExcludeSuperclassListeners
 @Entity
 @Data
 @EqualsAndHashCode(callSuper = true)
@@ -43,6 +47,20 @@ public class AuditTrail extends BaseEntity {
     @Column(name = "tenant_id")
     private String tenantId;
 
+    // Version of the audited entity after the operation; orders an entity's entries
+    @Column(name = "entity_version")
+    private Long entityVersion;
+
+    // Keeps the time the entry was recorded rather than written, which may be much later for a journaled entry
+    @Override
+    public void prePersist() {
+        Instant recordedAt = getCreatedAt();
+        super.prePersist();
+        if (recordedAt != null) {
+            setCreatedAt(recordedAt);
+        }
+    }
+
     public enum Operation {
         CREATE, UPDATE, DELETE, VIEW
     }
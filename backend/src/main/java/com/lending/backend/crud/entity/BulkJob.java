@@ -0,0 +1,70 @@
+package com.lending.backend.crud.entity;
+
+import com.lending.backend.common.audit.BaseEntity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A bulk create submitted through {@code POST /bulk/jobs}. The rows are kept
+ * in {@link BulkJobChunk}s until they are written; {@code nextChunk} is the
+ * first chunk not yet committed, where an interrupted job resumes.
+ */
+@Entity
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+@Table(name = "bulk_job")
+public class BulkJob extends BaseEntity {
+    @Column(name = "entity_name", nullable = false)
+    private String entityName;
+
+    @Column(name = "status", nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    @Column(name = "tenant_id")
+    private String tenantId;
+
+    @Column(name = "total_rows", nullable = false)
+    private long totalRows;
+
+    @Column(name = "chunk_size", nullable = false)
+    private int chunkSize;
+
+    @Column(name = "total_chunks", nullable = false)
+    private int totalChunks;
+
+    @Column(name = "next_chunk", nullable = false)
+    private int nextChunk;
+
+    // Rows of the next chunk already committed one by one, after the chunk failed as a whole
+    @Column(name = "next_chunk_row", nullable = false)
+    private int nextChunkRow;
+
+    @Column(name = "processed_rows", nullable = false)
+    private long processedRows;
+
+    @Column(name = "created_rows", nullable = false)
+    private long createdRows;
+
+    @Column(name = "failed_rows", nullable = false)
+    private long failedRows;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED, INTERRUPTED
+    }
+}
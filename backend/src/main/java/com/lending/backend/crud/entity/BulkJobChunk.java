@@ -0,0 +1,33 @@
+package com.lending.backend.crud.entity;
+
+import com.lending.backend.common.audit.BaseEntity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * The rows of one chunk of a {@link BulkJob}, as a JSON array. Removed in the
+ * transaction that writes them.
+ */
+@Entity
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+@Table(name = "bulk_job_chunk")
+public class BulkJobChunk extends BaseEntity {
+    @Column(name = "job_id", nullable = false)
+    private UUID jobId;
+
+    @Column(name = "chunk_index", nullable = false)
+    private int chunkIndex;
+
+    @Column(name = "first_row", nullable = false)
+    private long firstRow;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+}
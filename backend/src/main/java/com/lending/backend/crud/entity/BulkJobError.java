@@ -0,0 +1,32 @@
+package com.lending.backend.crud.entity;
+
+import com.lending.backend.common.audit.BaseEntity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * A row of a {@link BulkJob} that was not created, by its 0-based position in
+ * the submitted array.
+ */
+@Entity
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "bulk_job_error")
+public class BulkJobError extends BaseEntity {
+    @Column(name = "job_id", nullable = false)
+    private UUID jobId;
+
+    @Column(name = "row_index", nullable = false)
+    private long rowIndex;
+
+    @Column(name = "message", columnDefinition = "TEXT")
+    private String message;
+}
@@ -0,0 +1,77 @@
+package com.lending.backend.crud.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes RFC 4180 CSV. The columns are the JSON properties of the first row,
+ * in serialization order; nested values are written as JSON.
+ */
+class CsvExportWriter implements ExportWriter {
+
+    private final Writer writer;
+    private final ObjectMapper objectMapper;
+    private List<String> columns;
+
+    CsvExportWriter(OutputStream out, ObjectMapper objectMapper) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void write(Object row) throws IOException {
+        JsonNode node = objectMapper.valueToTree(row);
+        if (!(node instanceof ObjectNode object)) {
+            throw new IllegalArgumentException("CSV rows must serialize to JSON objects");
+        }
+        if (columns == null) {
+            columns = new ArrayList<>();
+            object.fieldNames().forEachRemaining(columns::add);
+            writeLine(columns);
+        }
+
+        List<String> values = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            JsonNode value = object.get(column);
+            if (value == null || value.isNull()) {
+                values.add("");
+            } else {
+                values.add(value.isValueNode() ? value.asText() : value.toString());
+            }
+        }
+        writeLine(values);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+
+    private void writeLine(List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escape(values.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    private static String escape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,61 @@
+package com.lending.backend.crud.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lending.backend.common.exception.ApiException;
+import com.lending.backend.common.exception.ErrorConstants;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * Output formats of the streaming export.
+ */
+public enum ExportFormat {
+    NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+    CSV(MediaType.parseMediaType("text/csv"), "csv");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Opens a writer of this format on the output stream. Rows are serialized
+     * with the given mapper, so the export honours the same Jackson
+     * annotations as the JSON API.
+     */
+    public ExportWriter open(OutputStream out, ObjectMapper objectMapper) throws IOException {
+        return switch (this) {
+            case NDJSON -> new NdjsonExportWriter(out, objectMapper);
+            case CSV -> new CsvExportWriter(out, objectMapper);
+        };
+    }
+
+    /**
+     * Parses the {@code format} request parameter.
+     *
+     * @throws ApiException if the value is not a known format
+     */
+    public static ExportFormat fromParameter(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new ApiException(HttpStatus.BAD_REQUEST,
+                    "Unknown export format '" + value + "', expected ndjson or csv", ErrorConstants.INVALID_REQUEST);
+        }
+    }
+}
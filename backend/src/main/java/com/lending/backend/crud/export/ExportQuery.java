@@ -0,0 +1,17 @@
+package com.lending.backend.crud.export;
+
+import com.lending.backend.crud.service.audit.AuditService;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * An export whose permission check and security filters have been resolved
+ * on the request thread, so it can be streamed from another thread.
+ *
+ * @param specification the filters including the security filters
+ * @param sort          the order of the exported rows
+ * @param audit         the audit entry, completed once the rows are sent
+ * @param <T>           the entity type
+ */
+public record ExportQuery<T>(Specification<T> specification, Sort sort, AuditService.ExportAudit audit) {
+}
@@ -0,0 +1,16 @@
+package com.lending.backend.crud.export;
+
+import java.io.IOException;
+
+/**
+ * Writes exported rows one at a time to an output stream. Implementations
+ * keep no rows in memory; closing the writer flushes it but leaves the
+ * underlying stream open.
+ */
+public interface ExportWriter extends AutoCloseable {
+
+    void write(Object row) throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
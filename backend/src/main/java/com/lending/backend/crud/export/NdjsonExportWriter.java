@@ -0,0 +1,44 @@
+package com.lending.backend.crud.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes one JSON object per line.
+ */
+class NdjsonExportWriter implements ExportWriter {
+
+    private final OutputStream out;
+    private final SequenceWriter writer;
+    private boolean empty = true;
+
+    NdjsonExportWriter(OutputStream out, ObjectMapper objectMapper) throws IOException {
+        this.out = out;
+        // Flushing is left to the generator's buffer instead of once per row
+        this.writer = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n")
+                .writeValues(out);
+    }
+
+    @Override
+    public void write(Object row) throws IOException {
+        writer.write(row);
+        empty = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+        if (!empty) {
+            out.write('\n');
+        }
+        out.flush();
+    }
+}
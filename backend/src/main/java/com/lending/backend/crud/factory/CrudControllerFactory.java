@@ -2,10 +2,12 @@ package com.lending.backend.crud.factory;
 
 import com.lending.backend.common.audit.BaseEntity;
 import com.lending.backend.crud.annotations.CrudEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lending.backend.crud.controller.CrudController;
 import com.lending.backend.crud.service.CrudService;
 import com.lending.backend.crud.util.SpecificationBuilder;
 import jakarta.annotation.PostConstruct;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Configuration;
@@ -43,11 +45,16 @@ public class CrudControllerFactory {
             Class<T> clazz = (Class<T>) entityClass;
             CrudService<T> service = (CrudService<T>) context.getBean("crudServiceImpl");
             SpecificationBuilder<T> specBuilder = (SpecificationBuilder<T>) context.getBean(SpecificationBuilder.class);
+            ObjectMapper mapper = context.getBean(ObjectMapper.class);
+            Validator beanValidator = context.getBean(Validator.class);
 
             CrudController<T> controller = new CrudController<>() {
                 {
                     this.service = service;
                     this.specificationBuilder = specBuilder;
+                    this.objectMapper = mapper;
+                    this.validator = beanValidator;
+                    this.entityClass = clazz;
                 }
             };
 
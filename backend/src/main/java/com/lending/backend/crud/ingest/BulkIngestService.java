@@ -0,0 +1,376 @@
+package com.lending.backend.crud.ingest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lending.backend.common.audit.BaseEntity;
+import com.lending.backend.common.exception.ApiException;
+import com.lending.backend.common.exception.ErrorConstants;
+import com.lending.backend.config.CrudProperties;
+import com.lending.backend.crud.entity.BranchAwareEntity;
+import com.lending.backend.crud.util.UuidUtil;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Loads large CSV or NDJSON inputs into an entity's table at {@code COPY}
+ * speed, in four stages:
+ * <ol>
+ * <li>The input is read as a stream, one row at a time, on the calling
+ * thread.</li>
+ * <li>Chunks of {@code crud.ingest.chunk-rows} rows are mapped to the entity
+ * with Jackson, stamped with the {@link BaseEntity} fields that Hibernate
+ * would otherwise fill (id, version, created and modified by and at, and the
+ * branch of a {@link BranchAwareEntity}), bean-validated and encoded in
+ * PostgreSQL's binary {@code COPY} format on a pool of worker threads.</li>
+ * <li>Encoded chunks are streamed in input order through
+ * {@code COPY ... FROM STDIN (FORMAT binary)} into a temporary staging table
+ * with the target's columns and the input line of each row.</li>
+ * <li>The staging table is merged into the target with a single
+ * {@code INSERT ... SELECT ... ON CONFLICT DO NOTHING}; rows skipped by a
+ * unique constraint are reported by line.</li>
+ * </ol>
+ * Rows that fail to parse, map or validate are skipped and reported by line;
+ * the other rows are loaded. The whole ingestion is one transaction, so a
+ * failing statement loads nothing.
+ * <p>
+ * Rows never pass through the persistence context: entity listeners, Envers
+ * revisions and entity hooks do not run for ingested rows. Local files can be
+ * ingested by opening an {@link IngestFormat} reader on them.
+ */
+@Component
+public class BulkIngestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkIngestService.class);
+
+    private static final String STAGING_TABLE = "crud_ingest_staging";
+
+    private static final String LINE_COLUMN = "ingest_line";
+
+    // Signature, flags and header extension length of the binary COPY format
+    private static final byte[] COPY_HEADER = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0,
+            0, 0, 0, 0, 0, 0, 0, 0 };
+
+    private static final byte[] COPY_TRAILER = { (byte) 0xFF, (byte) 0xFF };
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final CrudProperties.Ingest properties;
+    private final int parallelism;
+    private final ExecutorService workers;
+    private final Map<Class<?>, CopyTable> tables = new ConcurrentHashMap<>();
+
+    public BulkIngestService(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper, Validator validator, CrudProperties properties) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.properties = properties.getIngest();
+        this.parallelism = this.properties.getParallelism() > 0 ? this.properties.getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "Ingest-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Who an ingestion is made by, applied to every row.
+     *
+     * @param userId   the user recorded as creator
+     * @param branchId the branch of every row of a {@link BranchAwareEntity},
+     *                 or {@code null} to keep the branch of the input
+     */
+    public record IngestContext(String userId, String branchId) {
+    }
+
+    /**
+     * Ingests every row of the reader, which is closed afterwards.
+     *
+     * @param entityClass the entity whose table is loaded
+     * @param reader      the input
+     * @param context     the creator and branch of the rows
+     * @param rowCheck    further validation of each mapped entity, which
+     *                    rejects the row by throwing; runs on worker threads
+     * @throws ApiException if the entity cannot be ingested or a statement
+     *                      fails, in which case nothing is loaded
+     */
+    @Transactional
+    public <T extends BaseEntity> IngestResult ingest(Class<T> entityClass, IngestReader reader,
+            IngestContext context, Consumer<? super T> rowCheck) {
+        long start = System.nanoTime();
+        CopyTable table = tables.computeIfAbsent(entityClass, this::copyTableOf);
+        try (reader) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + STAGING_TABLE);
+            // Without the target's constraints, so that only the merge decides about conflicts
+            jdbcTemplate.execute("CREATE TEMP TABLE " + STAGING_TABLE + " ON COMMIT DROP AS SELECT "
+                    + table.columnList() + " FROM " + table.table() + " WITH NO DATA");
+            jdbcTemplate.execute("ALTER TABLE " + STAGING_TABLE + " ADD COLUMN " + LINE_COLUMN + " bigint");
+
+            Staged staged = jdbcTemplate.execute((ConnectionCallback<Staged>) connection -> copy(connection,
+                    entityClass, table, reader, new Stamp(Instant.now(), context), rowCheck));
+
+            int loaded = jdbcTemplate.update("INSERT INTO " + table.table() + " (" + table.columnList()
+                    + ") SELECT " + table.columnList() + " FROM " + STAGING_TABLE + " ON CONFLICT DO NOTHING");
+            List<IngestError> errors = new ArrayList<>(staged.errors());
+            long conflicts = staged.copied() - loaded;
+            if (conflicts > 0) {
+                errors.addAll(jdbcTemplate.query("SELECT s." + LINE_COLUMN + " FROM " + STAGING_TABLE
+                        + " s WHERE NOT EXISTS (SELECT 1 FROM " + table.table() + " t WHERE t." + table.idColumn()
+                        + " = s." + table.idColumn() + ") ORDER BY s." + LINE_COLUMN + " LIMIT ?",
+                        (row, rowNumber) -> new IngestError(row.getLong(1), "Conflicts with an existing row"),
+                        properties.getMaxReportedErrors()));
+            }
+
+            long rejected = staged.rejected() + conflicts;
+            errors.sort(Comparator.comparingLong(IngestError::line));
+            List<IngestError> reported = errors.subList(0, Math.min(errors.size(),
+                    properties.getMaxReportedErrors()));
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            logger.info("Ingested {} of {} {} rows in {} ms", loaded, staged.rows(), entityClass.getSimpleName(),
+                    elapsedMillis);
+            return new IngestResult(staged.rows(), loaded, rejected, reported, rejected > reported.size(),
+                    elapsedMillis);
+        } catch (IOException | UncheckedIOException e) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Could not read the input: " + e.getMessage(),
+                    ErrorConstants.INVALID_REQUEST);
+        } catch (DataAccessException e) {
+            throw new ApiException(HttpStatus.BAD_REQUEST,
+                    "Ingest failed: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage(),
+                    ErrorConstants.INVALID_REQUEST);
+        }
+    }
+
+    /**
+     * Streams the input into the staging table, keeping at most twice the
+     * parallelism of chunks in flight.
+     */
+    private <T extends BaseEntity> Staged copy(Connection connection, Class<T> entityClass, CopyTable table,
+            IngestReader reader, Stamp stamp, Consumer<? super T> rowCheck) throws SQLException {
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn("COPY " + STAGING_TABLE + " ("
+                + table.columnList() + ", " + LINE_COLUMN + ") FROM STDIN (FORMAT binary)");
+        Deque<Future<EncodedChunk>> pending = new ArrayDeque<>();
+        Staged staged = new Staged();
+        try {
+            copyIn.writeToCopy(COPY_HEADER, 0, COPY_HEADER.length);
+            int chunkRows = properties.getChunkRows();
+            List<IngestRow> rows = new ArrayList<>(chunkRows);
+            IngestRow row;
+            while ((row = reader.next()) != null) {
+                rows.add(row);
+                if (rows.size() == chunkRows) {
+                    List<IngestRow> chunk = rows;
+                    pending.add(workers.submit(() -> encode(chunk, entityClass, table, stamp, rowCheck)));
+                    rows = new ArrayList<>(chunkRows);
+                    if (pending.size() >= 2 * parallelism) {
+                        staged.write(copyIn, await(pending.poll()), properties.getMaxReportedErrors());
+                    }
+                }
+            }
+            if (!rows.isEmpty()) {
+                List<IngestRow> chunk = rows;
+                pending.add(workers.submit(() -> encode(chunk, entityClass, table, stamp, rowCheck)));
+            }
+            while (!pending.isEmpty()) {
+                staged.write(copyIn, await(pending.poll()), properties.getMaxReportedErrors());
+            }
+            copyIn.writeToCopy(COPY_TRAILER, 0, COPY_TRAILER.length);
+            staged.copied = copyIn.endCopy();
+            return staged;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static EncodedChunk await(Future<EncodedChunk> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while ingesting", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime
+                    : new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Maps, stamps, validates and encodes a chunk of rows. Runs on a worker.
+     */
+    private <T extends BaseEntity> EncodedChunk encode(List<IngestRow> rows, Class<T> entityClass,
+            CopyTable table, Stamp stamp, Consumer<? super T> rowCheck) {
+        CopyBuffer buffer = new CopyBuffer(rows.size() * 256);
+        DataOutputStream out = new DataOutputStream(buffer);
+        List<IngestError> errors = new ArrayList<>();
+        int encoded = 0;
+        for (IngestRow row : rows) {
+            if (row.error() != null) {
+                errors.add(new IngestError(row.line(), row.error()));
+                continue;
+            }
+            int mark = buffer.size();
+            try {
+                T entity = objectMapper.treeToValue(row.values(), entityClass);
+                stamp.apply(entity);
+                Set<ConstraintViolation<T>> violations = validator.validate(entity);
+                if (!violations.isEmpty()) {
+                    errors.add(new IngestError(row.line(), violations.stream()
+                            .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                            .sorted()
+                            .collect(Collectors.joining("; "))));
+                    continue;
+                }
+                rowCheck.accept(entity);
+                table.encode(entity, row.line(), out);
+                encoded++;
+            } catch (JsonProcessingException e) {
+                errors.add(new IngestError(row.line(), e.getOriginalMessage()));
+            } catch (IOException e) {
+                // The buffer is in memory
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                buffer.truncate(mark);
+                errors.add(new IngestError(row.line(), String.valueOf(e.getMessage())));
+            }
+        }
+        return new EncodedChunk(buffer.array(), buffer.size(), rows.size(), encoded, errors);
+    }
+
+    private CopyTable copyTableOf(Class<?> entityClass) {
+        EntityPersister persister = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel()
+                .getEntityDescriptor(entityClass);
+        if (!(persister instanceof AbstractEntityPersister abstractPersister)
+                || abstractPersister.getTableNames().length != 1) {
+            throw new ApiException(HttpStatus.BAD_REQUEST,
+                    entityClass.getSimpleName() + " cannot be ingested: it is not mapped to a single table",
+                    ErrorConstants.INVALID_REQUEST);
+        }
+        Map<String, CopyTable.ColumnType> columnTypes = jdbcTemplate.query(
+                "SELECT a.attname, t.typname, a.attnotnull, "
+                        + "CASE WHEN t.typname IN ('varchar', 'bpchar') AND a.atttypmod > 0 "
+                        + "THEN a.atttypmod - 4 ELSE -1 END AS max_length "
+                        + "FROM pg_attribute a JOIN pg_type t ON t.oid = a.atttypid "
+                        + "WHERE a.attrelid = to_regclass(?) AND a.attnum > 0 AND NOT a.attisdropped",
+                (row, rowNumber) -> Map.entry(row.getString("attname"), new CopyTable.ColumnType(
+                        row.getString("typname"), row.getBoolean("attnotnull"), row.getInt("max_length"))),
+                abstractPersister.getTableName())
+                .stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        return CopyTable.of(abstractPersister, columnTypes, entityManagerFactory.getPersistenceUnitUtil(),
+                objectMapper);
+    }
+
+    /**
+     * The fields Hibernate and the auditing listener would fill on insert.
+     */
+    private record Stamp(Instant now, IngestContext context) {
+
+        void apply(BaseEntity entity) {
+            entity.setId(UuidUtil.randomV7());
+            entity.setVersion(0L);
+            entity.setCreatedAt(now);
+            entity.setCreatedBy(context.userId());
+            entity.setLastModifiedAt(now);
+            entity.setLastModifiedBy(context.userId());
+            entity.setDeleted(false);
+            entity.setDeletedAt(null);
+            entity.setDeletedBy(null);
+            if (context.branchId() != null && entity instanceof BranchAwareEntity branchAware) {
+                branchAware.setBranchId(context.branchId());
+            }
+        }
+    }
+
+    /**
+     * A chunk in {@code COPY} format.
+     */
+    private record EncodedChunk(byte[] data, int length, int rows, int encoded, List<IngestError> errors) {
+    }
+
+    /**
+     * What has been written to the staging table so far.
+     */
+    private static final class Staged {
+        private final List<IngestError> errors = new ArrayList<>();
+        private long rows;
+        private long rejected;
+        private long copied;
+
+        void write(CopyIn copyIn, EncodedChunk chunk, int maxErrors) throws SQLException {
+            copyIn.writeToCopy(chunk.data(), 0, chunk.length());
+            rows += chunk.rows();
+            rejected += chunk.rows() - chunk.encoded();
+            // Chunks arrive in input order, so the first errors are kept
+            chunk.errors().stream().limit(Math.max(0, maxErrors - errors.size())).forEach(errors::add);
+        }
+
+        List<IngestError> errors() {
+            return errors;
+        }
+
+        long rows() {
+            return rows;
+        }
+
+        long rejected() {
+            return rejected;
+        }
+
+        long copied() {
+            return copied;
+        }
+    }
+}
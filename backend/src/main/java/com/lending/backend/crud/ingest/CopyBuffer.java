@@ -0,0 +1,25 @@
+package com.lending.backend.crud.ingest;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A growable buffer of encoded {@code COPY} rows that can drop a partly
+ * encoded row again.
+ */
+class CopyBuffer extends ByteArrayOutputStream {
+
+    CopyBuffer(int size) {
+        super(size);
+    }
+
+    /**
+     * Discards everything written after the given size.
+     */
+    void truncate(int size) {
+        count = size;
+    }
+
+    byte[] array() {
+        return buf;
+    }
+}
@@ -0,0 +1,204 @@
+package com.lending.backend.crud.ingest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Encodes a Java value as one field of PostgreSQL's binary {@code COPY}
+ * format: a 4-byte length, {@code -1} for null, followed by the value in the
+ * column type's binary send format. Binary input is not converted by the
+ * server, so the codec is chosen by the actual column type.
+ */
+@FunctionalInterface
+interface CopyCodec {
+
+    LocalDateTime POSTGRES_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    LocalDate POSTGRES_EPOCH_DATE = LocalDate.of(2000, 1, 1);
+
+    void encode(Object value, DataOutputStream out) throws IOException;
+
+    /**
+     * @param type the column's {@code pg_type.typname}
+     * @return the codec, or {@code null} if the type is not supported
+     */
+    static CopyCodec forType(String type, ObjectMapper objectMapper) {
+        CopyCodec codec = switch (type) {
+            case "uuid" -> (value, out) -> {
+                UUID uuid = value instanceof UUID id ? id : UUID.fromString(value.toString());
+                out.writeInt(16);
+                out.writeLong(uuid.getMostSignificantBits());
+                out.writeLong(uuid.getLeastSignificantBits());
+            };
+            case "text", "varchar", "bpchar", "citext", "name" -> (value, out) -> writeText(text(value), out);
+            case "json" -> (value, out) -> writeText(json(value, objectMapper), out);
+            case "jsonb" -> (value, out) -> {
+                byte[] bytes = json(value, objectMapper).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length + 1);
+                // jsonb's binary format is a version byte followed by the text
+                out.writeByte(1);
+                out.write(bytes);
+            };
+            case "bool" -> (value, out) -> {
+                out.writeInt(1);
+                out.writeByte(Boolean.TRUE.equals(value) ? 1 : 0);
+            };
+            case "int2" -> (value, out) -> {
+                out.writeInt(2);
+                out.writeShort(number(value).shortValue());
+            };
+            case "int4" -> (value, out) -> {
+                out.writeInt(4);
+                out.writeInt(number(value).intValue());
+            };
+            case "int8" -> (value, out) -> {
+                out.writeInt(8);
+                out.writeLong(number(value).longValue());
+            };
+            case "float4" -> (value, out) -> {
+                out.writeInt(4);
+                out.writeFloat(number(value).floatValue());
+            };
+            case "float8" -> (value, out) -> {
+                out.writeInt(8);
+                out.writeDouble(number(value).doubleValue());
+            };
+            case "numeric" -> (value, out) -> writeNumeric(
+                    value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString()), out);
+            case "timestamptz" -> (value, out) -> {
+                out.writeInt(8);
+                out.writeLong(ChronoUnit.MICROS.between(POSTGRES_EPOCH, instant(value).atOffset(ZoneOffset.UTC)
+                        .toLocalDateTime()));
+            };
+            case "timestamp" -> (value, out) -> {
+                // Like the JDBC driver, instants are stored in the JVM's zone
+                LocalDateTime local = value instanceof LocalDateTime dateTime ? dateTime
+                        : LocalDateTime.ofInstant(instant(value), ZoneId.systemDefault());
+                out.writeInt(8);
+                out.writeLong(ChronoUnit.MICROS.between(POSTGRES_EPOCH, local));
+            };
+            case "date" -> (value, out) -> {
+                out.writeInt(4);
+                out.writeInt((int) ChronoUnit.DAYS.between(POSTGRES_EPOCH_DATE, (LocalDate) value));
+            };
+            case "time" -> (value, out) -> {
+                out.writeInt(8);
+                out.writeLong(((LocalTime) value).toNanoOfDay() / 1000);
+            };
+            case "bytea" -> (value, out) -> {
+                byte[] bytes = (byte[]) value;
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            };
+            default -> null;
+        };
+        if (codec == null) {
+            return null;
+        }
+        return (value, out) -> {
+            if (value == null) {
+                out.writeInt(-1);
+            } else {
+                codec.encode(value, out);
+            }
+        };
+    }
+
+    private static String text(Object value) {
+        return value instanceof Enum<?> constant ? constant.name() : value.toString();
+    }
+
+    private static Number number(Object value) {
+        if (value instanceof Enum<?> constant) {
+            return constant.ordinal();
+        }
+        return value instanceof Number number ? number : new BigDecimal(value.toString());
+    }
+
+    private static Instant instant(Object value) {
+        if (value instanceof Instant instant) {
+            return instant;
+        } else if (value instanceof OffsetDateTime dateTime) {
+            return dateTime.toInstant();
+        } else if (value instanceof ZonedDateTime dateTime) {
+            return dateTime.toInstant();
+        } else if (value instanceof LocalDateTime dateTime) {
+            return dateTime.atZone(ZoneId.systemDefault()).toInstant();
+        } else if (value instanceof Date date) {
+            return date.toInstant();
+        }
+        throw new IllegalArgumentException("Cannot store " + value.getClass().getSimpleName() + " as a timestamp");
+    }
+
+    private static String json(Object value, ObjectMapper objectMapper) throws JsonProcessingException {
+        return value instanceof String json ? json : objectMapper.writeValueAsString(value);
+    }
+
+    private static void writeText(String value, DataOutputStream out) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Writes numeric's binary format: digit count, weight, sign and display
+     * scale, then the digits in base 10000, most significant first, with the
+     * decimal point between two digits.
+     */
+    private static void writeNumeric(BigDecimal value, DataOutputStream out) throws IOException {
+        int displayScale = Math.max(value.scale(), 0);
+        BigInteger unscaled = value.unscaledValue().abs();
+        int scale = value.scale();
+        if (scale < 0) {
+            unscaled = unscaled.multiply(BigInteger.TEN.pow(-scale));
+            scale = 0;
+        }
+        // Pads the fraction to whole base-10000 digits
+        int padding = (4 - scale % 4) % 4;
+        unscaled = unscaled.multiply(BigInteger.TEN.pow(padding));
+        int fractionDigits = (scale + padding) / 4;
+
+        BigInteger base = BigInteger.valueOf(10_000);
+        List<Short> digits = new ArrayList<>();
+        while (unscaled.signum() > 0) {
+            BigInteger[] quotientAndRemainder = unscaled.divideAndRemainder(base);
+            digits.add(quotientAndRemainder[1].shortValue());
+            unscaled = quotientAndRemainder[0];
+        }
+        int weight = digits.size() - fractionDigits - 1;
+        // Trailing zero digits are implied by the weight
+        int lowest = 0;
+        while (lowest < digits.size() && digits.get(lowest) == 0) {
+            lowest++;
+        }
+        int count = digits.size() - lowest;
+
+        out.writeInt(8 + 2 * count);
+        out.writeShort(count);
+        out.writeShort(count == 0 ? 0 : weight);
+        out.writeShort(value.signum() < 0 ? 0x4000 : 0x0000);
+        out.writeShort(displayScale);
+        for (int i = digits.size() - 1; i >= lowest; i--) {
+            out.writeShort(digits.get(i));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.lending.backend.crud.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lending.backend.common.audit.BaseEntity;
+import com.lending.backend.common.exception.ApiException;
+import com.lending.backend.common.exception.ErrorConstants;
+import jakarta.persistence.PersistenceUnitUtil;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.Type;
+import org.springframework.http.HttpStatus;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.Function;
+
+/**
+ * How an entity's rows are written with binary {@code COPY}: the identifier
+ * and every insertable attribute mapped to a single column, each read from
+ * the entity through Hibernate's mapping and encoded for the column's actual
+ * type. Many-to-one associations are written as the associated id;
+ * collections are left out.
+ */
+final class CopyTable {
+
+    private static final CopyCodec LINE = CopyCodec.forType("int8", null);
+
+    private final String table;
+    private final List<Column> columns;
+
+    /**
+     * What the table declares about a column.
+     *
+     * @param type      the {@code pg_type.typname}
+     * @param notNull   whether the column is {@code NOT NULL}
+     * @param maxLength the length limit of a character column, or {@code -1}
+     */
+    record ColumnType(String type, boolean notNull, int maxLength) {
+    }
+
+    private record Column(String name, Function<Object, Object> accessor, CopyCodec codec) {
+    }
+
+    private CopyTable(String table, List<Column> columns) {
+        this.table = table;
+        this.columns = columns;
+    }
+
+    /**
+     * @param persister   the entity's mapping
+     * @param columnTypes the columns of the table, by lower-case name
+     * @throws ApiException if an attribute cannot be written with COPY
+     */
+    static CopyTable of(AbstractEntityPersister persister, Map<String, ColumnType> columnTypes,
+            PersistenceUnitUtil persistenceUnitUtil, ObjectMapper objectMapper) {
+        String entityName = persister.getMappedClass().getSimpleName();
+        List<Column> columns = new ArrayList<>();
+        columns.add(column(entityName, persister.getIdentifierPropertyName(),
+                persister.getIdentifierColumnNames()[0], entity -> ((BaseEntity) entity).getId(), columnTypes,
+                objectMapper));
+
+        String[] properties = persister.getPropertyNames();
+        Type[] types = persister.getPropertyTypes();
+        boolean[] insertable = persister.getPropertyInsertability();
+        for (int i = 0; i < properties.length; i++) {
+            if (!insertable[i] || types[i].isCollectionType()) {
+                continue;
+            }
+            String[] names = persister.getPropertyColumnNames(i);
+            if (names.length != 1 || names[0] == null) {
+                throw unsupported(entityName, "attribute '" + properties[i] + "' is not mapped to a single column");
+            }
+            int index = i;
+            Function<Object, Object> accessor = types[i].isAssociationType()
+                    ? entity -> {
+                        Object associated = persister.getValue(entity, index);
+                        return associated != null ? persistenceUnitUtil.getIdentifier(associated) : null;
+                    }
+                    : entity -> persister.getValue(entity, index);
+            columns.add(column(entityName, properties[i], names[0], accessor, columnTypes, objectMapper));
+        }
+        return new CopyTable(persister.getTableName(), List.copyOf(columns));
+    }
+
+    private static Column column(String entityName, String attribute, String name,
+            Function<Object, Object> accessor, Map<String, ColumnType> columnTypes, ObjectMapper objectMapper) {
+        ColumnType columnType = columnTypes.get(name.toLowerCase(Locale.ROOT));
+        if (columnType == null) {
+            throw unsupported(entityName, "column '" + name + "' does not exist");
+        }
+        CopyCodec codec = CopyCodec.forType(columnType.type(), objectMapper);
+        if (codec == null) {
+            throw unsupported(entityName, "column '" + name + "' has the unsupported type " + columnType.type());
+        }
+        // A single bad value would otherwise abort the whole COPY instead of rejecting its row
+        CopyCodec checked = (value, out) -> {
+            if (value == null && columnType.notNull()) {
+                throw new IllegalArgumentException("'" + attribute + "' must not be null");
+            }
+            if (value != null && columnType.maxLength() >= 0) {
+                String text = value.toString();
+                if (text.codePointCount(0, text.length()) > columnType.maxLength()) {
+                    throw new IllegalArgumentException(
+                            "'" + attribute + "' is longer than " + columnType.maxLength() + " characters");
+                }
+            }
+            codec.encode(value, out);
+        };
+        return new Column(name, accessor, checked);
+    }
+
+    private static ApiException unsupported(String entityName, String reason) {
+        return new ApiException(HttpStatus.BAD_REQUEST, entityName + " cannot be ingested: " + reason,
+                ErrorConstants.INVALID_REQUEST);
+    }
+
+    String table() {
+        return table;
+    }
+
+    String idColumn() {
+        return columns.get(0).name();
+    }
+
+    /**
+     * @return the comma-separated column names, in encoding order
+     */
+    String columnList() {
+        StringJoiner list = new StringJoiner(", ");
+        columns.forEach(column -> list.add(column.name()));
+        return list.toString();
+    }
+
+    /**
+     * Encodes one row: the entity's columns followed by the line it was read
+     * from, for the staging table's {@code ingest_line} column.
+     */
+    void encode(Object entity, long line, DataOutputStream out) throws IOException {
+        out.writeShort(columns.size() + 1);
+        for (Column column : columns) {
+            column.codec().encode(column.accessor().apply(entity), out);
+        }
+        LINE.encode(line, out);
+    }
+}
@@ -0,0 +1,123 @@
+package com.lending.backend.crud.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV as written by the export: the first record names the
+ * fields, quoted values may contain separators, quotes and line breaks, and
+ * empty values are left out so the entity's defaults apply. Values are kept
+ * as text and converted by Jackson when the row is mapped.
+ */
+class CsvIngestReader implements IngestReader {
+
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+    private final StringBuilder value = new StringBuilder();
+    private List<String> header;
+    private long line = 1;
+    private boolean ended;
+
+    CsvIngestReader(InputStream in, ObjectMapper objectMapper) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public IngestRow next() throws IOException {
+        if (header == null) {
+            header = readRecord();
+            if (header == null) {
+                return null;
+            }
+            // A byte order mark would otherwise become part of the first name
+            if (!header.isEmpty() && header.get(0).startsWith("\uFEFF")) {
+                header.set(0, header.get(0).substring(1));
+            }
+        }
+
+        List<String> values;
+        long start;
+        do {
+            start = line;
+            values = readRecord();
+        } while (values != null && values.size() == 1 && values.get(0).isEmpty());
+        if (values == null) {
+            return null;
+        }
+        if (values.size() != header.size()) {
+            return IngestRow.failed(start, "Expected " + header.size() + " values but found " + values.size());
+        }
+
+        ObjectNode row = objectMapper.createObjectNode();
+        for (int i = 0; i < values.size(); i++) {
+            if (!values.get(i).isEmpty()) {
+                row.put(header.get(i), values.get(i));
+            }
+        }
+        return IngestRow.of(start, row);
+    }
+
+    /**
+     * @return the values of the next record, or {@code null} at the end
+     */
+    private List<String> readRecord() throws IOException {
+        if (ended) {
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        value.setLength(0);
+        boolean quoted = false;
+        boolean any = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        value.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    value.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else if (c == '\n') {
+                line++;
+                values.add(value.toString());
+                return values;
+            } else if (c != '\r') {
+                value.append((char) c);
+            }
+        }
+        ended = true;
+        if (!any) {
+            return null;
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
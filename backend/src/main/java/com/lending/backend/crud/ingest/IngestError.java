@@ -0,0 +1,10 @@
+package com.lending.backend.crud.ingest;
+
+/**
+ * A row that was not loaded.
+ *
+ * @param line    the line of the file the row starts on
+ * @param message why the row was rejected
+ */
+public record IngestError(long line, String message) {
+}
@@ -0,0 +1,41 @@
+package com.lending.backend.crud.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lending.backend.common.exception.ApiException;
+import com.lending.backend.common.exception.ErrorConstants;
+import org.springframework.http.HttpStatus;
+
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * Input formats of the bulk ingestion, matching the export formats.
+ */
+public enum IngestFormat {
+    NDJSON,
+    CSV;
+
+    /**
+     * Opens a reader of this format on the input stream.
+     */
+    public IngestReader open(InputStream in, ObjectMapper objectMapper) {
+        return switch (this) {
+            case NDJSON -> new NdjsonIngestReader(in, objectMapper);
+            case CSV -> new CsvIngestReader(in, objectMapper);
+        };
+    }
+
+    /**
+     * Parses the {@code format} request parameter.
+     *
+     * @throws ApiException if the value is not a known format
+     */
+    public static IngestFormat fromParameter(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new ApiException(HttpStatus.BAD_REQUEST,
+                    "Unknown ingest format '" + value + "', expected ndjson or csv", ErrorConstants.INVALID_REQUEST);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.lending.backend.crud.ingest;
+
+import java.io.IOException;
+
+/**
+ * Reads ingested rows one at a time from an input stream. Implementations
+ * keep no rows in memory; closing the reader closes the stream.
+ */
+public interface IngestReader extends AutoCloseable {
+
+    /**
+     * @return the next row, or {@code null} at the end of the input
+     * @throws IOException if the input cannot be read any further
+     */
+    IngestRow next() throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,23 @@
+package com.lending.backend.crud.ingest;
+
+import java.util.List;
+
+/**
+ * The outcome of a bulk ingestion.
+ *
+ * @param rows            the rows read from the input
+ * @param loaded          the rows inserted into the entity's table
+ * @param rejected        the rows that failed parsing, mapping, validation
+ *                        or a unique constraint
+ * @param errors          the first rejected rows with their reasons, in line
+ *                        order, at most {@code crud.ingest.max-reported-errors}
+ * @param errorsTruncated whether more rows were rejected than reported
+ * @param elapsedMillis   how long the ingestion took
+ */
+public record IngestResult(long rows, long loaded, long rejected, List<IngestError> errors, boolean errorsTruncated,
+        long elapsedMillis) {
+
+    public IngestResult {
+        errors = List.copyOf(errors);
+    }
+}
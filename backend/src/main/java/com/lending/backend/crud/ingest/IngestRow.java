@@ -0,0 +1,21 @@
+package com.lending.backend.crud.ingest;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * One row of an ingested file, as the JSON object it is mapped from.
+ *
+ * @param line   the line of the file the row starts on
+ * @param values the row's fields, or {@code null} if it could not be parsed
+ * @param error  why the row could not be parsed, or {@code null}
+ */
+public record IngestRow(long line, ObjectNode values, String error) {
+
+    static IngestRow of(long line, ObjectNode values) {
+        return new IngestRow(line, values, null);
+    }
+
+    static IngestRow failed(long line, String error) {
+        return new IngestRow(line, null, error);
+    }
+}
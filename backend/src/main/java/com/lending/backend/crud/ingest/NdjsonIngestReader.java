@@ -0,0 +1,53 @@
+package com.lending.backend.crud.ingest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads one JSON object per line. Blank lines are skipped; a line that is
+ * not a JSON object fails on its own without ending the input.
+ */
+class NdjsonIngestReader implements IngestReader {
+
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+    private long line;
+
+    NdjsonIngestReader(InputStream in, ObjectMapper objectMapper) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public IngestRow next() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            line++;
+        } while (text != null && text.isBlank());
+        if (text == null) {
+            return null;
+        }
+
+        try {
+            JsonNode node = objectMapper.readTree(text);
+            return node instanceof ObjectNode object ? IngestRow.of(line, object)
+                    : IngestRow.failed(line, "Expected a JSON object");
+        } catch (JsonProcessingException e) {
+            return IngestRow.failed(line, "Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,63 @@
+package com.lending.backend.crud.registry;
+
+import com.lending.backend.crud.annotations.CrudEntity;
+import org.reflections.Reflections;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Runtime index of the classes annotated with {@link CrudEntity}, keyed by
+ * entity name (the annotation's {@code value}, or the simple class name).
+ * The classpath is scanned once at startup and does not depend on JPA being
+ * bootstrapped.
+ */
+@Component
+public class CrudEntityRegistry {
+
+    public static final String BASE_PACKAGE = "com.lending.backend";
+
+    private static final Logger logger = LoggerFactory.getLogger(CrudEntityRegistry.class);
+
+    private final Map<String, Class<?>> entities;
+
+    public CrudEntityRegistry() {
+        Map<String, Class<?>> found = new LinkedHashMap<>();
+        for (Class<?> entityClass : new Reflections(BASE_PACKAGE).getTypesAnnotatedWith(CrudEntity.class)) {
+            found.put(entityNameOf(entityClass), entityClass);
+        }
+        this.entities = Collections.unmodifiableMap(found);
+        logger.info("Registered {} CRUD entities: {}", entities.size(), entities.keySet());
+    }
+
+    /**
+     * Returns the entity name used for caches, permissions and audit records.
+     *
+     * @param entityClass a class annotated with {@link CrudEntity}
+     * @return the entity name
+     */
+    public static String entityNameOf(Class<?> entityClass) {
+        CrudEntity annotation = entityClass.getAnnotation(CrudEntity.class);
+        if (annotation != null && !annotation.value().isEmpty()) {
+            return annotation.value();
+        }
+        return entityClass.getSimpleName();
+    }
+
+    public Map<String, Class<?>> getEntities() {
+        return entities;
+    }
+
+    public Optional<Class<?>> findEntityClass(String entityName) {
+        return Optional.ofNullable(entities.get(entityName));
+    }
+
+    public Optional<CrudEntity> findAnnotation(String entityName) {
+        return findEntityClass(entityName).map(entityClass -> entityClass.getAnnotation(CrudEntity.class));
+    }
+}
@@ -2,9 +2,30 @@ package com.lending.backend.crud.repository;
 
 import com.lending.backend.crud.entity.AuditTrail;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface AuditTrailRepository extends JpaRepository<AuditTrail, UUID> {
-}
\ No newline at end of file
+
+    /**
+     * Returns the entries that changed an entity, in the order they were
+     * made, up to a version and a time. Entries written before versions were
+     * recorded come first.
+     *
+     * @param tenantId only entries of this tenant, or {@code null} for all
+     */
+    @Query("SELECT a FROM AuditTrail a WHERE a.entityName = :entityName AND a.entityId = :entityId"
+            + " AND a.operation <> com.lending.backend.crud.entity.AuditTrail.Operation.VIEW"
+            + " AND (:tenantId IS NULL OR a.tenantId = :tenantId)"
+            + " AND (:version IS NULL OR a.entityVersion <= :version)"
+            + " AND (:asOf IS NULL OR a.createdAt <= :asOf)"
+            + " ORDER BY a.entityVersion NULLS FIRST, a.createdAt")
+    List<AuditTrail> findChanges(@Param("entityName") String entityName, @Param("entityId") String entityId,
+            @Param("tenantId") String tenantId, @Param("version") Long version, @Param("asOf") Instant asOf);
+}
@@ -0,0 +1,22 @@
+package com.lending.backend.crud.repository;
+
+import com.lending.backend.crud.entity.BulkJobChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface BulkJobChunkRepository extends JpaRepository<BulkJobChunk, UUID> {
+
+    Optional<BulkJobChunk> findByJobIdAndChunkIndex(UUID jobId, int chunkIndex);
+
+    // A bulk delete, so the payload is removed rather than soft-deleted
+    @Modifying
+    @Query("DELETE FROM BulkJobChunk c WHERE c.id = :id")
+    void purge(@Param("id") UUID id);
+}
@@ -0,0 +1,15 @@
+package com.lending.backend.crud.repository;
+
+import com.lending.backend.crud.entity.BulkJobError;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface BulkJobErrorRepository extends JpaRepository<BulkJobError, UUID> {
+
+    Page<BulkJobError> findByJobIdOrderByRowIndex(UUID jobId, Pageable pageable);
+}
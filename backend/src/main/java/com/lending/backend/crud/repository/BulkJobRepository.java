@@ -0,0 +1,11 @@
+package com.lending.backend.crud.repository;
+
+import com.lending.backend.crud.entity.BulkJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface BulkJobRepository extends JpaRepository<BulkJob, UUID> {
+}
@@ -0,0 +1,93 @@
+package com.lending.backend.crud.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lending.backend.common.dto.CountMode;
+import com.lending.backend.config.CrudProperties;
+import com.lending.backend.crud.util.FilterCriterion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Estimates row counts from PostgreSQL's planner statistics instead of
+ * counting. Unfiltered tables use {@code pg_class.reltuples}, which is
+ * maintained by autovacuum; filtered queries use the row estimate of the
+ * planner for the rendered condition, which costs a plan but no scan.
+ */
+@Component
+public class CountEstimator {
+
+    private static final Logger logger = LoggerFactory.getLogger(CountEstimator.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final QuerySqlRenderer sqlRenderer;
+    private final ObjectMapper objectMapper;
+    private final CrudProperties.Paging properties;
+
+    public CountEstimator(JdbcTemplate jdbcTemplate, QuerySqlRenderer sqlRenderer, ObjectMapper objectMapper,
+            CrudProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sqlRenderer = sqlRenderer;
+        this.objectMapper = objectMapper;
+        this.properties = properties.getPaging();
+    }
+
+    /**
+     * @return the count mode used when a request does not choose one
+     */
+    public CountMode getDefaultMode() {
+        return properties.getDefaultCountMode();
+    }
+
+    /**
+     * @return whether an estimate is too small to be worth keeping instead of
+     *         an exact count, which is cheap at that size
+     */
+    public boolean isBelowExactThreshold(long estimate) {
+        return estimate < properties.getExactCountThreshold();
+    }
+
+    /**
+     * Estimates how many rows of the entity match the criteria.
+     *
+     * @return the estimate, or empty if the criteria cannot be rendered to SQL
+     *         or the table has no statistics yet
+     */
+    public OptionalLong estimate(Class<?> entityClass, List<FilterCriterion> criteria) {
+        try {
+            return criteria.isEmpty() ? tableEstimate(entityClass) : plannerEstimate(entityClass, criteria);
+        } catch (Exception e) {
+            logger.debug("Could not estimate the row count of {}", entityClass.getSimpleName(), e);
+            return OptionalLong.empty();
+        }
+    }
+
+    private OptionalLong tableEstimate(Class<?> entityClass) {
+        Optional<String> table = sqlRenderer.tableOf(entityClass);
+        if (table.isEmpty()) {
+            return OptionalLong.empty();
+        }
+        Long reltuples = jdbcTemplate.queryForObject(
+                "SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass(?)", Long.class, table.get());
+        // -1 until the table has been vacuumed or analyzed
+        return reltuples != null && reltuples >= 0 ? OptionalLong.of(reltuples) : OptionalLong.empty();
+    }
+
+    private OptionalLong plannerEstimate(Class<?> entityClass, List<FilterCriterion> criteria) throws Exception {
+        Optional<QuerySqlRenderer.RenderedQuery> rendered = sqlRenderer.render(entityClass, criteria);
+        if (rendered.isEmpty()) {
+            return OptionalLong.empty();
+        }
+        String sql = "EXPLAIN (FORMAT JSON) SELECT 1 FROM " + rendered.get().table()
+                + " WHERE " + rendered.get().where();
+        String plan = jdbcTemplate.queryForObject(sql, String.class, rendered.get().parameters().toArray());
+        JsonNode rows = objectMapper.readTree(plan).path(0).path("Plan").path("Plan Rows");
+        return rows.isNumber() ? OptionalLong.of(rows.asLong()) : OptionalLong.empty();
+    }
+}
@@ -0,0 +1,208 @@
+package com.lending.backend.crud.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lending.backend.common.exception.ApiException;
+import com.lending.backend.common.exception.ErrorConstants;
+import com.lending.backend.config.CrudProperties;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaDelete;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Writes many entities without holding all of them in the persistence
+ * context.
+ * <p>
+ * New entities are persisted {@code crud.bulk.batch-size} at a time; each
+ * chunk is flushed, which Hibernate sends as one JDBC batch that pgjdbc
+ * rewrites into multi-row {@code INSERT}s, and then cleared. Changes to
+ * existing rows are issued as a single set-based {@code UPDATE} or
+ * {@code DELETE} for every row matching a specification, without loading
+ * them; entity listeners, Envers and the persistence context are bypassed.
+ * <p>
+ * Must run within a transaction. Clearing detaches every managed entity of
+ * the persistence context, not only the inserted ones.
+ */
+@Component
+public class EntityBatchWriter {
+
+    // Maintained by the framework, never patched in bulk
+    private static final Set<String> MANAGED_ATTRIBUTES = Set.of("id", "version", "createdAt", "createdBy",
+            "lastModifiedAt", "lastModifiedBy", "isDeleted", "deletedAt", "deletedBy", "branchId");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int batchSize;
+
+    public EntityBatchWriter(ObjectMapper objectMapper, Validator validator, CrudProperties properties) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.batchSize = properties.getBulk().getBatchSize();
+    }
+
+    /**
+     * Returns the number of entities written per JDBC batch and flush.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Persists the entities in order, passing each flushed chunk to the
+     * callback before it is detached.
+     *
+     * @param entities   new entities, without ids
+     * @param afterChunk called with each chunk once it is written
+     */
+    public <T> void persistAll(List<T> entities, Consumer<List<T>> afterChunk) {
+        for (int from = 0; from < entities.size(); from += batchSize) {
+            List<T> chunk = List.copyOf(entities.subList(from, Math.min(from + batchSize, entities.size())));
+            chunk.forEach(entityManager::persist);
+            entityManager.flush();
+            afterChunk.accept(chunk);
+            entityManager.clear();
+        }
+    }
+
+    /**
+     * Converts patch values to their attributes' types the way a JSON body is
+     * read, and validates them against the attributes' constraints.
+     *
+     * @param changes new values by attribute name
+     * @return the converted values, in the given order
+     * @throws ApiException if an attribute cannot be patched or a value is
+     *                      invalid
+     */
+    public Map<String, Object> convertChanges(Class<?> entityClass, Map<String, Object> changes) {
+        if (changes == null || changes.isEmpty()) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "No changes given", ErrorConstants.INVALID_REQUEST);
+        }
+        EntityType<?> entityType = entityManager.getMetamodel().entity(entityClass);
+        Map<String, Object> converted = new LinkedHashMap<>();
+        List<String> errors = new ArrayList<>();
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            String field = change.getKey();
+            Attribute<?, ?> attribute;
+            try {
+                attribute = entityType.getAttribute(field);
+            } catch (IllegalArgumentException e) {
+                attribute = null;
+            }
+            if (attribute == null || MANAGED_ATTRIBUTES.contains(field)
+                    || attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC) {
+                throw new ApiException(HttpStatus.BAD_REQUEST, "Field '" + field + "' cannot be patched in bulk",
+                        ErrorConstants.INVALID_REQUEST);
+            }
+            Object value;
+            try {
+                value = objectMapper.convertValue(change.getValue(), attribute.getJavaType());
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(HttpStatus.BAD_REQUEST,
+                        "Invalid value for '" + field + "': " + e.getMessage(), ErrorConstants.INVALID_REQUEST);
+            }
+            for (ConstraintViolation<?> violation : validator.validateValue(entityClass, field, value)) {
+                errors.add(field + " " + violation.getMessage());
+            }
+            converted.put(field, value);
+        }
+        if (!errors.isEmpty()) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, String.join("; ", errors),
+                    ErrorConstants.VALIDATION_ERROR);
+        }
+        return converted;
+    }
+
+    /**
+     * Sets the converted values on every row matching the specification,
+     * touching the modification fields and the version so that concurrent
+     * edits of the affected rows fail their optimistic lock.
+     *
+     * @param changes values from {@link #convertChanges}
+     * @param userId  the user recorded as last modifier
+     * @return the number of updated rows
+     */
+    public <T> int updateAll(Class<T> entityClass, Specification<T> specification, Map<String, Object> changes,
+            String userId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<T> update = cb.createCriteriaUpdate(entityClass);
+        Root<T> root = update.from(entityClass);
+        changes.forEach((field, value) -> update.set(root.get(field), value));
+        touch(update, root, cb, userId);
+        return where(update, root, cb, specification).executeUpdate();
+    }
+
+    /**
+     * Marks every row matching the specification as deleted.
+     *
+     * @return the number of deleted rows
+     */
+    public <T> int softDeleteAll(Class<T> entityClass, Specification<T> specification, String userId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<T> update = cb.createCriteriaUpdate(entityClass);
+        Root<T> root = update.from(entityClass);
+        Instant now = Instant.now();
+        update.set(root.<Boolean>get("isDeleted"), true);
+        update.set(root.<Instant>get("deletedAt"), now);
+        update.set(root.<String>get("deletedBy"), userId);
+        touch(update, root, cb, userId);
+        return where(update, root, cb, specification).executeUpdate();
+    }
+
+    /**
+     * Deletes every row matching the specification.
+     *
+     * @return the number of deleted rows
+     */
+    public <T> int deleteAll(Class<T> entityClass, Specification<T> specification) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaDelete<T> delete = cb.createCriteriaDelete(entityClass);
+        Root<T> root = delete.from(entityClass);
+        // Mutation queries have no CriteriaQuery; the specifications do not need one
+        Predicate predicate = specification.toPredicate(root, null, cb);
+        if (predicate != null) {
+            delete.where(predicate);
+        }
+        return entityManager.createQuery(delete).executeUpdate();
+    }
+
+    private static <T> void touch(CriteriaUpdate<T> update, Root<T> root, CriteriaBuilder cb, String userId) {
+        update.set(root.<Instant>get("lastModifiedAt"), Instant.now());
+        update.set(root.<String>get("lastModifiedBy"), userId);
+        if (root.getModel().hasVersionAttribute()) {
+            SingularAttribute<? super T, Long> version = root.getModel().getVersion(Long.class);
+            update.set(root.get(version), cb.sum(root.get(version), 1L));
+        }
+    }
+
+    private <T> Query where(CriteriaUpdate<T> update, Root<T> root, CriteriaBuilder cb,
+            Specification<T> specification) {
+        Predicate predicate = specification.toPredicate(root, null, cb);
+        if (predicate != null) {
+            update.where(predicate);
+        }
+        return entityManager.createQuery(update);
+    }
+}
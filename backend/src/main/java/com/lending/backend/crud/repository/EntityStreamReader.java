@@ -0,0 +1,77 @@
+package com.lending.backend.crud.repository;
+
+import com.lending.backend.config.CrudProperties;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Reads entities matching a specification through a forward-only JDBC cursor
+ * without ever holding more than one fetch of them. Rows are read read-only,
+ * so Hibernate keeps no dirty-checking snapshots, and the persistence context
+ * is cleared after every fetch so hydrated entities can be collected.
+ * <p>
+ * Must run within a transaction: PostgreSQL only streams with a cursor when
+ * auto-commit is off, and otherwise buffers the whole result.
+ */
+@Component
+public class EntityStreamReader {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final int fetchSize;
+
+    public EntityStreamReader(CrudProperties properties) {
+        this.fetchSize = properties.getExport().getFetchSize();
+    }
+
+    /**
+     * Passes every matching entity to the action, in order. Rows are fetched
+     * {@code crud.export.fetch-size} at a time.
+     *
+     * @return the number of entities read
+     */
+    public <T> long forEach(Class<T> entityClass, Specification<T> specification, Sort sort,
+            Consumer<? super T> action) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(entityClass);
+        Root<T> root = query.from(entityClass);
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+
+        TypedQuery<T> typedQuery = entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+
+        long count = 0;
+        try (Stream<T> stream = typedQuery.getResultStream()) {
+            Iterator<T> rows = stream.iterator();
+            while (rows.hasNext()) {
+                action.accept(rows.next());
+                if (++count % fetchSize == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        return count;
+    }
+}
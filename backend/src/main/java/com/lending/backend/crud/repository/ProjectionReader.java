@@ -0,0 +1,182 @@
+package com.lending.backend.crud.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lending.backend.common.exception.ApiException;
+import com.lending.backend.common.exception.ErrorConstants;
+import com.lending.backend.crud.util.ProjectionPlan;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Plans and runs sparse fieldset queries: only the requested columns are
+ * selected, as a JPA tuple query, and rows are returned as maps from
+ * attribute name to value. Nothing is hydrated into entities, and a query
+ * whose columns are all covered by an index can be answered by an index-only
+ * scan.
+ * <p>
+ * Requested fields are validated against the entity metamodel; only basic
+ * attributes can be selected. Plans are cached per entity and field set.
+ */
+@Component
+public class ProjectionReader {
+
+    private static final String ID = "id";
+
+    // Bounds the plans kept for arbitrary client supplied field sets
+    private static final int MAX_CACHED_PLANS = 1024;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Cache<PlanKey, ProjectionPlan> plans = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_PLANS)
+            .build();
+
+    /**
+     * Parses and validates a {@code fields} request parameter.
+     *
+     * @param fields comma separated attribute names
+     * @return the plan, or {@code null} if no fields are requested
+     * @throws ApiException if a field is not a selectable attribute
+     */
+    public ProjectionPlan plan(Class<?> entityClass, String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        return plan(entityClass, Arrays.asList(fields.split(",")));
+    }
+
+    /**
+     * @throws ApiException if a field is not a selectable attribute
+     */
+    public ProjectionPlan plan(Class<?> entityClass, Collection<String> fields) {
+        TreeSet<String> normalized = new TreeSet<>();
+        fields.stream().map(String::trim).filter(field -> !field.isEmpty()).forEach(normalized::add);
+        normalized.remove(ID);
+        return plans.get(new PlanKey(entityClass, List.copyOf(normalized)), this::resolve);
+    }
+
+    /**
+     * Reads one page of projected rows, fetching one extra row to tell whether
+     * another page follows.
+     */
+    public <T> Slice<Map<String, Object>> slice(Class<T> entityClass, ProjectionPlan plan,
+            Specification<T> specification, Pageable pageable) {
+        TypedQuery<Tuple> query = createQuery(entityClass, plan, specification, pageable.getSort());
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(toMaps(plan, query.getResultList()), pageable, false);
+        }
+
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize() + 1);
+        List<Map<String, Object>> rows = toMaps(plan, query.getResultList());
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    /**
+     * Reads at most {@code limit} projected rows in the given order.
+     */
+    public <T> List<Map<String, Object>> list(Class<T> entityClass, ProjectionPlan plan,
+            Specification<T> specification, Sort sort, int limit) {
+        return toMaps(plan, createQuery(entityClass, plan, specification, sort).setMaxResults(limit).getResultList());
+    }
+
+    /**
+     * Reads the single projected row matching the specification.
+     */
+    public <T> Optional<Map<String, Object>> findOne(Class<T> entityClass, ProjectionPlan plan,
+            Specification<T> specification) {
+        List<Map<String, Object>> rows = list(entityClass, plan, specification, Sort.unsorted(), 1);
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
+    }
+
+    private ProjectionPlan resolve(PlanKey key) {
+        EntityType<?> entityType = entityManager.getMetamodel().entity(key.entityClass());
+        List<String> fields = new ArrayList<>(key.fields().size() + 1);
+        fields.add(ID);
+        for (String field : key.fields()) {
+            Attribute<?, ?> attribute;
+            try {
+                attribute = entityType.getAttribute(field);
+            } catch (IllegalArgumentException e) {
+                throw invalidField(field, entityType);
+            }
+            if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC) {
+                throw invalidField(field, entityType);
+            }
+            fields.add(field);
+        }
+        return new ProjectionPlan(fields);
+    }
+
+    private <T> TypedQuery<Tuple> createQuery(Class<T> entityClass, ProjectionPlan plan,
+            Specification<T> specification, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(entityClass);
+
+        List<Selection<?>> selections = new ArrayList<>(plan.fields().size());
+        for (String field : plan.fields()) {
+            selections.add(root.get(field).alias(field));
+        }
+        query.multiselect(selections);
+
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+        return entityManager.createQuery(query);
+    }
+
+    private List<Map<String, Object>> toMaps(ProjectionPlan plan, List<Tuple> tuples) {
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : plan.fields()) {
+                row.put(field, tuple.get(field));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static ApiException invalidField(String field, EntityType<?> entityType) {
+        return new ApiException(HttpStatus.BAD_REQUEST,
+                "Unknown or non-selectable field '" + field + "' of " + entityType.getName(),
+                ErrorConstants.INVALID_REQUEST);
+    }
+
+    private record PlanKey(Class<?> entityClass, List<String> fields) {
+    }
+}
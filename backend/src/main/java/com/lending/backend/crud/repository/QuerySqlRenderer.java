@@ -0,0 +1,197 @@
+package com.lending.backend.crud.repository;
+
+import com.lending.backend.crud.util.AttributeValueConverter;
+import com.lending.backend.crud.util.FilterCriterion;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.StringJoiner;
+
+/**
+ * Renders filter criteria into plain SQL against an entity's table, for
+ * statements that Hibernate does not issue itself, such as {@code EXPLAIN}
+ * for planner estimates. Table and column names come from Hibernate's mapping
+ * and values are bound as parameters converted to the attribute's type.
+ * <p>
+ * Only criteria on basic attributes of the entity's own table are rendered;
+ * anything else yields an empty result so callers can fall back to JPA.
+ */
+@Component
+public class QuerySqlRenderer {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public QuerySqlRenderer(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * A rendered {@code WHERE} clause.
+     *
+     * @param table      the entity's table
+     * @param where      the condition, {@code TRUE} when there are no criteria
+     * @param parameters the values of the condition's placeholders
+     */
+    public record RenderedQuery(String table, String where, List<Object> parameters) {
+    }
+
+    /**
+     * @return the table the entity is mapped to, if it has a single one
+     */
+    public Optional<String> tableOf(Class<?> entityClass) {
+        return persisterOf(entityClass).map(AbstractEntityPersister::getTableName);
+    }
+
+    /**
+     * @return the column a basic attribute is mapped to, if it is a single one
+     */
+    public Optional<String> columnOf(Class<?> entityClass, String field) {
+        return persisterOf(entityClass).map(persister -> columnOf(persister, field));
+    }
+
+    /**
+     * Renders a sort as an {@code ORDER BY} clause with a leading space, or
+     * as an empty string when unsorted.
+     *
+     * @return the clause, or empty if a sort property has no single column
+     */
+    public Optional<String> orderBy(Class<?> entityClass, Sort sort) {
+        StringJoiner orderBy = new StringJoiner(", ", " ORDER BY ", "").setEmptyValue("");
+        for (Sort.Order order : sort) {
+            Optional<String> column = columnOf(entityClass, order.getProperty());
+            if (column.isEmpty()) {
+                return Optional.empty();
+            }
+            orderBy.add(column.get() + (order.isAscending() ? " ASC" : " DESC"));
+        }
+        return Optional.of(orderBy.toString());
+    }
+
+    /**
+     * Renders the conjunction of the criteria.
+     *
+     * @return the rendered query, or empty if a criterion cannot be rendered
+     */
+    public Optional<RenderedQuery> render(Class<?> entityClass, List<FilterCriterion> criteria) {
+        Optional<AbstractEntityPersister> persister = persisterOf(entityClass);
+        if (persister.isEmpty()) {
+            return Optional.empty();
+        }
+
+        EntityType<?> entityType = entityManagerFactory.getMetamodel().entity(entityClass);
+        StringJoiner where = new StringJoiner(" AND ");
+        List<Object> parameters = new ArrayList<>();
+        for (FilterCriterion criterion : criteria) {
+            String condition = renderCriterion(persister.get(), entityType, criterion, parameters);
+            if (condition == null) {
+                return Optional.empty();
+            }
+            where.add(condition);
+        }
+        return Optional.of(new RenderedQuery(persister.get().getTableName(),
+                criteria.isEmpty() ? "TRUE" : where.toString(), parameters));
+    }
+
+    private String renderCriterion(AbstractEntityPersister persister, EntityType<?> entityType,
+            FilterCriterion criterion, List<Object> parameters) {
+        Attribute<?, ?> attribute;
+        try {
+            attribute = entityType.getAttribute(criterion.field());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        Class<?> type = attribute.getJavaType();
+        String column = columnOf(persister, criterion.field());
+        if (column == null || attribute.isAssociation() || attribute.isCollection()
+                || type.isEnum() || !AttributeValueConverter.supports(type)) {
+            return null;
+        }
+
+        try {
+            switch (criterion.operator()) {
+                case LIKE:
+                    parameters.add("%" + criterion.value().toString().toLowerCase() + "%");
+                    return "lower(" + column + ") LIKE ?";
+                case EQ:
+                    return comparison(column, "=", criterion.value(), type, parameters);
+                case NE:
+                    return comparison(column, "<>", criterion.value(), type, parameters);
+                case GT:
+                    return comparison(column, ">", criterion.value(), type, parameters);
+                case GTE:
+                    return comparison(column, ">=", criterion.value(), type, parameters);
+                case LT:
+                    return comparison(column, "<", criterion.value(), type, parameters);
+                case LTE:
+                    return comparison(column, "<=", criterion.value(), type, parameters);
+                case IN:
+                    StringJoiner placeholders = new StringJoiner(", ", column + " IN (", ")");
+                    for (Object value : criterion.values()) {
+                        parameters.add(bindable(AttributeValueConverter.convert(value, type)));
+                        placeholders.add("?");
+                    }
+                    return placeholders.toString();
+                case BETWEEN:
+                    parameters.add(bindable(AttributeValueConverter.convert(criterion.values().get(0), type)));
+                    parameters.add(bindable(AttributeValueConverter.convert(criterion.values().get(1), type)));
+                    return column + " BETWEEN ? AND ?";
+                case SEARCH:
+                    return null;
+                default:
+                    if (type == String.class) {
+                        parameters.add("%" + criterion.value().toString().toLowerCase() + "%");
+                        return "lower(" + column + ") LIKE ?";
+                    }
+                    return comparison(column, "=", criterion.value(), type, parameters);
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private String comparison(String column, String operator, Object value, Class<?> type,
+            List<Object> parameters) {
+        parameters.add(bindable(AttributeValueConverter.convert(value, type)));
+        return column + " " + operator + " ?";
+    }
+
+    // The JDBC driver binds OffsetDateTime but not Instant
+    private Object bindable(Object value) {
+        return value instanceof Instant instant ? instant.atOffset(ZoneOffset.UTC) : value;
+    }
+
+    private String columnOf(AbstractEntityPersister persister, String field) {
+        try {
+            String[] columns = field.equals(persister.getIdentifierPropertyName())
+                    ? persister.getIdentifierColumnNames()
+                    : persister.getPropertyColumnNames(field);
+            return columns != null && columns.length == 1 ? columns[0] : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private Optional<AbstractEntityPersister> persisterOf(Class<?> entityClass) {
+        try {
+            EntityPersister persister = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                    .getMappingMetamodel()
+                    .getEntityDescriptor(entityClass);
+            return persister instanceof AbstractEntityPersister abstractPersister
+                    ? Optional.of(abstractPersister)
+                    : Optional.empty();
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.lending.backend.crud.search;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.BasicTypeRegistry;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registers the PostgreSQL search functions used by search predicates, so
+ * criteria queries render exactly the expressions that
+ * {@link SearchIndexMigration} indexes. Registered through
+ * {@code META-INF/services}.
+ */
+public class SearchFunctions implements FunctionContributor {
+
+    /**
+     * {@code fts_match(text, tsquery text)}: whether the text's
+     * {@code simple} tsvector matches the query.
+     */
+    public static final String FTS_MATCH = "fts_match";
+
+    /**
+     * {@code fts_rank(text, tsquery text)}: the {@code ts_rank} of the match.
+     */
+    public static final String FTS_RANK = "fts_rank";
+
+    /**
+     * {@code trgm_similarity(text, text)}: the {@code pg_trgm} similarity.
+     */
+    public static final String TRGM_SIMILARITY = "trgm_similarity";
+
+    /**
+     * The text search configuration of indexes and queries. {@code simple}
+     * neither stems nor drops stop words, which suits names and numbers.
+     */
+    static final String TEXT_SEARCH_CONFIG = "simple";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        BasicTypeRegistry types = functionContributions.getTypeConfiguration().getBasicTypeRegistry();
+        functionContributions.getFunctionRegistry().registerPattern(FTS_MATCH,
+                "(to_tsvector('" + TEXT_SEARCH_CONFIG + "', ?1) @@ to_tsquery('" + TEXT_SEARCH_CONFIG + "', ?2))",
+                types.resolve(StandardBasicTypes.BOOLEAN));
+        functionContributions.getFunctionRegistry().registerPattern(FTS_RANK,
+                "ts_rank(to_tsvector('" + TEXT_SEARCH_CONFIG + "', ?1), to_tsquery('" + TEXT_SEARCH_CONFIG
+                        + "', ?2))",
+                types.resolve(StandardBasicTypes.DOUBLE));
+        functionContributions.getFunctionRegistry().registerPattern(TRGM_SIMILARITY, "similarity(?1, ?2)",
+                types.resolve(StandardBasicTypes.DOUBLE));
+    }
+}
@@ -0,0 +1,245 @@
+package com.lending.backend.crud.search;
+
+import com.lending.backend.crud.annotations.CrudEntity;
+import com.lending.backend.crud.annotations.SearchMode;
+import com.lending.backend.crud.registry.CrudEntityRegistry;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Repeatable Flyway migration that maintains the GIN indexes behind entity
+ * search: one index per {@link CrudEntity#searchableFields() searchable
+ * field}, a {@code pg_trgm} index on {@code lower(column)} or a
+ * {@code tsvector} index depending on the entity's {@link SearchMode}.
+ * <p>
+ * The checksum is derived from the index definitions, so Flyway runs the
+ * migration again whenever an annotation changes. Indexes are built
+ * {@code CONCURRENTLY}, outside a transaction, so writes are not blocked on
+ * large tables; indexes of this migration that are no longer wanted, or were
+ * left invalid by an interrupted build, are dropped first. Spring Boot picks
+ * the migration up as a {@link JavaMigration} bean.
+ */
+@Component
+public class SearchIndexMigration implements JavaMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexMigration.class);
+
+    private static final String INDEX_PREFIX = "crud_search_";
+
+    // LIKE pattern of the prefix, with the underscores escaped
+    private static final String INDEX_PATTERN = "crud\\_search\\_%";
+
+    // PostgreSQL truncates longer identifiers, which would break the lookup of existing indexes
+    private static final int MAX_IDENTIFIER_LENGTH = 63;
+
+    private final List<SearchIndex> indexes;
+
+    public SearchIndexMigration(CrudEntityRegistry entityRegistry) {
+        this.indexes = new ArrayList<>();
+        for (Class<?> entityClass : entityRegistry.getEntities().values()) {
+            indexes.addAll(indexesOf(entityClass));
+        }
+    }
+
+    @Override
+    public MigrationVersion getVersion() {
+        // Repeatable
+        return null;
+    }
+
+    @Override
+    public String getDescription() {
+        return "crud search indexes";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        CRC32 crc = new CRC32();
+        indexes.forEach(index -> crc.update(index.ddl().getBytes(StandardCharsets.UTF_8)));
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        if (indexes.stream().anyMatch(index -> index.mode() == SearchMode.TRIGRAM)) {
+            execute(connection, "CREATE EXTENSION IF NOT EXISTS pg_trgm");
+        }
+
+        Map<String, List<SearchIndex>> byTable = indexes.stream()
+                .collect(Collectors.groupingBy(SearchIndex::table, LinkedHashMap::new, Collectors.toList()));
+        for (String table : tablesWithIndexes(connection)) {
+            byTable.putIfAbsent(table, List.of());
+        }
+
+        for (Map.Entry<String, List<SearchIndex>> entry : byTable.entrySet()) {
+            String table = entry.getKey();
+            if (!tableExists(connection, table)) {
+                logger.warn("Skipping search indexes of missing table {}.", table);
+                continue;
+            }
+            Set<String> wanted = entry.getValue().stream().map(SearchIndex::name).collect(Collectors.toSet());
+            for (String stale : staleIndexes(connection, table, wanted)) {
+                logger.info("Dropping search index {}.", stale);
+                execute(connection, "DROP INDEX CONCURRENTLY IF EXISTS " + qualified(table, stale));
+            }
+            for (SearchIndex index : entry.getValue()) {
+                execute(connection, index.ddl());
+            }
+        }
+    }
+
+    private List<SearchIndex> indexesOf(Class<?> entityClass) {
+        CrudEntity annotation = entityClass.getAnnotation(CrudEntity.class);
+        if (annotation == null || annotation.searchableFields().length == 0) {
+            return List.of();
+        }
+
+        String table = tableOf(entityClass);
+        List<SearchIndex> entityIndexes = new ArrayList<>();
+        for (String fieldName : annotation.searchableFields()) {
+            Field field = ReflectionUtils.findField(entityClass, fieldName);
+            if (field == null || field.getType() != String.class) {
+                throw new IllegalStateException("Searchable field " + fieldName + " of "
+                        + entityClass.getSimpleName() + " is not a text field");
+            }
+            Column column = field.getAnnotation(Column.class);
+            String columnName = physicalName(column != null && !column.name().isEmpty() ? column.name() : fieldName);
+            entityIndexes.add(SearchIndex.of(table, columnName, annotation.searchMode()));
+        }
+        return entityIndexes;
+    }
+
+    private static String tableOf(Class<?> entityClass) {
+        Table table = entityClass.getAnnotation(Table.class);
+        Entity entity = entityClass.getAnnotation(Entity.class);
+        String name = table != null && !table.name().isEmpty() ? table.name()
+                : entity != null && !entity.name().isEmpty() ? entity.name() : entityClass.getSimpleName();
+        String physical = physicalName(name);
+        return table != null && !table.schema().isEmpty() ? physicalName(table.schema()) + "." + physical
+                : physical;
+    }
+
+    /**
+     * Applies Spring Boot's default physical naming strategy
+     * ({@code CamelCaseToUnderscoresNamingStrategy}), which runs before
+     * Hibernate's metamodel is available to this migration.
+     */
+    private static String physicalName(String name) {
+        StringBuilder builder = new StringBuilder(name.replace('.', '_'));
+        for (int i = 1; i < builder.length() - 1; i++) {
+            if (isUnderscoreRequired(builder.charAt(i - 1), builder.charAt(i), builder.charAt(i + 1))) {
+                builder.insert(i++, '_');
+            }
+        }
+        return builder.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isUnderscoreRequired(char before, char current, char after) {
+        return (Character.isLowerCase(before) || Character.isDigit(before)) && Character.isUpperCase(current)
+                && (Character.isLowerCase(after) || Character.isDigit(after));
+    }
+
+    private static List<String> tablesWithIndexes(Connection connection) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT DISTINCT tablename FROM pg_indexes WHERE indexname LIKE ? "
+                        + "AND schemaname = ANY (current_schemas(false))")) {
+            statement.setString(1, INDEX_PATTERN);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    tables.add(rows.getString("tablename"));
+                }
+            }
+        }
+        return tables;
+    }
+
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+            statement.setString(1, table);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next() && rows.getBoolean(1);
+            }
+        }
+    }
+
+    // Indexes of this migration on the table that are unwanted or invalid
+    private static List<String> staleIndexes(Connection connection, String table, Set<String> wanted)
+            throws SQLException {
+        List<String> stale = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT c.relname, i.indisvalid FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid "
+                        + "WHERE i.indrelid = to_regclass(?) AND c.relname LIKE ?")) {
+            statement.setString(1, table);
+            statement.setString(2, INDEX_PATTERN);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    String name = rows.getString("relname");
+                    if (!wanted.contains(name) || !rows.getBoolean("indisvalid")) {
+                        stale.add(name);
+                    }
+                }
+            }
+        }
+        return stale;
+    }
+
+    private static String qualified(String table, String index) {
+        int dot = table.indexOf('.');
+        return dot < 0 ? index : table.substring(0, dot + 1) + index;
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private record SearchIndex(String table, String name, SearchMode mode, String ddl) {
+
+        static SearchIndex of(String table, String column, SearchMode mode) {
+            String suffix = mode == SearchMode.TRIGRAM ? "_trgm" : "_fts";
+            String name = INDEX_PREFIX + table.replace('.', '_') + "_" + column + suffix;
+            if (name.length() > MAX_IDENTIFIER_LENGTH) {
+                name = name.substring(0, MAX_IDENTIFIER_LENGTH);
+            }
+            // The expressions must match those rendered by SearchFunctions and FilterCriterion
+            String expression = mode == SearchMode.TRIGRAM
+                    ? "lower(" + column + ") gin_trgm_ops"
+                    : "to_tsvector('" + SearchFunctions.TEXT_SEARCH_CONFIG + "', " + column + ")";
+            String ddl = "CREATE INDEX CONCURRENTLY IF NOT EXISTS " + name + " ON " + table
+                    + " USING gin (" + expression + ")";
+            return new SearchIndex(table, name, mode, ddl);
+        }
+    }
+}
@@ -1,26 +1,67 @@
 package com.lending.backend.crud.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lending.backend.common.dto.CountMode;
 import com.lending.backend.common.dto.PagedResult;
+import com.lending.backend.common.exception.ApiException;
+import com.lending.backend.common.exception.ErrorConstants;
 import com.lending.backend.common.exception.ResourceNotFoundException;
 import com.lending.backend.crud.annotations.MultiTenant;
+import com.lending.backend.crud.export.ExportQuery;
+import com.lending.backend.crud.ingest.BulkIngestService;
+import com.lending.backend.crud.ingest.IngestReader;
+import com.lending.backend.crud.ingest.IngestResult;
 import com.lending.backend.common.audit.BaseEntity;
 import com.lending.backend.crud.entity.BranchAwareEntity;
+import com.lending.backend.crud.entity.BulkJob;
+import com.lending.backend.crud.entity.BulkJobError;
+import com.lending.backend.crud.repository.CountEstimator;
 import com.lending.backend.crud.repository.CrudRepository;
+import com.lending.backend.crud.repository.EntityBatchWriter;
+import com.lending.backend.crud.repository.EntityStreamReader;
+import com.lending.backend.crud.repository.ProjectionReader;
+import com.lending.backend.crud.service.analytics.FilterUsageRecorder;
 import com.lending.backend.crud.service.audit.AuditService;
+import com.lending.backend.crud.service.cache.CacheKey;
+import com.lending.backend.crud.service.cache.CachePolicyRegistry;
 import com.lending.backend.crud.service.cache.CacheService;
 import com.lending.backend.crud.service.context.SecurityContextService;
+import com.lending.backend.crud.service.guard.QueryGuard;
+import com.lending.backend.crud.service.job.BulkJobService;
+import com.lending.backend.crud.service.job.BulkJobTarget;
 import com.lending.backend.crud.service.hook.EntityHookService;
 import com.lending.backend.crud.service.permission.PermissionService;
+import com.lending.backend.crud.util.FilterCriterion;
+import com.lending.backend.crud.util.FilterOperator;
+import com.lending.backend.crud.util.KeysetPagination;
+import com.lending.backend.crud.util.ProjectionPlan;
+import com.lending.backend.crud.util.QueryDescriptor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 public abstract class CrudService<T extends BaseEntity> {
 
+    // Cache namespace whose generation versions the findAll keys
+    private static final String LIST_NAMESPACE = "list";
+
     // Dependencies
     protected final CrudRepository<T> repository;
     protected final AuditService auditService;
@@ -28,6 +69,14 @@ public abstract class CrudService<T extends BaseEntity> {
     protected final EntityHookService hookService;
     protected final PermissionService permissionService;
     protected final SecurityContextService securityContextService;
+    protected final CountEstimator countEstimator;
+    protected final EntityStreamReader entityStreamReader;
+    protected final ProjectionReader projectionReader;
+    protected final FilterUsageRecorder filterUsageRecorder;
+    protected final QueryGuard queryGuard;
+    protected final EntityBatchWriter entityBatchWriter;
+    protected final BulkIngestService bulkIngestService;
+    protected final BulkJobService bulkJobService;
 
     // Abstract methods
     protected abstract Class<T> getEntityClass();
@@ -44,52 +93,322 @@ public abstract class CrudService<T extends BaseEntity> {
 
     public CrudService(CrudRepository<T> repository, AuditService auditService, CacheService cacheService,
             EntityHookService hookService, PermissionService permissionService,
-            SecurityContextService securityContextService) {
+            SecurityContextService securityContextService, CountEstimator countEstimator,
+            EntityStreamReader entityStreamReader, ProjectionReader projectionReader,
+            FilterUsageRecorder filterUsageRecorder, QueryGuard queryGuard, EntityBatchWriter entityBatchWriter,
+            BulkIngestService bulkIngestService, BulkJobService bulkJobService) {
         this.repository = repository;
         this.auditService = auditService;
         this.cacheService = cacheService;
         this.hookService = hookService;
         this.permissionService = permissionService;
         this.securityContextService = securityContextService;
+        this.countEstimator = countEstimator;
+        this.entityStreamReader = entityStreamReader;
+        this.projectionReader = projectionReader;
+        this.filterUsageRecorder = filterUsageRecorder;
+        this.queryGuard = queryGuard;
+        this.entityBatchWriter = entityBatchWriter;
+        this.bulkIngestService = bulkIngestService;
+        this.bulkJobService = bulkJobService;
+    }
+
+    @Transactional(readOnly = true)
+    public PagedResult<T> findAll(QueryDescriptor descriptor, Pageable pageable) {
+        return findAll(descriptor, pageable, null);
+    }
+
+    /**
+     * Returns one page of the matching rows, with totals obtained according
+     * to the count mode. Exact counts are cached in the entity's count cache,
+     * shared by all pages and sorts of the same filters.
+     *
+     * @param descriptor the filters and sort
+     * @param pageable   the requested page
+     * @param countMode  how to obtain the totals, or {@code null} for the
+     *                   configured default
+     */
+    @Transactional(readOnly = true)
+    public PagedResult<T> findAll(QueryDescriptor descriptor, Pageable pageable, CountMode countMode) {
+        return findPage(descriptor, pageable, countMode, null,
+                (spec, page) -> repository.findBy(spec, query -> query.slice(page)));
     }
 
+    /**
+     * Like {@link #findAll(QueryDescriptor, Pageable, CountMode)}, but selects
+     * only the fields of the projection and returns each row as a map.
+     *
+     * @param projection the fields to select, see {@link #planProjection}
+     */
     @Transactional(readOnly = true)
-    public PagedResult<T> findAll(Specification<T> spec, Pageable pageable) {
+    public PagedResult<Map<String, Object>> findAll(QueryDescriptor descriptor, Pageable pageable,
+            CountMode countMode, ProjectionPlan projection) {
+        return findPage(descriptor, pageable, countMode, projection,
+                (spec, page) -> projectionReader.slice(getEntityClass(), projection, spec, page));
+    }
+
+    /**
+     * Validates a {@code fields} request parameter against the entity.
+     *
+     * @return the projection, or {@code null} if no fields are requested
+     */
+    public ProjectionPlan planProjection(String fields) {
+        return projectionReader.plan(getEntityClass(), fields);
+    }
+
+    private <R> PagedResult<R> findPage(QueryDescriptor descriptor, Pageable pageable, CountMode countMode,
+            ProjectionPlan projection, BiFunction<Specification<T>, Pageable, Slice<R>> fetch) {
         checkPermission("view");
 
-        String cacheKey = generateCacheKey("findAll", spec.hashCode(), pageable.hashCode());
-        // Use the new CacheService which returns an Optional
-        @SuppressWarnings("unchecked")
-        PagedResult<T> cachedResult = (PagedResult<T>) cacheService.get(getEntityName(), cacheKey, PagedResult.class)
-                .orElse(null);
-        if (cachedResult != null) {
-            return cachedResult;
+        // Search predicates are not rendered for the planner, so searches are counted exactly
+        List<FilterCriterion> estimateCriteria = descriptor.getSearch() == null
+                ? withSecurityCriteria(descriptor.getCriteria())
+                : null;
+        CountMode mode = queryGuard.admit(getEntityClass(), descriptor, estimateCriteria,
+                pageable.isPaged() ? pageable.getOffset() : 0, pageable.isPaged() ? pageable.getPageSize() + 1 : -1,
+                countMode != null ? countMode : countEstimator.getDefaultMode());
+        long generation = cacheService.generation(getEntityName(), listNamespace());
+        CacheKey cacheKey = generateCacheKey("findAll", generation, descriptor,
+                pageable.isPaged() ? pageable.getPageNumber() : -1,
+                pageable.isPaged() ? pageable.getPageSize() : -1, mode, fieldsOf(projection));
+        CacheKey countKey = generateCacheKey("count", generation, descriptor.getCriteria(),
+                descriptor.getSearch() != null ? descriptor.getSearch() : "");
+        // Security filters are resolved now so the loader can also run off the request thread
+        Specification<T> finalSpec = applySecurityFilters(descriptor.toSpecification());
+
+        Thread caller = Thread.currentThread();
+        long[] queryNanos = {-1};
+        PagedResult<R> result = cacheService.getOrLoad(getEntityName(), cacheKey, () -> {
+            long start = System.nanoTime();
+            PagedResult<R> page = switch (mode) {
+                case EXACT -> {
+                    Slice<R> slice = fetch.apply(finalSpec, pageable);
+                    // Skips the count when the page itself reveals the total
+                    yield new PagedResult<>(PageableExecutionUtils.getPage(slice.getContent(), pageable,
+                            () -> exactCount(countKey, finalSpec)));
+                }
+                case SLICE -> new PagedResult<>(fetch.apply(finalSpec, pageable), null, CountMode.SLICE);
+                case ESTIMATE -> estimatedPage(fetch.apply(finalSpec, pageable), finalSpec, pageable, countKey,
+                        estimateCriteria);
+            };
+            if (Thread.currentThread() == caller) {
+                queryNanos[0] = System.nanoTime() - start;
+            }
+            return page;
+        });
+        // Side effects of the request, not of the loader, which a refresh-ahead reruns without one
+        if (queryNanos[0] >= 0) {
+            filterUsageRecorder.record(getEntityClass(), getEntityName(), descriptor, estimateCriteria,
+                    pageable.isPaged() ? pageable.getPageSize() + 1 : -1, queryNanos[0]);
+        }
+        auditService.logBulkView(getEntityName(), result.getContent().size());
+        return result;
+    }
+
+    private <R> PagedResult<R> estimatedPage(Slice<R> slice, Specification<T> spec, Pageable pageable,
+            CacheKey countKey, List<FilterCriterion> criteria) {
+        long seen = (pageable.isPaged() ? pageable.getOffset() : 0) + slice.getNumberOfElements();
+        if (!slice.hasNext()) {
+            return new PagedResult<>(slice, seen, CountMode.EXACT);
         }
 
-        Specification<T> finalSpec = applySecurityFilters(spec);
-        Page<T> page = repository.findAll(finalSpec, pageable);
+        OptionalLong estimate = criteria != null ? countEstimator.estimate(getEntityClass(), criteria)
+                : OptionalLong.empty();
+        if (estimate.isEmpty() || countEstimator.isBelowExactThreshold(estimate.getAsLong())) {
+            return new PagedResult<>(slice, exactCount(countKey, spec), CountMode.EXACT);
+        }
+        // Statistics may lag behind; the total is at least what has been seen plus the next row
+        return new PagedResult<>(slice, Math.max(estimate.getAsLong(), seen + 1), CountMode.ESTIMATE);
+    }
+
+    private long exactCount(CacheKey countKey, Specification<T> spec) {
+        return cacheService.getOrLoad(getEntityName() + CachePolicyRegistry.COUNT_CACHE_SUFFIX, countKey,
+                () -> repository.count(spec));
+    }
 
-        auditService.logBulkView(getEntityName(), page.getNumberOfElements());
+    /**
+     * Returns the page of rows after a cursor, seeking on the sort key instead
+     * of counting and skipping rows, so deep pages cost the same as the first.
+     *
+     * @param descriptor the filters and sort
+     * @param cursor     the {@code nextCursor} of the previous page, or blank
+     *                   for the first page
+     * @param size       the page size
+     */
+    @Transactional(readOnly = true)
+    public PagedResult<T> findAllAfter(QueryDescriptor descriptor, String cursor, int size) {
+        return findPageAfter(descriptor, cursor, size, null,
+                (spec, sort) -> repository.findBy(spec, query -> query.sortBy(sort).limit(size + 1).all()));
+    }
 
-        PagedResult<T> result = new PagedResult<>(page);
-        cacheService.put(getEntityName(), cacheKey, result);
+    /**
+     * Like {@link #findAllAfter(QueryDescriptor, String, int)}, but selects only
+     * the fields of the projection, plus the sort fields the cursor is built
+     * from, and returns each row as a map.
+     */
+    @Transactional(readOnly = true)
+    public PagedResult<Map<String, Object>> findAllAfter(QueryDescriptor descriptor, String cursor, int size,
+            ProjectionPlan projection) {
+        List<String> fields = new ArrayList<>(projection.fields());
+        descriptor.getSort().forEach(order -> fields.add(order.getProperty()));
+        ProjectionPlan withSortFields = projectionReader.plan(getEntityClass(), fields);
+        return findPageAfter(descriptor, cursor, size, withSortFields,
+                (spec, sort) -> projectionReader.list(getEntityClass(), withSortFields, spec, sort, size + 1));
+    }
+
+    private <R> PagedResult<R> findPageAfter(QueryDescriptor descriptor, String cursor, int size,
+            ProjectionPlan projection, BiFunction<Specification<T>, Sort, List<R>> fetch) {
+        checkPermission("view");
+
+        List<FilterCriterion> recordedCriteria = descriptor.getSearch() == null
+                ? withSecurityCriteria(descriptor.getCriteria())
+                : null;
+        // The cost of the first page stands for all pages; the seek keeps later ones no dearer
+        queryGuard.admit(getEntityClass(), descriptor, recordedCriteria, 0, size + 1, CountMode.SLICE);
+        KeysetPagination pagination = KeysetPagination.of(descriptor.getSort(), cursor);
+        CacheKey cacheKey = generateCacheKey("findAllAfter",
+                cacheService.generation(getEntityName(), listNamespace()), descriptor,
+                cursor == null ? "" : cursor, size, fieldsOf(projection));
+        Specification<T> finalSpec = applySecurityFilters(descriptor.toSpecification())
+                .and(pagination.toSpecification());
+
+        Thread caller = Thread.currentThread();
+        long[] queryNanos = {-1};
+        PagedResult<R> result = cacheService.getOrLoad(getEntityName(), cacheKey, () -> {
+            long start = System.nanoTime();
+            // One extra row tells whether another page follows
+            List<R> rows = fetch.apply(finalSpec, pagination.getSort());
+            if (Thread.currentThread() == caller) {
+                queryNanos[0] = System.nanoTime() - start;
+            }
+            boolean hasNext = rows.size() > size;
+            List<R> content = hasNext ? List.copyOf(rows.subList(0, size)) : rows;
+            String nextCursor = hasNext ? pagination.cursorAfter(content.get(content.size() - 1)) : null;
+            return PagedResult.ofCursor(content, size, pagination.isFirstPage(), nextCursor);
+        });
+        if (queryNanos[0] >= 0) {
+            filterUsageRecorder.record(getEntityClass(), getEntityName(), descriptor, recordedCriteria, size + 1,
+                    queryNanos[0]);
+        }
+        auditService.logBulkView(getEntityName(), result.getContent().size());
+        return result;
+    }
+
+    // Cache key part telling projected results apart from entity results
+    private List<String> fieldsOf(ProjectionPlan projection) {
+        return projection != null ? projection.fields() : List.of();
+    }
+
+    /**
+     * Loads every row of a CSV or NDJSON input through {@code COPY}, see
+     * {@link BulkIngestService}. Rows are created by the current user in the
+     * current tenant; rows that fail mapping, validation or a unique
+     * constraint are skipped and reported. Hooks do not run for ingested
+     * rows, and the audit trail gets one entry for the whole load.
+     *
+     * @param reader the input, closed afterwards
+     */
+    public IngestResult ingest(IngestReader reader) {
+        checkPermission("create");
+
+        IngestResult result = bulkIngestService.ingest(getEntityClass(), reader,
+                new BulkIngestService.IngestContext(securityContextService.getCurrentUserId(),
+                        isMultiTenant() ? securityContextService.getCurrentTenantId() : null),
+                this::validateEntity);
+        if (result.loaded() > 0) {
+            cacheService.nextGeneration(getEntityName(), listNamespace());
+            auditService.logBulkIngest(getEntityName(), result.loaded());
+        }
         return result;
     }
 
+    /**
+     * Checks the export permission and resolves the security filters on the
+     * calling thread, which still has the request's user and tenant, so the
+     * export itself can be streamed from another thread.
+     *
+     * @param descriptor the filters and sort
+     * @return the export to pass to {@link #export}
+     */
+    public ExportQuery<T> prepareExport(QueryDescriptor descriptor) {
+        checkPermission("export");
+        // Exports read every matching row by design, so only the allow-lists apply
+        queryGuard.checkAllowLists(getEntityClass(), descriptor);
+        return new ExportQuery<>(applySecurityFilters(descriptor.toSpecification()), descriptor.getSort(),
+                auditService.startExport(getEntityName(), descriptor.getCriteria()));
+    }
+
+    /**
+     * Streams every row of a prepared export to the sink with constant memory:
+     * rows are read through a forward-only cursor and never cached. The
+     * export is audited with the number of rows sent, also if it fails.
+     *
+     * @return the number of exported rows
+     */
+    @Transactional(readOnly = true)
+    public long export(ExportQuery<T> export, Consumer<? super T> sink) {
+        long[] sent = {0};
+        boolean completed = false;
+        try {
+            entityStreamReader.forEach(getEntityClass(), export.specification(), export.sort(), row -> {
+                sink.accept(row);
+                sent[0]++;
+            });
+            completed = true;
+            return sent[0];
+        } finally {
+            export.audit().complete(sent[0], completed);
+        }
+    }
+
+    /**
+     * Like {@link #findById(Long)}, but selects only the fields of the
+     * projection. Projected rows are cached under the list generation, so any
+     * write to the entity invalidates them.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> findById(Long id, ProjectionPlan projection) {
+        checkPermission("view");
+
+        CacheKey cacheKey = generateCacheKey("findById",
+                cacheService.generation(getEntityName(), listNamespace()), id, projection.fields());
+        Specification<T> finalSpec = applySecurityFilters(hasId(id));
+
+        Map<String, Object> row = cacheService.getOrLoad(getEntityName(), cacheKey,
+                () -> projectionReader.findOne(getEntityClass(), projection, finalSpec)
+                        .orElseThrow(() -> new ResourceNotFoundException(getEntityName(), "id", id)));
+        auditService.logView(getEntityName(), id.toString(), null);
+        return row;
+    }
+
+    /**
+     * Rebuilds an entity as it was at a version or a time from the audit
+     * trail, see {@link AuditService#reconstruct}.
+     *
+     * @param id      the entity's id, as recorded in the audit trail
+     * @param version the version, or {@code null} for the latest
+     * @param asOf    the time, or {@code null} for the latest
+     * @throws ResourceNotFoundException if the entity did not exist then
+     */
+    public ObjectNode findRevision(String id, Long version, Instant asOf) {
+        checkPermission("view");
+
+        return auditService.reconstruct(getEntityName(), id,
+                isMultiTenant() ? securityContextService.getCurrentTenantId() : null, version, asOf)
+                .orElseThrow(() -> new ResourceNotFoundException(getEntityName(), "id", id));
+    }
+
     @Transactional(readOnly = true)
     public T findById(Long id) {
         checkPermission("view");
 
-        String cacheKey = generateCacheKey("findById", id);
-        // Use the new CacheService which returns an Optional
-        T cachedEntity = cacheService.get(getEntityName(), cacheKey, getEntityClass()).orElse(null);
-        if (cachedEntity != null) {
-            return cachedEntity;
-        }
+        CacheKey cacheKey = generateCacheKey("findById", 0, id);
+        Specification<T> finalSpec = applySecurityFilters(hasId(id));
 
-        T entity = findEntityById(id);
+        T entity = cacheService.getOrLoad(getEntityName(), cacheKey,
+                () -> repository.findOne(finalSpec)
+                        .orElseThrow(() -> new ResourceNotFoundException(getEntityName(), "id", id)));
         auditService.logView(getEntityName(), id.toString(), entity);
-        cacheService.put(getEntityName(), cacheKey, entity);
         return entity;
     }
 
@@ -153,22 +472,119 @@ public abstract class CrudService<T extends BaseEntity> {
         executePostDeleteActions(entity);
     }
 
+    /**
+     * Creates many entities in one transaction, reading them in windows of
+     * {@code crud.bulk.batch-size}: each window is validated and written as
+     * one JDBC batch, audited and passed to the after-create hooks, and then
+     * detached before the next one is read. Memory use thus depends on the
+     * window size rather than on the number of entities; any invalid entity
+     * rolls back all of them.
+     *
+     * @param entities the entities to create, read as they are needed
+     * @return the number of created entities
+     */
     @Transactional
-    public List<T> bulkCreate(List<T> entities) {
+    public long bulkCreate(Iterator<? extends T> entities) {
         checkPermission("create");
 
-        entities.forEach(entity -> {
+        int windowSize = entityBatchWriter.getBatchSize();
+        long created = 0;
+        List<T> window = new ArrayList<>(windowSize);
+        while (entities.hasNext()) {
+            T entity = entities.next();
             prepareEntityForCreation(entity);
             validateEntity(entity);
-            hookService.executeBeforeCreate(getEntityName(), entity);
-        });
+            window.add(entity);
+            if (window.size() == windowSize || !entities.hasNext()) {
+                persistBatch(window, isMultiTenant() ? securityContextService.getCurrentTenantId() : null);
+                created += window.size();
+                window = new ArrayList<>(windowSize);
+            }
+        }
+
+        return created;
+    }
+
+    /**
+     * Submits a bulk create to run in the background, see
+     * {@link BulkJobService}. Rows are validated and written in independently
+     * committed chunks; rows that fail are reported by the job instead of
+     * failing the others.
+     *
+     * @param rows the entities to create, as JSON objects read as they are
+     *             needed
+     * @return the queued job, whose progress can be polled
+     */
+    public BulkJob submitBulkJob(Iterator<JsonNode> rows) {
+        checkPermission("create");
+
+        return bulkJobService.submit(getEntityName(), rows,
+                isMultiTenant() ? securityContextService.getCurrentTenantId() : null, bulkJobTarget());
+    }
+
+    /**
+     * Continues an interrupted or failed bulk job with its first uncommitted
+     * chunk.
+     */
+    public BulkJob resumeBulkJob(UUID jobId) {
+        checkPermission("create");
+        findBulkJob(jobId);
+
+        return bulkJobService.resume(jobId, getEntityName(), bulkJobTarget());
+    }
+
+    /**
+     * Returns a bulk job of the entity with its progress.
+     */
+    public BulkJob getBulkJob(UUID jobId) {
+        checkPermission("create");
+
+        return findBulkJob(jobId);
+    }
+
+    /**
+     * Returns a page of the rows a bulk job rejected, by row.
+     */
+    public Page<BulkJobError> getBulkJobErrors(UUID jobId, Pageable pageable) {
+        checkPermission("create");
+        findBulkJob(jobId);
 
-        List<T> savedEntities = repository.saveAll(entities);
-        auditService.logBulkCreate(getEntityName(), savedEntities);
+        return bulkJobService.errors(jobId, pageable);
+    }
 
-        savedEntities.forEach(this::executePostCreateActions);
+    private BulkJob findBulkJob(UUID jobId) {
+        BulkJob job = bulkJobService.find(jobId, getEntityName());
+        if (isMultiTenant() && job.getTenantId() != null
+                && !job.getTenantId().equals(securityContextService.getCurrentTenantId())) {
+            throw new ResourceNotFoundException("BulkJob", "id", jobId);
+        }
+        return job;
+    }
 
-        return savedEntities;
+    private BulkJobTarget<T> bulkJobTarget() {
+        return new BulkJobTarget<>(getEntityClass(), this::validateEntity, this::persistBatch);
+    }
+
+    /**
+     * Runs the before-create hooks and writes the entities in JDBC batches of
+     * {@code crud.bulk.batch-size} rows; each written batch is audited and
+     * passed to the after-create hooks before it is detached. Must run within
+     * a transaction.
+     *
+     * @param tenantId the tenant the entities belong to, given explicitly as
+     *                 bulk jobs run without a request; {@code null} if the
+     *                 entity is not multi-tenant
+     */
+    private void persistBatch(List<T> entities, String tenantId) {
+        entities.forEach(entity -> hookService.executeBeforeCreate(getEntityName(), entity));
+
+        entityBatchWriter.persistAll(entities, chunk -> {
+            auditService.logBulkCreate(getEntityName(), tenantId, chunk);
+            hookService.executeAfterCreate(getEntityName(), chunk, false);
+            hookService.executeAfterCreate(getEntityName(), chunk, true);
+        });
+        // New ids cannot be cached yet, so only the list pages are invalidated
+        cacheService.nextGeneration(getEntityName(), listNamespace(tenantId));
     }
 
     // === PROTECTED & PRIVATE HELPERS ===
@@ -214,38 +630,97 @@ public abstract class CrudService<T extends BaseEntity> {
         return spec;
     }
 
+    /**
+     * Patches every row matching the filters with one {@code UPDATE}, without
+     * loading them. The permission, tenant and soft-delete filters apply as
+     * for reads; hooks do not run, the audit trail gets a single entry and
+     * the entity's caches are invalidated once.
+     *
+     * @param descriptor the filters, at least one
+     * @param changes    new values by field name
+     * @return the number of patched rows
+     */
+    @Transactional
+    public long bulkPatch(QueryDescriptor descriptor, Map<String, Object> changes) {
+        checkPermission("edit");
+        requireFilters(descriptor);
+
+        Map<String, Object> converted = entityBatchWriter.convertChanges(getEntityClass(), changes);
+        String userId = securityContextService.getCurrentUserId();
+        long count = entityBatchWriter.updateAll(getEntityClass(),
+                applySecurityFilters(descriptor.toSpecification()), converted, userId);
+        afterBulkChange(count);
+        auditService.logBulkUpdate(getEntityName(), count, descriptor.getCriteria(), changes);
+        return count;
+    }
+
+    /**
+     * Deletes every row matching the filters with one statement, marking
+     * them deleted where soft delete is enabled. Filters, hooks, audit and
+     * caches are handled as in {@link #bulkPatch}.
+     *
+     * @param descriptor the filters, at least one
+     * @return the number of deleted rows
+     */
+    @Transactional
+    public long bulkDelete(QueryDescriptor descriptor) {
+        checkPermission("delete");
+        requireFilters(descriptor);
+
+        Specification<T> finalSpec = applySecurityFilters(descriptor.toSpecification());
+        long count = isSoftDeleteEnabled()
+                ? entityBatchWriter.softDeleteAll(getEntityClass(), finalSpec,
+                        securityContextService.getCurrentUserId())
+                : entityBatchWriter.deleteAll(getEntityClass(), finalSpec);
+        afterBulkChange(count);
+        auditService.logBulkDelete(getEntityName(), count, descriptor.getCriteria());
+        return count;
+    }
+
+    // An unfiltered bulk change is almost always a mistake
+    private void requireFilters(QueryDescriptor descriptor) {
+        queryGuard.checkAllowLists(getEntityClass(), descriptor);
+        if (!descriptor.hasCriteria()) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Bulk changes need at least one filter",
+                    ErrorConstants.INVALID_REQUEST);
+        }
+    }
+
+    private void afterBulkChange(long count) {
+        if (count > 0) {
+            // Cached entities of any id may be affected
+            cacheService.clear(getEntityName());
+            cacheService.nextGeneration(getEntityName(), listNamespace());
+        }
+    }
+
     private void performSoftDelete(T entity) {
         entity.setDeleted(true);
-        entity.setDeletedAt(java.time.Instant.now());
+        entity.setDeletedAt(Instant.now());
         entity.setDeletedBy(securityContextService.getCurrentUserId());
 
-        T savedEntity = repository.save(entity);
-        auditService.logDelete(getEntityName(), entity.getId().toString(), savedEntity);
-
-        // Clear relevant caches
-        cacheService.evict(getEntityName(), generateCacheKey("findById", entity.getId()));
-        clearEntityCache();
+        repository.save(entity);
     }
 
     private void executePostCreateActions(T newEntity) {
         auditService.logCreate(getEntityName(), newEntity.getId().toString(), newEntity);
         hookService.executeAfterCreate(getEntityName(), newEntity, false); // Sync
         hookService.executeAfterCreate(getEntityName(), newEntity, true); // Async
-        clearEntityCache();
+        invalidateCaches(newEntity);
     }
 
     private void executePostUpdateActions(T oldEntity, T newEntity) {
         auditService.logUpdate(getEntityName(), newEntity.getId().toString(), oldEntity, newEntity);
         hookService.executeAfterUpdate(getEntityName(), oldEntity, newEntity, false); // Sync
         hookService.executeAfterUpdate(getEntityName(), oldEntity, newEntity, true); // Async
-        clearEntityCache();
+        invalidateCaches(newEntity);
     }
 
     private void executePostDeleteActions(T deletedEntity) {
         auditService.logDelete(getEntityName(), deletedEntity.getId().toString(), deletedEntity);
         hookService.executeAfterDelete(getEntityName(), deletedEntity, false); // Sync
         hookService.executeAfterDelete(getEntityName(), deletedEntity, true); // Async
-        clearEntityCache();
+        invalidateCaches(deletedEntity);
     }
 
     private boolean isMultiTenant() {
@@ -254,20 +729,44 @@ public abstract class CrudService<T extends BaseEntity> {
 
     // isSoftDeleteEnabled() is already defined above
 
-    private String generateCacheKey(String operation, Object... params) {
-        StringBuilder key = new StringBuilder(operation);
-        if (isMultiTenant()) {
-            key.append(":tenant=").append(securityContextService.getCurrentTenantId());
-        }
-        for (Object param : params) {
-            key.append(":").append(param.toString());
+    private CacheKey generateCacheKey(String operation, long generation, Object... params) {
+        String scope = isMultiTenant() ? securityContextService.getCurrentTenantId() : null;
+        return new CacheKey(operation, scope, generation, List.of(params));
+    }
+
+    private String listNamespace() {
+        return listNamespace(isMultiTenant() ? securityContextService.getCurrentTenantId() : null);
+    }
+
+    private String listNamespace(String tenantId) {
+        if (isMultiTenant() && tenantId != null) {
+            return LIST_NAMESPACE + ":" + tenantId;
         }
-        return key.toString();
+        return LIST_NAMESPACE;
     }
 
-    private void clearEntityCache() {
-        // Use the new clear method from CacheService
-        cacheService.clear(getEntityName());
+    /**
+     * Drops the cached copy of the written entity and advances the list
+     * generation of the current tenant, so only that tenant's list pages go
+     * stale instead of the whole entity cache. Both take effect once the
+     * write commits.
+     */
+    private void invalidateCaches(T entity) {
+        cacheService.evict(getEntityName(), generateCacheKey("findById", 0, entity.getId()));
+        cacheService.nextGeneration(getEntityName(), listNamespace());
+    }
+
+    // The conditions of applySecurityFilters as criteria, for SQL rendered outside of JPA
+    private List<FilterCriterion> withSecurityCriteria(List<FilterCriterion> criteria) {
+        List<FilterCriterion> combined = new ArrayList<>(criteria);
+        if (isSoftDeleteEnabled()) {
+            combined.add(new FilterCriterion("isDeleted", FilterOperator.EQ, List.of(false)));
+        }
+        if (isMultiTenant()) {
+            combined.add(new FilterCriterion("branchId", FilterOperator.EQ,
+                    List.of(securityContextService.getCurrentTenantId())));
+        }
+        return combined;
     }
 
     private Specification<T> applySecurityFilters(Specification<T> spec) {
@@ -0,0 +1,65 @@
+package com.lending.backend.crud.service.analytics;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Actuator endpoint {@code /actuator/crudindexes}: the recorded filter
+ * shapes of the CRUD list endpoints, slowest in total first, and the index
+ * recommendations derived from them. Deleting resets the recorded shapes.
+ * Restricted to administrators, as the shapes span all tenants.
+ */
+@Component
+@Endpoint(id = "crudindexes")
+public class CrudIndexesEndpoint {
+
+    private final FilterUsageRecorder recorder;
+    private final IndexAdvisor advisor;
+
+    public CrudIndexesEndpoint(FilterUsageRecorder recorder, IndexAdvisor advisor) {
+        this.recorder = recorder;
+        this.advisor = advisor;
+    }
+
+    /**
+     * @param shapes          the recorded shapes, slowest in total first
+     * @param recommendations the suggested indexes, most valuable first
+     */
+    public record Report(List<ShapeReport> shapes, List<IndexRecommendation> recommendations) {
+    }
+
+    /**
+     * @param entity            the entity name
+     * @param shape             the shape signature
+     * @param queries           the executed queries of the shape
+     * @param totalMillis       their total time
+     * @param meanMillis        their mean time
+     * @param maxMillis         the slowest recent query
+     * @param percentilesMillis the p50, p95 and p99 latencies
+     * @param sample            the latest plan sample, if any
+     */
+    public record ShapeReport(String entity, String shape, long queries, long totalMillis, long meanMillis,
+            long maxMillis, double[] percentilesMillis, PlanSample sample) {
+    }
+
+    @ReadOperation
+    public Report report() {
+        List<ShapeReport> shapes = recorder.getUsage().stream()
+                .sorted(Comparator.comparing(ShapeUsage::getTotalTime).reversed())
+                .map(usage -> new ShapeReport(usage.getEntityName(), usage.getShape().signature(), usage.getCount(),
+                        usage.getTotalTime().toMillis(), usage.getMeanTime().toMillis(),
+                        usage.getMaxTime().toMillis(), usage.getPercentilesMillis(), usage.getSample()))
+                .toList();
+        return new Report(shapes, advisor.recommend());
+    }
+
+    @DeleteOperation
+    public void reset() {
+        recorder.reset();
+    }
+}
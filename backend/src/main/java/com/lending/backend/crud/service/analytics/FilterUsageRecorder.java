@@ -0,0 +1,219 @@
+package com.lending.backend.crud.service.analytics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lending.backend.config.CrudProperties;
+import com.lending.backend.crud.repository.QuerySqlRenderer;
+import com.lending.backend.crud.util.FilterCriterion;
+import com.lending.backend.crud.util.QueryDescriptor;
+import com.lending.backend.crud.util.QueryShape;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records which filter shapes the generated list endpoints run, with a
+ * latency timer per entity and shape ({@code crud.query}, tagged with
+ * {@code entity} and {@code shape}). Only executed queries are recorded;
+ * cache hits never reach the database.
+ * <p>
+ * A query slower than the configured threshold marks its shape for an
+ * {@code EXPLAIN (FORMAT JSON)} sample with the query's own values. Samples
+ * are taken one at a time on a schedule, slowest shape first, so sampling
+ * never adds more than one planner call per interval. The
+ * {@link IndexAdvisor} turns the result into index recommendations.
+ */
+@Component
+public class FilterUsageRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(FilterUsageRecorder.class);
+
+    private static final String TIMER_NAME = "crud.query";
+
+    // Plan node fields kept in samples; none of them holds a bound value
+    private static final List<String> PLAN_FIELDS = List.of("Node Type", "Parent Relationship", "Relation Name",
+            "Alias", "Index Name", "Scan Direction", "Startup Cost", "Total Cost", "Plan Rows", "Plan Width");
+
+    private final MeterRegistry meterRegistry;
+    private final QuerySqlRenderer sqlRenderer;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final CrudProperties.Analytics properties;
+    private final Counter untrackedQueries;
+    private final Map<UsageKey, ShapeUsage> usage = new ConcurrentHashMap<>();
+
+    public FilterUsageRecorder(MeterRegistry meterRegistry, QuerySqlRenderer sqlRenderer, JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper, CrudProperties properties) {
+        this.meterRegistry = meterRegistry;
+        this.sqlRenderer = sqlRenderer;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties.getAnalytics();
+        this.untrackedQueries = Counter.builder("crud.query.untracked")
+                .description("List queries of shapes beyond crud.analytics.max-shapes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records an executed list query.
+     *
+     * @param entityClass the queried entity
+     * @param entityName  the entity name
+     * @param descriptor  the query as requested
+     * @param criteria    the criteria actually applied, including security
+     *                    filters, or {@code null} if they cannot be rendered
+     *                    to SQL
+     * @param limit       the rows fetched, or {@code -1} if unlimited
+     * @param nanos       how long the query took
+     */
+    public void record(Class<?> entityClass, String entityName, QueryDescriptor descriptor,
+            List<FilterCriterion> criteria, int limit, long nanos) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        QueryShape shape = QueryShape.of(descriptor);
+        UsageKey key = new UsageKey(entityClass, shape);
+        ShapeUsage shapeUsage = usage.get(key);
+        if (shapeUsage == null) {
+            if (usage.size() >= properties.getMaxShapes()) {
+                untrackedQueries.increment();
+                return;
+            }
+            shapeUsage = usage.computeIfAbsent(key, k -> new ShapeUsage(entityClass, entityName, shape,
+                    Timer.builder(TIMER_NAME)
+                            .description("Executed CRUD list queries by filter shape")
+                            .tag("entity", entityName)
+                            .tag("shape", shape.signature())
+                            .publishPercentiles(0.5, 0.95, 0.99)
+                            .publishPercentileHistogram()
+                            .register(meterRegistry)));
+        }
+        shapeUsage.timer().record(nanos, TimeUnit.NANOSECONDS);
+
+        if (criteria != null && nanos >= properties.getSlowQueryThreshold().toNanos()) {
+            shapeUsage.setSlowQuery(new ShapeUsage.SlowQuery(criteria, descriptor.getSort(), limit));
+        }
+    }
+
+    /**
+     * @return the recorded shapes of all entities
+     */
+    public Collection<ShapeUsage> getUsage() {
+        return usage.values();
+    }
+
+    /**
+     * Forgets all recorded shapes, for example after indexes were added.
+     */
+    public void reset() {
+        usage.values().forEach(shapeUsage -> meterRegistry.remove(shapeUsage.timer()));
+        usage.clear();
+    }
+
+    /**
+     * Explains the slowest shape whose sample is missing or outdated.
+     */
+    @Scheduled(fixedDelayString = "${crud.analytics.sample-interval-ms:10000}")
+    public void sampleSlowestShape() {
+        Instant outdated = Instant.now().minus(properties.getResampleAfter());
+        usage.values().stream()
+                .filter(shapeUsage -> shapeUsage.slowQuery() != null)
+                .filter(shapeUsage -> shapeUsage.getSample() == null
+                        || shapeUsage.getSample().sampledAt().isBefore(outdated))
+                .max(Comparator.comparing(ShapeUsage::getTotalTime))
+                .ifPresent(this::sample);
+    }
+
+    private void sample(ShapeUsage shapeUsage) {
+        ShapeUsage.SlowQuery slowQuery = shapeUsage.slowQuery();
+        shapeUsage.setSlowQuery(null);
+        try {
+            explain(shapeUsage.getEntityClass(), slowQuery).ifPresent(shapeUsage::setSample);
+        } catch (Exception e) {
+            logger.debug("Could not explain {} query {}", shapeUsage.getEntityName(),
+                    shapeUsage.getShape().signature(), e);
+        }
+    }
+
+    private Optional<PlanSample> explain(Class<?> entityClass, ShapeUsage.SlowQuery slowQuery) throws Exception {
+        Optional<QuerySqlRenderer.RenderedQuery> rendered = sqlRenderer.render(entityClass, slowQuery.criteria());
+        if (rendered.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Optional<String> orderBy = sqlRenderer.orderBy(entityClass, slowQuery.sort());
+        if (orderBy.isEmpty()) {
+            return Optional.empty();
+        }
+        // The limit matters: with it, an index in sort order can beat a scan and sort
+        String sql = "EXPLAIN (FORMAT JSON) SELECT * FROM " + rendered.get().table()
+                + " WHERE " + rendered.get().where() + orderBy.get()
+                + (slowQuery.limit() >= 0 ? " LIMIT " + slowQuery.limit() : "");
+        String json = jdbcTemplate.queryForObject(sql, String.class, rendered.get().parameters().toArray());
+
+        JsonNode plan = objectMapper.readTree(json).path(0).path("Plan");
+        List<JsonNode> nodes = new ArrayList<>();
+        collectNodes(plan, nodes);
+        List<String> sequentialScans = new ArrayList<>();
+        boolean explicitSort = false;
+        for (JsonNode node : nodes) {
+            String nodeType = node.path("Node Type").asText();
+            if ("Seq Scan".equals(nodeType)) {
+                sequentialScans.add(node.path("Relation Name").asText());
+            } else if ("Sort".equals(nodeType) || "Incremental Sort".equals(nodeType)) {
+                explicitSort = true;
+            }
+        }
+        return Optional.of(new PlanSample(Instant.now(), plan.path("Total Cost").asDouble(),
+                plan.path("Plan Rows").asLong(), sequentialScans, explicitSort, withoutConditions(plan)));
+    }
+
+    /**
+     * Copies the plan with only its node types, relations, indexes, costs and
+     * row estimates. Conditions are left out, as they hold the bound values of
+     * the sampled query, such as another tenant's ids or a search term.
+     */
+    private ObjectNode withoutConditions(JsonNode node) {
+        ObjectNode copy = objectMapper.createObjectNode();
+        for (String field : PLAN_FIELDS) {
+            if (node.has(field)) {
+                copy.set(field, node.get(field));
+            }
+        }
+        if (node.has("Plans")) {
+            ArrayNode plans = copy.putArray("Plans");
+            for (JsonNode child : node.path("Plans")) {
+                plans.add(withoutConditions(child));
+            }
+        }
+        return copy;
+    }
+
+    private static void collectNodes(JsonNode node, List<JsonNode> nodes) {
+        nodes.add(node);
+        for (JsonNode child : node.path("Plans")) {
+            collectNodes(child, nodes);
+        }
+    }
+
+    private record UsageKey(Class<?> entityClass, QueryShape shape) {
+    }
+}
@@ -0,0 +1,271 @@
+package com.lending.backend.crud.service.analytics;
+
+import com.lending.backend.config.CrudProperties;
+import com.lending.backend.crud.annotations.CrudEntity;
+import com.lending.backend.crud.annotations.MultiTenant;
+import com.lending.backend.crud.annotations.SearchMode;
+import com.lending.backend.crud.repository.QuerySqlRenderer;
+import com.lending.backend.crud.util.FilterOperator;
+import com.lending.backend.crud.util.QueryShape;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Derives index recommendations from the shapes recorded by
+ * {@link FilterUsageRecorder}. A shape needs an index when its plan sample
+ * shows a sequential scan or an explicit sort, or, before it is sampled,
+ * when it is slow on average.
+ * <p>
+ * The suggested B-tree follows the usual column order: the tenant column,
+ * equality filters, then either one range filter or the sort columns, made
+ * partial on {@code is_deleted = false} for soft-deleted entities. Substring
+ * filters get a {@code pg_trgm} GIN index unless the entity's search
+ * indexes already cover them. Indexes whose leading columns an existing
+ * index already has are left out, and shapes needing the same index are
+ * merged and ranked by the time they spent.
+ */
+@Component
+public class IndexAdvisor {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexAdvisor.class);
+
+    private static final int MAX_IDENTIFIER_LENGTH = 63;
+
+    private static final DateTimeFormatter MIGRATION_VERSION = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private static final Set<FilterOperator> EQUALITY = Set.of(FilterOperator.EQ, FilterOperator.IN);
+
+    private static final Set<FilterOperator> RANGE = Set.of(FilterOperator.GT, FilterOperator.GTE,
+            FilterOperator.LT, FilterOperator.LTE, FilterOperator.BETWEEN);
+
+    private final FilterUsageRecorder recorder;
+    private final QuerySqlRenderer sqlRenderer;
+    private final JdbcTemplate jdbcTemplate;
+    private final CrudProperties.Analytics properties;
+
+    public IndexAdvisor(FilterUsageRecorder recorder, QuerySqlRenderer sqlRenderer, JdbcTemplate jdbcTemplate,
+            CrudProperties properties) {
+        this.recorder = recorder;
+        this.sqlRenderer = sqlRenderer;
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties.getAnalytics();
+    }
+
+    /**
+     * @return the recommendations, most valuable first
+     */
+    public List<IndexRecommendation> recommend() {
+        Map<String, Candidate> candidates = new LinkedHashMap<>();
+        Map<String, List<ExistingIndex>> existingByTable = new HashMap<>();
+        for (ShapeUsage usage : recorder.getUsage()) {
+            String reason = reasonFor(usage);
+            if (reason == null) {
+                continue;
+            }
+            for (Candidate candidate : candidatesFor(usage)) {
+                List<ExistingIndex> existing = existingByTable.computeIfAbsent(candidate.table,
+                        this::existingIndexes);
+                if (existing.stream().noneMatch(candidate::isCoveredBy)) {
+                    candidates.computeIfAbsent(candidate.definition(), k -> candidate).add(usage, reason);
+                }
+            }
+        }
+
+        String version = LocalDateTime.now(ZoneOffset.UTC).format(MIGRATION_VERSION);
+        List<Candidate> ranked = new ArrayList<>(candidates.values());
+        ranked.sort(Comparator.comparing((Candidate candidate) -> candidate.totalTime).reversed());
+        List<IndexRecommendation> recommendations = new ArrayList<>(ranked.size());
+        for (int i = 0; i < ranked.size(); i++) {
+            recommendations.add(ranked.get(i).toRecommendation(version + "_" + (i + 1)));
+        }
+        return recommendations;
+    }
+
+    private String reasonFor(ShapeUsage usage) {
+        PlanSample sample = usage.getSample();
+        if (sample != null) {
+            if (!sample.sequentialScans().isEmpty()) {
+                return "sequential scan of " + String.join(", ", sample.sequentialScans());
+            }
+            return sample.explicitSort() ? "rows sorted after reading" : null;
+        }
+        return usage.getMeanTime().compareTo(properties.getSlowQueryThreshold()) >= 0
+                ? "mean latency " + usage.getMeanTime().toMillis() + " ms, not yet explained"
+                : null;
+    }
+
+    private List<Candidate> candidatesFor(ShapeUsage usage) {
+        Class<?> entityClass = usage.getEntityClass();
+        Optional<String> table = sqlRenderer.tableOf(entityClass);
+        if (table.isEmpty()) {
+            return List.of();
+        }
+        CrudEntity crudEntity = entityClass.getAnnotation(CrudEntity.class);
+        QueryShape shape = usage.getShape();
+        List<Candidate> candidates = new ArrayList<>();
+
+        // Key fields in index order, each with its direction
+        Map<String, Boolean> keys = new LinkedHashMap<>();
+        if (entityClass.isAnnotationPresent(MultiTenant.class)) {
+            // CrudService filters tenants on branchId
+            keys.put("branchId", true);
+        }
+        shape.filters().stream()
+                .filter(filter -> EQUALITY.contains(filter.operator()))
+                .forEach(filter -> keys.putIfAbsent(filter.field(), true));
+        Optional<QueryShape.Filter> range = shape.filters().stream()
+                .filter(filter -> RANGE.contains(filter.operator()))
+                .findFirst();
+        if (range.isPresent()) {
+            // Columns after a range cannot narrow the scan or provide the order
+            keys.putIfAbsent(range.get().field(), true);
+        } else {
+            shape.sort().forEach(order -> keys.putIfAbsent(order.getProperty(), order.isAscending()));
+        }
+        if (!keys.isEmpty()) {
+            boolean softDelete = crudEntity == null || crudEntity.enableSoftDelete();
+            btree(usage.getEntityName(), entityClass, table.get(), keys, softDelete).ifPresent(candidates::add);
+        }
+
+        Set<String> indexedForSearch = crudEntity != null && crudEntity.searchMode() == SearchMode.TRIGRAM
+                ? Set.of(crudEntity.searchableFields())
+                : Set.of();
+        shape.filters().stream()
+                .filter(filter -> filter.operator() == FilterOperator.LIKE)
+                .filter(filter -> !indexedForSearch.contains(filter.field()))
+                .forEach(filter -> trigram(usage.getEntityName(), entityClass, table.get(), filter.field())
+                        .ifPresent(candidates::add));
+        return candidates;
+    }
+
+    private Optional<Candidate> btree(String entity, Class<?> entityClass, String table, Map<String, Boolean> keys,
+            boolean softDelete) {
+        List<String> columns = new ArrayList<>(keys.size());
+        StringJoiner keyList = new StringJoiner(", ");
+        for (Map.Entry<String, Boolean> key : keys.entrySet()) {
+            Optional<String> column = sqlRenderer.columnOf(entityClass, key.getKey());
+            if (column.isEmpty()) {
+                return Optional.empty();
+            }
+            columns.add(column.get());
+            keyList.add(key.getValue() ? column.get() : column.get() + " DESC");
+        }
+        String where = softDelete
+                ? sqlRenderer.columnOf(entityClass, "isDeleted").map(column -> " WHERE " + column + " = false")
+                        .orElse("")
+                : "";
+        String name = indexName("idx_" + table + "_" + String.join("_", columns));
+        return Optional.of(new Candidate(entity, table, name, columns, false,
+                "CREATE INDEX CONCURRENTLY IF NOT EXISTS " + name + " ON " + table + " (" + keyList + ")" + where));
+    }
+
+    private Optional<Candidate> trigram(String entity, Class<?> entityClass, String table, String field) {
+        return sqlRenderer.columnOf(entityClass, field).map(column -> {
+            String name = indexName("idx_" + table + "_" + column + "_trgm");
+            return new Candidate(entity, table, name, List.of(column), true,
+                    "CREATE INDEX CONCURRENTLY IF NOT EXISTS " + name + " ON " + table
+                            + " USING gin (lower(" + column + ") gin_trgm_ops)");
+        });
+    }
+
+    private List<ExistingIndex> existingIndexes(String table) {
+        try {
+            return jdbcTemplate.query(
+                    "SELECT pg_get_indexdef(i.indexrelid) AS definition, "
+                            + "array_to_string(ARRAY(SELECT a.attname FROM unnest(i.indkey) WITH ORDINALITY "
+                            + "AS k(attnum, ord) JOIN pg_attribute a ON a.attrelid = i.indrelid "
+                            + "AND a.attnum = k.attnum ORDER BY k.ord), ',') AS columns "
+                            + "FROM pg_index i WHERE i.indrelid = to_regclass(?) AND i.indisvalid",
+                    (row, rowNumber) -> new ExistingIndex(row.getString("definition"),
+                            row.getString("columns").isEmpty() ? List.of()
+                                    : Arrays.asList(row.getString("columns").split(","))),
+                    table);
+        } catch (DataAccessException e) {
+            logger.debug("Could not read the indexes of {}", table, e);
+            return List.of();
+        }
+    }
+
+    private static String indexName(String name) {
+        // PostgreSQL would truncate it the same way
+        return name.length() > MAX_IDENTIFIER_LENGTH ? name.substring(0, MAX_IDENTIFIER_LENGTH) : name;
+    }
+
+    private record ExistingIndex(String definition, List<String> columns) {
+    }
+
+    private static final class Candidate {
+        private final String entity;
+        private final String table;
+        private final String name;
+        private final List<String> columns;
+        private final boolean trigram;
+        private final String definition;
+        private final Set<String> shapes = new LinkedHashSet<>();
+        private final Set<String> reasons = new LinkedHashSet<>();
+        private long queries;
+        private Duration totalTime = Duration.ZERO;
+
+        Candidate(String entity, String table, String name, List<String> columns, boolean trigram,
+                String definition) {
+            this.entity = entity;
+            this.table = table;
+            this.name = name;
+            this.columns = columns;
+            this.trigram = trigram;
+            this.definition = definition;
+        }
+
+        String definition() {
+            return definition;
+        }
+
+        boolean isCoveredBy(ExistingIndex existing) {
+            if (trigram) {
+                return existing.definition().contains("gin_trgm_ops")
+                        && existing.definition().contains("lower(" + columns.get(0) + ")");
+            }
+            return existing.columns().size() >= columns.size()
+                    && existing.columns().subList(0, columns.size()).equals(columns);
+        }
+
+        void add(ShapeUsage usage, String reason) {
+            if (shapes.add(usage.getShape().signature())) {
+                queries += usage.getCount();
+                totalTime = totalTime.plus(usage.getTotalTime());
+            }
+            reasons.add(reason);
+        }
+
+        IndexRecommendation toRecommendation(String version) {
+            String script = "-- Suggested by the CRUD index advisor for " + entity + ": " + queries
+                    + " queries took " + totalTime.toMillis() + " ms in total.\n"
+                    + "-- Shapes: " + String.join("; ", shapes) + "\n"
+                    + "-- Reasons: " + String.join("; ", reasons) + "\n"
+                    + (trigram ? "-- Requires the pg_trgm extension.\n" : "")
+                    + "-- Review before applying. Flyway runs CREATE INDEX CONCURRENTLY outside a transaction.\n"
+                    + definition + ";\n";
+            return new IndexRecommendation(entity, table, name, definition, "V" + version + "__" + name + ".sql",
+                    script, queries, totalTime, new ArrayList<>(shapes), new ArrayList<>(reasons));
+        }
+    }
+}
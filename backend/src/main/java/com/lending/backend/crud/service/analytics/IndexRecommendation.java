@@ -0,0 +1,30 @@
+package com.lending.backend.crud.service.analytics;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * An index the {@link IndexAdvisor} suggests, with a Flyway migration ready
+ * for review.
+ *
+ * @param entity          the entity name
+ * @param table           the entity's table
+ * @param indexName       the name of the suggested index
+ * @param definition      the {@code CREATE INDEX} statement
+ * @param migrationName   a Flyway file name for the statement
+ * @param migrationScript the content of the migration
+ * @param queries         the recorded queries the index would serve
+ * @param totalTime       the time those queries took, which ranks the
+ *                        recommendation
+ * @param shapes          the signatures of the served query shapes
+ * @param reasons         why the shapes need the index
+ */
+public record IndexRecommendation(String entity, String table, String indexName, String definition,
+        String migrationName, String migrationScript, long queries, Duration totalTime, List<String> shapes,
+        List<String> reasons) {
+
+    public IndexRecommendation {
+        shapes = List.copyOf(shapes);
+        reasons = List.copyOf(reasons);
+    }
+}
@@ -0,0 +1,33 @@
+package com.lending.backend.crud.service.analytics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The planner's view of a slow query, from {@code EXPLAIN (FORMAT JSON)}.
+ *
+ * @param sampledAt        when the plan was taken
+ * @param totalCost        the estimated total cost of the plan
+ * @param planRows         the estimated number of result rows
+ * @param sequentialScans  the relations read by sequential scans
+ * @param explicitSort     whether rows are sorted instead of read in index
+ *                         order
+ * @param plan             the plan's nodes with their costs, without their
+ *                         conditions
+ */
+public record PlanSample(Instant sampledAt, double totalCost, long planRows, List<String> sequentialScans,
+        boolean explicitSort, JsonNode plan) {
+
+    public PlanSample {
+        sequentialScans = List.copyOf(sequentialScans);
+    }
+
+    /**
+     * @return whether an index could serve the query better than this plan
+     */
+    public boolean needsIndex() {
+        return !sequentialScans.isEmpty() || explicitSort;
+    }
+}
@@ -0,0 +1,102 @@
+package com.lending.backend.crud.service.analytics;
+
+import com.lending.backend.crud.util.FilterCriterion;
+import com.lending.backend.crud.util.QueryShape;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.data.domain.Sort;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@link FilterUsageRecorder} knows about one filter shape of one
+ * entity: a latency timer, the last slow query as an {@code EXPLAIN}
+ * candidate, and the latest plan sample.
+ */
+public class ShapeUsage {
+
+    private final Class<?> entityClass;
+    private final String entityName;
+    private final QueryShape shape;
+    private final Timer timer;
+
+    private volatile SlowQuery slowQuery;
+    private volatile PlanSample sample;
+
+    ShapeUsage(Class<?> entityClass, String entityName, QueryShape shape, Timer timer) {
+        this.entityClass = entityClass;
+        this.entityName = entityName;
+        this.shape = shape;
+        this.timer = timer;
+    }
+
+    /**
+     * The criteria, including the security filters, and sort of a slow query
+     * of the shape, kept to be explained with real values.
+     */
+    record SlowQuery(List<FilterCriterion> criteria, Sort sort, int limit) {
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public QueryShape getShape() {
+        return shape;
+    }
+
+    public long getCount() {
+        return timer.count();
+    }
+
+    public Duration getTotalTime() {
+        return Duration.ofNanos((long) timer.totalTime(TimeUnit.NANOSECONDS));
+    }
+
+    public Duration getMeanTime() {
+        return Duration.ofNanos((long) timer.mean(TimeUnit.NANOSECONDS));
+    }
+
+    public Duration getMaxTime() {
+        return Duration.ofNanos((long) timer.max(TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * @return the latency percentiles (p50, p95, p99) in milliseconds
+     */
+    public double[] getPercentilesMillis() {
+        return Arrays.stream(timer.takeSnapshot().percentileValues())
+                .mapToDouble(percentile -> percentile.value(TimeUnit.MILLISECONDS))
+                .toArray();
+    }
+
+    /**
+     * @return the latest plan sample, or {@code null} if the shape has not
+     *         been sampled
+     */
+    public PlanSample getSample() {
+        return sample;
+    }
+
+    Timer timer() {
+        return timer;
+    }
+
+    SlowQuery slowQuery() {
+        return slowQuery;
+    }
+
+    void setSlowQuery(SlowQuery slowQuery) {
+        this.slowQuery = slowQuery;
+    }
+
+    void setSample(PlanSample sample) {
+        this.sample = sample;
+    }
+}
@@ -0,0 +1,369 @@
+package com.lending.backend.crud.service.audit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only local journal of audit entries in memory-mapped segment files.
+ * Appending copies the entry into the mapped segment and takes a few
+ * microseconds. The entry survives a crash of the process from then on, and
+ * a crash of the machine once the segment has been synced.
+ * <p>
+ * A single shipper reads entries in order, writes them elsewhere and then
+ * commits its position to a checkpoint file. After a restart, reading resumes
+ * at the checkpoint, so every entry is delivered at least once: entries
+ * shipped but not yet committed when the process died are delivered again.
+ * Segments behind the checkpoint are deleted.
+ * <p>
+ * Each record is its payload length, the CRC-32 of its payload and the
+ * payload. The length is written last, and a zero length marks the end of
+ * the journal. On recovery the last segment is read up to the first record
+ * that is incomplete or fails its checksum. When shipping, a record that is
+ * out of bounds or fails its checksum is skipped with the rest of its
+ * segment and counted, rather than stopping the shipper. Entries the shipper
+ * can never write are set aside in a dead-letter file, one per line.
+ */
+public class AuditJournal implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditJournal.class);
+
+    private static final String SEGMENT_PREFIX = "audit-";
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private static final String DEAD_LETTER_FILE = "dead-letter.ndjson";
+
+    // Segment, offset and the CRC-32 of both
+    private static final int CHECKPOINT_BYTES = Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    // Payload length and CRC-32 of the payload
+    private static final int HEADER_BYTES = 8;
+
+    // Length written where a segment ends because the next record did not fit
+    private static final int END_OF_SEGMENT = -1;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final FileChannel checkpoint;
+    private final LongAdder corruptRecords = new LongAdder();
+    // Segment and offset of the next append, guarded by this
+    private Segment head;
+    private int headOffset;
+    // End of the appended records, published to the shipper
+    private volatile Position appended;
+    // Position of the next record to ship, only used by the shipper
+    private Position shipped;
+
+    /**
+     * Opens the journal in the directory, recovering the entries not yet
+     * shipped.
+     *
+     * @param segmentBytes size of each segment file; bounds the largest entry
+     * @param maxSegments  segments kept at most; appends are refused beyond
+     */
+    public AuditJournal(Path directory, int segmentBytes, int maxSegments) throws IOException {
+        if (segmentBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("segmentBytes must exceed " + HEADER_BYTES);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+
+        Files.createDirectories(directory);
+        this.checkpoint = FileChannel.open(directory.resolve(CHECKPOINT_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Position committed = readCheckpoint();
+
+        for (long sequence : segmentSequences()) {
+            if (committed != null && sequence < committed.segment()) {
+                Files.deleteIfExists(segmentPath(sequence));
+            } else {
+                segments.put(sequence, open(sequence));
+            }
+        }
+        if (segments.isEmpty()) {
+            long sequence = committed != null ? committed.segment() : 0;
+            segments.put(sequence, open(sequence));
+            committed = null;
+        }
+
+        this.head = segments.lastEntry().getValue();
+        this.headOffset = recoverEnd(head);
+        this.appended = new Position(head.sequence(), headOffset);
+        this.shipped = committed != null && segments.containsKey(committed.segment())
+                ? committed
+                : new Position(segments.firstKey(), 0);
+        logger.info("Audit journal opened in {}: {} segments, {} bytes to ship", directory, segments.size(),
+                pendingBytes());
+    }
+
+    /**
+     * Appends an entry.
+     *
+     * @return {@code false} if the entry is larger than a segment, the journal
+     *         holds {@code maxSegments} segments or a segment could not be
+     *         created; the entry is then not in the journal
+     */
+    public synchronized boolean append(byte[] payload) {
+        int needed = HEADER_BYTES + payload.length;
+        if (needed > segmentBytes) {
+            return false;
+        }
+        if (headOffset + needed > segmentBytes) {
+            if (segments.size() >= maxSegments) {
+                return false;
+            }
+            Segment next;
+            try {
+                next = open(head.sequence() + 1);
+            } catch (IOException e) {
+                logger.warn("Could not create audit journal segment: {}", e.getMessage());
+                return false;
+            }
+            segments.put(next.sequence(), next);
+            if (headOffset + Integer.BYTES <= segmentBytes) {
+                head.buffer().putInt(headOffset, END_OF_SEGMENT);
+            }
+            head = next;
+            headOffset = 0;
+        }
+
+        head.buffer().putInt(headOffset + Integer.BYTES, checksum(payload));
+        head.buffer().put(headOffset + HEADER_BYTES, payload);
+        head.buffer().putInt(headOffset, payload.length);
+        headOffset += needed;
+        appended = new Position(head.sequence(), headOffset);
+        return true;
+    }
+
+    /**
+     * Reads up to {@code max} entries following the last committed batch, or
+     * the last read one. To be called by the shipper only.
+     */
+    public Batch read(int max) {
+        Position limit = appended;
+        Position start = shipped;
+        Position position = start;
+        List<byte[]> entries = new ArrayList<>(Math.min(max, 1024));
+        while (entries.size() < max && position.compareTo(limit) < 0) {
+            Segment segment = segments.get(position.segment());
+            int offset = position.offset();
+            int length = segment != null && offset + HEADER_BYTES <= segmentBytes
+                    ? segment.buffer().getInt(offset)
+                    : END_OF_SEGMENT;
+            if (length == END_OF_SEGMENT && position.segment() < limit.segment()) {
+                position = new Position(position.segment() + 1, 0);
+                continue;
+            }
+
+            byte[] payload = length > 0 && length <= segmentBytes - offset - HEADER_BYTES ? new byte[length] : null;
+            if (payload != null) {
+                segment.buffer().get(offset + HEADER_BYTES, payload);
+            }
+            if (payload == null || checksum(payload) != segment.buffer().getInt(offset + Integer.BYTES)) {
+                corruptRecords.increment();
+                logger.error("Skipping a corrupt audit journal record at {}:{} and the rest of its segment",
+                        position.segment(), offset);
+                position = position.segment() < limit.segment() ? new Position(position.segment() + 1, 0) : limit;
+                continue;
+            }
+            entries.add(payload);
+            position = new Position(position.segment(), offset + HEADER_BYTES + length);
+        }
+        return new Batch(entries, start, position);
+    }
+
+    /**
+     * Sets aside an entry that can never be shipped, as a line of the
+     * dead-letter file in the journal's directory.
+     */
+    public synchronized void deadLetter(byte[] payload) throws IOException {
+        try (FileChannel deadLetters = FileChannel.open(directory.resolve(DEAD_LETTER_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            deadLetters.write(ByteBuffer.allocate(payload.length + 1).put(payload).put((byte) '\n').flip());
+            deadLetters.force(false);
+        }
+    }
+
+    /**
+     * Records skipped by {@link #read} because they were out of bounds or
+     * failed their checksum.
+     */
+    public long corruptRecords() {
+        return corruptRecords.sum();
+    }
+
+    /**
+     * Records that every entry up to the end of the batch has been shipped,
+     * and deletes the segments before it. To be called by the shipper only.
+     */
+    public void commit(Batch batch) throws IOException {
+        Position end = batch.end();
+        // Overwritten in place; a torn write fails the checksum and replays from the first segment
+        ByteBuffer record = ByteBuffer.allocate(CHECKPOINT_BYTES)
+                .putLong(end.segment())
+                .putInt(end.offset());
+        record.putInt(checksum(record.array(), Long.BYTES + Integer.BYTES)).flip();
+        checkpoint.write(record, 0);
+        checkpoint.force(false);
+        shipped = end;
+
+        while (segments.firstKey() < end.segment()) {
+            Segment segment = segments.pollFirstEntry().getValue();
+            segment.channel().close();
+            Files.deleteIfExists(segmentPath(segment.sequence()));
+        }
+    }
+
+    /**
+     * Writes the mapped segments through to disk, after which their entries
+     * also survive a crash of the machine.
+     */
+    public void sync() {
+        for (Segment segment : segments.values()) {
+            segment.buffer().force();
+        }
+    }
+
+    /**
+     * Bytes appended but not yet committed as shipped, including segment
+     * padding.
+     */
+    public long pendingBytes() {
+        Position limit = appended;
+        Position from = shipped;
+        return (limit.segment() - from.segment()) * segmentBytes + limit.offset() - from.offset();
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        for (Segment segment : segments.values()) {
+            segment.channel().close();
+        }
+        checkpoint.close();
+    }
+
+    private Position readCheckpoint() throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(CHECKPOINT_BYTES);
+        if (checkpoint.read(record, 0) < record.capacity()) {
+            return null;
+        }
+        record.flip();
+        Position position = new Position(record.getLong(), record.getInt());
+        if (record.getInt() != checksum(record.array(), Long.BYTES + Integer.BYTES)) {
+            logger.warn("Audit journal checkpoint is corrupt, shipping again from the first segment");
+            return null;
+        }
+        return position;
+    }
+
+    private static int checksum(byte[] bytes) {
+        return checksum(bytes, bytes.length);
+    }
+
+    private static int checksum(byte[] bytes, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Finds the end of the records in the last segment and clears whatever a
+     * crash left behind it.
+     */
+    private int recoverEnd(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer();
+        int offset = 0;
+        while (offset + HEADER_BYTES <= segmentBytes) {
+            int length = buffer.getInt(offset);
+            if (length == END_OF_SEGMENT) {
+                return segmentBytes;
+            }
+            if (length <= 0 || length > segmentBytes - offset - HEADER_BYTES) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER_BYTES, payload);
+            if (checksum(payload) != buffer.getInt(offset + Integer.BYTES)) {
+                logger.warn("Discarding a torn audit journal record at {}:{}", segment.sequence(), offset);
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+        for (int i = offset; i < segmentBytes; i++) {
+            buffer.put(i, (byte) 0);
+        }
+        return offset;
+    }
+
+    private List<Long> segmentSequences() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Segment open(long sequence) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(sequence), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        return new Segment(sequence, channel, buffer);
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%020d", sequence) + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Entries read from the journal, the position they were read from and the
+     * position just after the last, or after the corrupt records skipped.
+     */
+    public record Batch(List<byte[]> entries, Position start, Position end) {
+
+        /**
+         * @return whether there is nothing to ship or commit
+         */
+        public boolean isEmpty() {
+            return entries.isEmpty() && start.equals(end);
+        }
+    }
+
+    /**
+     * A byte offset within a segment.
+     */
+    public record Position(long segment, int offset) implements Comparable<Position> {
+
+        @Override
+        public int compareTo(Position other) {
+            int bySegment = Long.compare(segment, other.segment);
+            return bySegment != 0 ? bySegment : Integer.compare(offset, other.offset);
+        }
+    }
+
+    private record Segment(long sequence, FileChannel channel, MappedByteBuffer buffer) {
+    }
+}
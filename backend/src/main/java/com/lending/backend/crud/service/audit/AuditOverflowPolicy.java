@@ -0,0 +1,22 @@
+package com.lending.backend.crud.service.audit;
+
+/**
+ * What happens to an audit entry when the write-behind queue is full.
+ */
+public enum AuditOverflowPolicy {
+    /**
+     * The caller waits until the queue has room. It keeps its database
+     * connection while it waits, and the writer needs one of its own to make
+     * room, so a pool smaller than the number of waiting callers can run dry.
+     */
+    BLOCK,
+    /**
+     * The caller writes the entry itself, in its own transaction. The
+     * default.
+     */
+    CALLER_RUNS,
+    /**
+     * The entry is discarded and counted as dropped.
+     */
+    DROP
+}
@@ -0,0 +1,241 @@
+package com.lending.backend.crud.service.audit;
+
+import com.lending.backend.config.CrudProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Maintains the monthly range partitions of {@code audit_trail} on
+ * {@code created_at}, set up by the {@code V4} migration. At startup and on
+ * {@code crud.audit.partitions.cron}:
+ * <ul>
+ * <li>Partitions for the current month and the next
+ * {@code premake-months} are created, so rows never land in the default
+ * partition.</li>
+ * <li>Partitions that ended {@code brin-after-months} ago and are no longer
+ * written get a BRIN index on {@code created_at}, a fraction of the size of a
+ * B-tree on append-ordered data.</li>
+ * <li>Partitions that ended {@code retention-months} ago are detached, moved to
+ * the archive schema or dropped, according to {@code retention-policy}. Each is
+ * a metadata change rather than a {@code DELETE} of its rows. The legacy
+ * partition holding the rows from before partitioning expires as a whole,
+ * once its newest month does.</li>
+ * </ul>
+ * Statements run one by one in auto-commit, so each lock on
+ * {@code audit_trail} is held only briefly. A session advisory lock keeps
+ * nodes from maintaining the partitions at the same time. Nothing is done
+ * if {@code audit_trail} is not partitioned.
+ */
+@Component
+@ConditionalOnProperty(prefix = "crud.audit.partitions", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AuditPartitionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditPartitionManager.class);
+
+    private static final String PARENT = "audit_trail";
+
+    private static final String PARTITION_PREFIX = "audit_trail_p";
+
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    // Arbitrary key of the advisory lock taken while partitions are maintained
+    private static final long LOCK_KEY = 0x61756469745f7074L;
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+
+    // The upper bound of each partition, null for the default partition
+    private static final String PARTITIONS_SQL = "SELECT c.relname,"
+            + " (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \\(''([^'']+)''\\)'))[1]::timestamptz"
+            + " FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent"
+            + " WHERE p.relname = ? AND p.relnamespace = current_schema()::regnamespace ORDER BY 2";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CrudProperties.Partitions properties;
+
+    public AuditPartitionManager(JdbcTemplate jdbcTemplate, CrudProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties.getAudit().getPartitions();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${crud.audit.partitions.cron:0 15 2 * * *}")
+    public void maintain() {
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                if (!isPartitioned(connection)) {
+                    logger.debug("{} is not partitioned, skipping partition maintenance", PARENT);
+                    return null;
+                }
+                if (!tryLock(connection)) {
+                    return null;
+                }
+                try {
+                    maintain(connection, YearMonth.now(ZoneOffset.UTC));
+                } finally {
+                    unlock(connection);
+                }
+                return null;
+            });
+        } catch (DataAccessException e) {
+            logger.warn("Could not maintain the partitions of {}: {}", PARENT, e.getMessage());
+        }
+    }
+
+    private void maintain(Connection connection, YearMonth current) throws SQLException {
+        List<Partition> partitions = partitions(connection);
+
+        // Ranges are contiguous, so new partitions start where the last one ends
+        Instant coveredUntil = partitions.stream()
+                .map(Partition::upperBound)
+                .filter(bound -> bound != null)
+                .max(Instant::compareTo)
+                .orElse(Instant.MIN);
+        for (YearMonth month = current; !month.isAfter(current.plusMonths(properties.getPremakeMonths()));
+                month = month.plusMonths(1)) {
+            if (!start(month).isBefore(coveredUntil)) {
+                createPartition(connection, month);
+            }
+        }
+
+        Instant brinBefore = start(current.minusMonths(properties.getBrinAfterMonths() - 1L));
+        Instant expiredBefore = start(current.minusMonths(properties.getRetentionMonths()));
+        for (Partition partition : partitions) {
+            if (partition.upperBound() == null) {
+                warnIfNotEmpty(connection, partition);
+                continue;
+            }
+            if (properties.getRetentionMonths() > 0 && !partition.upperBound().isAfter(expiredBefore)) {
+                expire(connection, partition);
+            } else if (!partition.upperBound().isAfter(brinBefore)) {
+                execute(connection, "CREATE INDEX IF NOT EXISTS " + partition.name() + "_created_brin ON "
+                        + partition.name() + " USING brin (created_at)");
+            }
+        }
+    }
+
+    private void createPartition(Connection connection, YearMonth month) {
+        String name = PARTITION_PREFIX + month.format(MONTH_SUFFIX);
+        try {
+            execute(connection, "CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + PARENT
+                    + " FOR VALUES FROM ('" + start(month) + "') TO ('" + start(month.plusMonths(1)) + "')");
+        } catch (SQLException e) {
+            // Typically rows of the month in the default partition, which must be moved by hand
+            logger.warn("Could not create audit partition {}: {}", name, e.getMessage());
+        }
+    }
+
+    private void expire(Connection connection, Partition partition) throws SQLException {
+        switch (properties.getRetentionPolicy()) {
+            case DETACH -> execute(connection, "ALTER TABLE " + PARENT + " DETACH PARTITION " + partition.name());
+            case ARCHIVE -> {
+                String schema = properties.getArchiveSchema();
+                if (!IDENTIFIER.matcher(schema).matches()) {
+                    logger.warn("Not archiving audit partition {}: invalid schema '{}'", partition.name(), schema);
+                    return;
+                }
+                execute(connection, "CREATE SCHEMA IF NOT EXISTS " + schema);
+                execute(connection, "ALTER TABLE " + PARENT + " DETACH PARTITION " + partition.name());
+                execute(connection, "ALTER TABLE " + partition.name() + " SET SCHEMA " + schema);
+            }
+            case DROP -> execute(connection, "DROP TABLE " + partition.name());
+        }
+        logger.info("Expired audit partition {} ({})", partition.name(), properties.getRetentionPolicy());
+    }
+
+    private void warnIfNotEmpty(Connection connection, Partition partition) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT EXISTS (SELECT 1 FROM " + partition.name() + ")")) {
+            if (rs.next() && rs.getBoolean(1)) {
+                logger.warn("Default audit partition {} holds rows; their months have no partition of their own",
+                        partition.name());
+            }
+        }
+    }
+
+    private boolean isPartitioned(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT EXISTS (SELECT 1"
+                + " FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid"
+                + " WHERE c.relname = ? AND c.relnamespace = current_schema()::regnamespace)")) {
+            statement.setString(1, PARENT);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private List<Partition> partitions(Connection connection) throws SQLException {
+        List<Partition> partitions = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(PARTITIONS_SQL)) {
+            statement.setString(1, PARENT);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp upperBound = rs.getTimestamp(2);
+                    if (IDENTIFIER.matcher(rs.getString(1)).matches()) {
+                        partitions.add(new Partition(rs.getString(1),
+                                upperBound != null ? upperBound.toInstant() : null));
+                    }
+                }
+            }
+        }
+        return partitions;
+    }
+
+    private boolean tryLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            statement.setLong(1, LOCK_KEY);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private void unlock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+            statement.setLong(1, LOCK_KEY);
+            statement.execute();
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static Instant start(YearMonth month) {
+        return month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    /**
+     * A partition of {@code audit_trail} by name and the exclusive end of its
+     * range, {@code null} for the default partition.
+     */
+    private record Partition(String name, Instant upperBound) {
+    }
+}
@@ -1,80 +1,299 @@
 package com.lending.backend.crud.service.audit;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.lending.backend.common.audit.BaseEntity;
+import com.lending.backend.config.CrudProperties;
+import com.lending.backend.crud.annotations.CrudEntity;
+import com.lending.backend.crud.annotations.ViewAuditMode;
 import com.lending.backend.crud.entity.AuditTrail;
+import com.lending.backend.crud.registry.CrudEntityRegistry;
 import com.lending.backend.crud.repository.AuditTrailRepository;
 import com.lending.backend.crud.service.context.SecurityContextService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Records who created, changed, deleted or viewed which entities. The user
+ * and request details are read, and the entities snapshot as JSON, on the
+ * calling thread; the entries are then handed to the
+ * {@link AuditWriteBehindQueue}, which writes them in batches. Whatever
+ * happens to an entity after it was logged, such as its flush, later hooks
+ * or its detachment, does not change its entry.
+ * Reads are recorded according to each entity's {@link ViewAuditMode}.
+ */
 @Service
 public class AuditService {
 
-    @Autowired
-    private AuditTrailRepository auditRepository;
+    private static final Logger logger = LoggerFactory.getLogger(AuditService.class);
 
     @Autowired
     private SecurityContextService securityContextService;
 
+    @Autowired
+    private AuditWriteBehindQueue auditQueue;
+
+    @Autowired
+    private AuditTrailRepository auditRepository;
+
     @Autowired
     private ObjectMapper objectMapper;
 
-    @Async("asyncExecutor")
+    @Autowired
+    private ViewAuditAggregator viewAggregator;
+
+    @Autowired
+    private CrudEntityRegistry entityRegistry;
+
+    @Autowired
+    private CrudProperties properties;
+
+    private final Map<String, ViewAuditMode> viewModes = new ConcurrentHashMap<>();
+
     public void logCreate(String entityName, String entityId, BaseEntity entity) {
-        try {
-            AuditTrail audit = createBaseAudit(entityName, entityId, AuditTrail.Operation.CREATE);
-            audit.setNewValues(objectMapper.writeValueAsString(entity));
-            auditRepository.save(audit);
-        } catch (JsonProcessingException e) {
-            // Log error but don't fail the main operation
-            System.err.println("Failed to log audit for create: " + e.getMessage());
-        }
+        AuditTrail audit = createBaseAudit(entityName, entityId, AuditTrail.Operation.CREATE);
+        audit.setEntityVersion(entity.getVersion());
+        auditQueue.enqueue(audit, null, snapshot(audit, entity));
     }
 
-    @Async("asyncExecutor")
+    /**
+     * Logs an update with only the fields that changed, their old values in
+     * the old values and their new values in the new values. An update that
+     * changed nothing is not logged: Hibernate issues no {@code UPDATE} for
+     * it and the version stays, so an entry would repeat the version of the
+     * next real update.
+     *
+     * @param oldEntity a copy of the entity taken before the update
+     */
     public void logUpdate(String entityName, String entityId, BaseEntity oldEntity, BaseEntity newEntity) {
-        try {
-            AuditTrail audit = createBaseAudit(entityName, entityId, AuditTrail.Operation.UPDATE);
-            audit.setOldValues(objectMapper.writeValueAsString(oldEntity));
-            audit.setNewValues(objectMapper.writeValueAsString(newEntity));
-            auditRepository.save(audit);
-        } catch (JsonProcessingException e) {
-            System.err.println("Failed to log audit for update: " + e.getMessage());
+        AuditTrail audit = createBaseAudit(entityName, entityId, AuditTrail.Operation.UPDATE);
+        // The new version is only assigned when the update is flushed
+        audit.setEntityVersion(oldEntity.getVersion() != null ? oldEntity.getVersion() + 1 : newEntity.getVersion());
+        if (snapshot(audit, oldEntity) instanceof ObjectNode before
+                && snapshot(audit, newEntity) instanceof ObjectNode after) {
+            EntityDiffer.Diff diff = EntityDiffer.diff(before, after);
+            if (diff.isEmpty()) {
+                return;
+            }
+            auditQueue.enqueue(audit, diff.before(), diff.after());
+        } else {
+            auditQueue.enqueue(audit, null, null);
         }
     }
 
-    @Async("asyncExecutor")
     public void logDelete(String entityName, String entityId, BaseEntity entity) {
-        try {
-            AuditTrail audit = createBaseAudit(entityName, entityId, AuditTrail.Operation.DELETE);
-            audit.setOldValues(objectMapper.writeValueAsString(entity));
-            auditRepository.save(audit);
-        } catch (JsonProcessingException e) {
-            System.err.println("Failed to log audit for delete: " + e.getMessage());
-        }
+        AuditTrail audit = createBaseAudit(entityName, entityId, AuditTrail.Operation.DELETE);
+        // Orders the delete after the last update, as a soft delete does
+        audit.setEntityVersion(entity.getVersion() != null ? entity.getVersion() + 1 : null);
+        auditQueue.enqueue(audit, snapshot(audit, entity), null);
     }
 
-    @Async("asyncExecutor")
     public void logView(String entityName, String entityId, BaseEntity entity) {
-        AuditTrail audit = createBaseAudit(entityName, entityId, AuditTrail.Operation.VIEW);
-        auditRepository.save(audit);
+        logViews(entityName, entityId, 1, null);
     }
 
-    @Async("asyncExecutor")
-    public void logBulkCreate(String entityName, List<? extends BaseEntity> entities) {
-        entities.forEach(entity -> logCreate(entityName, entity.getId().toString(), entity));
+    /**
+     * Logs the creation of many entities, one entry each. The entries are
+     * written in batches together with the other queued entries.
+     *
+     * @param tenantId the tenant the entities were created for, which a
+     *                 background job cannot take from a request; {@code null}
+     *                 for the current tenant
+     */
+    public void logBulkCreate(String entityName, String tenantId, List<? extends BaseEntity> entities) {
+        for (BaseEntity entity : entities) {
+            AuditTrail audit = createBaseAudit(entityName, entity.getId().toString(), AuditTrail.Operation.CREATE);
+            if (tenantId != null) {
+                audit.setTenantId(tenantId);
+            }
+            audit.setEntityVersion(entity.getVersion());
+            auditQueue.enqueue(audit, null, snapshot(audit, entity));
+        }
+    }
+
+    /**
+     * Logs a set-based update as one entry with the filters, the changes and
+     * the number of affected rows.
+     */
+    public void logBulkUpdate(String entityName, long count, Object criteria, Map<String, Object> changes) {
+        logBulkChange(createBaseAudit(entityName, "bulk", AuditTrail.Operation.UPDATE), count, criteria, changes);
+    }
+
+    /**
+     * Logs a set-based delete as one entry with the filters and the number of
+     * affected rows.
+     */
+    public void logBulkDelete(String entityName, long count, Object criteria) {
+        logBulkChange(createBaseAudit(entityName, "bulk", AuditTrail.Operation.DELETE), count, criteria, null);
+    }
+
+    private void logBulkChange(AuditTrail audit, long count, Object criteria, Map<String, Object> changes) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", count);
+        summary.put("criteria", criteria);
+        if (changes != null) {
+            summary.put("changes", changes);
+        }
+        auditQueue.enqueue(audit, null, snapshot(audit, summary));
+    }
+
+    public void logBulkIngest(String entityName, long count) {
+        AuditTrail audit = createBaseAudit(entityName, "bulk", AuditTrail.Operation.CREATE);
+        audit.setNewValues("Ingested " + count + " records");
+        auditQueue.enqueue(audit, null, null);
     }
 
-    @Async("asyncExecutor")
     public void logBulkView(String entityName, int count) {
-        AuditTrail audit = createBaseAudit(entityName, "bulk", AuditTrail.Operation.VIEW);
-        audit.setNewValues("Viewed " + count + " records");
-        auditRepository.save(audit);
+        logViews(entityName, "bulk", count, "Viewed " + count + " records");
+    }
+
+    /**
+     * Starts the entry of an export on the calling thread, which still has
+     * the request's user and tenant. The entry is queued once the export
+     * {@linkplain ExportAudit#complete completes}, possibly on another
+     * thread. Exports are always logged, whatever the view audit mode.
+     *
+     * @param criteria the export's filters
+     */
+    public ExportAudit startExport(String entityName, Object criteria) {
+        AuditTrail audit = createBaseAudit(entityName, "export", AuditTrail.Operation.VIEW);
+        return new ExportAudit(audit, snapshot(audit, criteria));
+    }
+
+    /**
+     * The entry of an export in progress, see {@link #startExport}.
+     */
+    public final class ExportAudit {
+
+        private final AuditTrail audit;
+        private final JsonNode criteria;
+
+        private ExportAudit(AuditTrail audit, JsonNode criteria) {
+            this.audit = audit;
+            this.criteria = criteria;
+        }
+
+        /**
+         * Queues the entry with the number of rows sent.
+         *
+         * @param completed whether every row was sent, or the export failed
+         *                  after {@code count} rows
+         */
+        public void complete(long count, boolean completed) {
+            ObjectNode summary = objectMapper.createObjectNode();
+            summary.put("exported", count);
+            summary.put("completed", completed);
+            summary.set("criteria", criteria);
+            auditQueue.enqueue(audit, null, summary);
+        }
+    }
+
+    private void logViews(String entityName, String entityId, long count, String description) {
+        switch (viewAuditMode(entityName)) {
+            case FULL, DEFAULT -> {
+                AuditTrail audit = createBaseAudit(entityName, entityId, AuditTrail.Operation.VIEW);
+                audit.setNewValues(description);
+                auditQueue.enqueue(audit, null, null);
+            }
+            case SAMPLED -> {
+                double rate = properties.getAudit().getViews().getSampleRate();
+                if (ThreadLocalRandom.current().nextDouble() < rate) {
+                    AuditTrail audit = createBaseAudit(entityName, entityId, AuditTrail.Operation.VIEW);
+                    String sampled = "Sampled at rate " + rate;
+                    audit.setNewValues(description != null ? description + ", " + sampled : sampled);
+                    auditQueue.enqueue(audit, null, null);
+                }
+            }
+            case AGGREGATED -> viewAggregator.record(entityName, securityContextService.getCurrentUserId(),
+                    securityContextService.getCurrentTenantId(), count);
+            default -> {
+            }
+        }
+    }
+
+    private ViewAuditMode viewAuditMode(String entityName) {
+        return viewModes.computeIfAbsent(entityName, name -> {
+            CrudEntity annotation = entityRegistry.findAnnotation(name).orElse(null);
+            if (annotation != null && !annotation.enableAudit()) {
+                return ViewAuditMode.NONE;
+            }
+            ViewAuditMode mode = annotation != null ? annotation.viewAudit() : ViewAuditMode.DEFAULT;
+            return mode != ViewAuditMode.DEFAULT ? mode : properties.getAudit().getViews().getMode();
+        });
+    }
+
+    /**
+     * Rebuilds an entity's state by replaying its entries: the snapshot of its
+     * creation, then the changed fields of each update. Entries still queued
+     * for writing, set-based bulk changes and ingested rows are not included.
+     *
+     * @param tenantId only entries of this tenant, or {@code null} for all
+     * @param version  the state as of this version, or {@code null} for the
+     *                 latest
+     * @param asOf     the state as of this time, or {@code null} for the
+     *                 latest
+     * @return the state as JSON, or empty if the entity did not exist then
+     */
+    public Optional<ObjectNode> reconstruct(String entityName, String entityId, String tenantId, Long version,
+            Instant asOf) {
+        ObjectNode state = null;
+        for (AuditTrail entry : auditRepository.findChanges(entityName, entityId, tenantId, version, asOf)) {
+            switch (entry.getOperation()) {
+                case CREATE -> state = readObject(entry.getNewValues());
+                case UPDATE -> {
+                    ObjectNode changes = readObject(entry.getNewValues());
+                    if (state != null && changes != null) {
+                        state.setAll(changes);
+                    }
+                }
+                case DELETE -> state = null;
+                default -> {
+                }
+            }
+            if (state != null && entry.getEntityVersion() != null) {
+                state.put("version", entry.getEntityVersion());
+            }
+        }
+        return Optional.ofNullable(state);
+    }
+
+    private ObjectNode readObject(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(json) instanceof ObjectNode object ? object : null;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Converts a value to JSON as it is now.
+     *
+     * @return the JSON, or {@code null} if the value cannot be converted, in
+     *         which case the entry is written without it
+     */
+    private JsonNode snapshot(AuditTrail audit, Object value) {
+        try {
+            return objectMapper.valueToTree(value);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Failed to serialize audit values of {} {}: {}", audit.getEntityName(),
+                    audit.getEntityId(), e.getMessage());
+            return null;
+        }
     }
 
     private AuditTrail createBaseAudit(String entityName, String entityId, AuditTrail.Operation operation) {
@@ -0,0 +1,496 @@
+package com.lending.backend.crud.service.audit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lending.backend.config.CrudProperties;
+import com.lending.backend.crud.entity.AuditTrail;
+import com.lending.backend.crud.repository.AuditTrailRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Collects audit entries and writes them behind the callers' backs, many at a
+ * time:
+ * <ul>
+ * <li>Entries of changes are queued once the caller's transaction commits,
+ * so a change that rolls back leaves no entry; entries of reads are queued at
+ * once.</li>
+ * <li>Callers only add the entry to a lock-free queue bounded at
+ * {@code crud.audit.queue-capacity}; once it is full,
+ * {@code crud.audit.overflow} decides whether they wait, write the entry
+ * themselves or drop it.</li>
+ * <li>A single writer thread takes batches of up to
+ * {@code crud.audit.batch-size} entries, as soon as a batch is full or at the
+ * latest after {@code crud.audit.flush-interval}, renders their values and
+ * saves each batch in one transaction, which Hibernate sends as JDBC
+ * batches. The values are JSON snapshots taken by the callers, so nothing
+ * the callers do afterwards changes them.</li>
+ * <li>On shutdown the writer drains the queue before it stops.</li>
+ * </ul>
+ * A batch that fails because the database cannot be reached is queued again
+ * and retried. A batch the database rejects is saved entry by entry, and the
+ * entries it still rejects are logged and counted as failed. The queue
+ * depth, batch sizes, write latency and dropped or failed entries are
+ * published as {@code crud.audit.*} meters.
+ * <p>
+ * With {@code crud.audit.journal.enabled}, entries are instead serialized on
+ * the caller and appended to the {@link AuditJournal}, which neither blocks
+ * on the database nor loses entries on a crash. The writer ships the journal
+ * in batches of the same size and retries a batch that fails to save, so an
+ * entry may be written twice but is never dropped. A batch the database
+ * rejects, rather than one it cannot take right now, is written row by row,
+ * and the rows it still rejects are appended to the journal's dead-letter
+ * file and counted. Only entries the journal refuses, such as those larger
+ * than a segment, go through the in-memory queue.
+ */
+@Component
+public class AuditWriteBehindQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditWriteBehindQueue.class);
+
+    // How long a blocked caller parks before it checks the queue again
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AuditTrailRepository auditRepository;
+    private final ObjectMapper objectMapper;
+    private final CrudProperties.Audit properties;
+    // null unless the journal is enabled
+    private final AuditJournal journal;
+    private final Queue<PendingAudit> queue = new ConcurrentLinkedQueue<>();
+    // Entries in the queue, kept separately as the queue's own size is not constant-time
+    private final AtomicInteger depth = new AtomicInteger();
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter dropped;
+    private final Counter failed;
+    private final TransactionTemplate ownTransaction;
+    // null unless the journal is enabled
+    private final Counter deadLetters;
+    private Thread writer;
+    private volatile boolean running = true;
+
+    public AuditWriteBehindQueue(AuditTrailRepository auditRepository, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry, CrudProperties properties, ObjectProvider<AuditJournal> auditJournal,
+            PlatformTransactionManager transactionManager) {
+        this.auditRepository = auditRepository;
+        this.ownTransaction = new TransactionTemplate(transactionManager);
+        this.ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+        this.properties = properties.getAudit();
+        this.journal = auditJournal.getIfAvailable();
+        Gauge.builder("crud.audit.queue.depth", depth, AtomicInteger::get)
+                .description("Audit entries waiting to be written").register(meterRegistry);
+        if (journal != null) {
+            Gauge.builder("crud.audit.journal.pending", journal, AuditJournal::pendingBytes)
+                    .description("Bytes of journaled audit entries not yet shipped")
+                    .baseUnit("bytes").register(meterRegistry);
+            FunctionCounter.builder("crud.audit.journal.corrupt", journal, AuditJournal::corruptRecords)
+                    .description("Journal records skipped because they failed their checksum")
+                    .register(meterRegistry);
+            this.deadLetters = Counter.builder("crud.audit.journal.dead.letters")
+                    .description("Journaled audit entries moved to the dead letters instead of being written")
+                    .register(meterRegistry);
+        } else {
+            this.deadLetters = null;
+        }
+        this.flushTimer = Timer.builder("crud.audit.flush")
+                .description("Time to serialize and save one batch of audit entries")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("crud.audit.flush.size")
+                .description("Audit entries per written batch")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("crud.audit.dropped")
+                .description("Audit entries discarded because the queue was full")
+                .register(meterRegistry);
+        this.failed = Counter.builder("crud.audit.failed")
+                .description("Audit entries the database rejected")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        writer = new Thread(this::runWriter, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        if (depth.get() > 0) {
+            logger.warn("Stopped with {} audit entries not written", depth.get());
+        }
+    }
+
+    /**
+     * Queues an entry. The snapshots must not be changed afterwards.
+     *
+     * @param audit     the entry, with its user and request details set
+     * @param oldValues written as the old values, or {@code null} to keep the
+     *                  entry's
+     * @param newValues written as the new values, or {@code null} to keep the
+     *                  entry's
+     */
+    public void enqueue(AuditTrail audit, JsonNode oldValues, JsonNode newValues) {
+        enqueue(new PendingAudit(audit, oldValues, newValues));
+    }
+
+    private void enqueue(PendingAudit pending) {
+        pending.audit().setCreatedAt(Instant.now());
+        // A change is audited only once it has committed; a read happened either way
+        if (pending.audit().getOperation() != AuditTrail.Operation.VIEW
+                && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    offer(pending);
+                }
+            });
+            return;
+        }
+        offer(pending);
+    }
+
+    private void offer(PendingAudit pending) {
+        if (journal != null && appendToJournal(pending)) {
+            return;
+        }
+        if (!running) {
+            write(List.of(pending));
+            return;
+        }
+
+        while (!tryReserve()) {
+            switch (properties.getOverflow()) {
+                case DROP -> {
+                    dropped.increment();
+                    return;
+                }
+                case CALLER_RUNS -> {
+                    write(List.of(pending));
+                    return;
+                }
+                case BLOCK -> {
+                    LockSupport.unpark(writer);
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                    if (!running) {
+                        write(List.of(pending));
+                        return;
+                    }
+                }
+            }
+        }
+        queue.offer(pending);
+        if (depth.get() >= properties.getBatchSize()) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private boolean tryReserve() {
+        int current;
+        do {
+            current = depth.get();
+            if (current >= properties.getQueueCapacity()) {
+                return false;
+            }
+        } while (!depth.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void runWriter() {
+        long intervalNanos = properties.getFlushInterval().toNanos();
+        long deadline = System.nanoTime() + intervalNanos;
+        while (running || depth.get() > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (running && depth.get() < properties.getBatchSize() && remaining > 0) {
+                LockSupport.parkNanos(this, remaining);
+                continue;
+            }
+            boolean flushed = flushAvailable();
+            if (journal != null) {
+                shipJournal();
+            }
+            if (!flushed) {
+                // The database is unavailable: wait a round instead of retrying at once
+                LockSupport.parkNanos(this, intervalNanos);
+            }
+            deadline = System.nanoTime() + intervalNanos;
+        }
+    }
+
+    private boolean appendToJournal(PendingAudit pending) {
+        try {
+            return journal.append(objectMapper.writeValueAsBytes(JournalEntry.of(render(pending))));
+        } catch (JsonProcessingException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the journaled entries, a batch at a time, until none are left or
+     * the database cannot be reached; the failed batch is shipped again on the
+     * next round. A batch that the database rejects is written again row by
+     * row, and the rows it still rejects are moved to the dead letters, so one
+     * bad entry never holds up the journal.
+     */
+    private void shipJournal() {
+        journal.sync();
+        AuditJournal.Batch batch;
+        while (!(batch = journal.read(properties.getBatchSize())).isEmpty()) {
+            long start = System.nanoTime();
+            try {
+                List<byte[]> entries = new ArrayList<>(batch.entries().size());
+                List<JournalEntry> journalEntries = new ArrayList<>(batch.entries().size());
+                for (byte[] entry : batch.entries()) {
+                    try {
+                        journalEntries.add(objectMapper.readValue(entry, JournalEntry.class));
+                        entries.add(entry);
+                    } catch (IOException e) {
+                        deadLetter(entry, "unreadable: " + e.getMessage());
+                    }
+                }
+                List<AuditTrail> saved = saveJournaled(entries, journalEntries);
+                if (saved == null) {
+                    return;
+                }
+                journal.commit(batch);
+                batchSizes.record(saved.size());
+            } catch (IOException e) {
+                logger.warn("Failed to ship journaled audit entries, retrying later: {}", e.getMessage());
+                return;
+            } finally {
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Saves the entries of a batch, falling back to one at a time if the
+     * database rejects the batch.
+     *
+     * @return the saved entries, or {@code null} if the batch must be shipped
+     *         again later
+     */
+    private List<AuditTrail> saveJournaled(List<byte[]> entries, List<JournalEntry> journalEntries)
+            throws IOException {
+        try {
+            List<AuditTrail> saved = auditRepository.saveAll(
+                    journalEntries.stream().map(JournalEntry::toAuditTrail).toList());
+            checkRecordedTimes(saved, journalEntries);
+            return saved;
+        } catch (RuntimeException e) {
+            if (!isPermanent(e)) {
+                logger.warn("Failed to ship {} journaled audit entries, retrying later: {}", entries.size(),
+                        e.getMessage());
+                return null;
+            }
+            logger.warn("The database rejected a batch of {} journaled audit entries, writing them one by one: {}",
+                    entries.size(), e.getMessage());
+        }
+
+        List<AuditTrail> saved = new ArrayList<>(entries.size());
+        List<JournalEntry> savedEntries = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            try {
+                saved.add(auditRepository.save(journalEntries.get(i).toAuditTrail()));
+                savedEntries.add(journalEntries.get(i));
+            } catch (RuntimeException e) {
+                if (!isPermanent(e)) {
+                    // Rows saved so far are written again with the batch: at least once
+                    logger.warn("Failed to ship journaled audit entries, retrying later: {}", e.getMessage());
+                    return null;
+                }
+                deadLetter(entries.get(i), NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            }
+        }
+        checkRecordedTimes(saved, savedEntries);
+        return saved;
+    }
+
+    // Failures that writing the same entry again would repeat, unlike a lost connection
+    private static boolean isPermanent(RuntimeException e) {
+        return e instanceof NonTransientDataAccessException
+                && !(e instanceof NonTransientDataAccessResourceException);
+    }
+
+    private void deadLetter(byte[] entry, String reason) throws IOException {
+        journal.deadLetter(entry);
+        deadLetters.increment();
+        logger.error("Moved a journaled audit entry to the dead letters: {}", reason);
+    }
+
+    /**
+     * Warns if written entries lost the time they were recorded, which the
+     * ordering of an entity's entries, {@code reconstruct} and the monthly
+     * partitions all rely on.
+     */
+    private void checkRecordedTimes(List<AuditTrail> saved, List<JournalEntry> journalEntries) {
+        for (int i = 0; i < saved.size(); i++) {
+            Instant recordedAt = journalEntries.get(i).createdAt();
+            if (recordedAt != null && !recordedAt.equals(saved.get(i).getCreatedAt())) {
+                logger.warn("Journaled audit entries were written with their write time {} instead of their"
+                        + " recorded time {}", saved.get(i).getCreatedAt(), recordedAt);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes everything queued so far, a batch at a time, stopping at the
+     * first batch that has to be retried.
+     *
+     * @return whether everything was written
+     */
+    private boolean flushAvailable() {
+        int batchSize = properties.getBatchSize();
+        List<PendingAudit> batch = new ArrayList<>(batchSize);
+        PendingAudit pending;
+        while ((pending = queue.poll()) != null) {
+            batch.add(pending);
+            if (batch.size() == batchSize) {
+                depth.addAndGet(-batch.size());
+                if (!write(batch)) {
+                    return false;
+                }
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            depth.addAndGet(-batch.size());
+            return write(batch);
+        }
+        return true;
+    }
+
+    /**
+     * Saves a batch in a transaction of its own, even when called back after
+     * the caller's transaction committed. If the database cannot be reached
+     * the batch is queued again; if it rejects the batch, the entries are
+     * saved one by one and only those it still rejects are counted as failed.
+     *
+     * @return whether the batch was written, rather than queued again
+     */
+    private boolean write(List<PendingAudit> batch) {
+        long start = System.nanoTime();
+        List<AuditTrail> audits = new ArrayList<>(batch.size());
+        for (PendingAudit pending : batch) {
+            audits.add(render(pending));
+        }
+        try {
+            ownTransaction.executeWithoutResult(status -> auditRepository.saveAll(audits));
+            batchSizes.record(audits.size());
+            return true;
+        } catch (RuntimeException e) {
+            if (!isPermanent(e)) {
+                logger.warn("Failed to write {} audit entries, retrying later: {}", audits.size(), e.getMessage());
+                requeue(batch);
+                return false;
+            }
+            logger.warn("The database rejected a batch of {} audit entries, writing them one by one: {}",
+                    audits.size(), e.getMessage());
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        for (int i = 0; i < audits.size(); i++) {
+            AuditTrail audit = audits.get(i);
+            try {
+                ownTransaction.executeWithoutResult(status -> auditRepository.save(audit));
+            } catch (RuntimeException e) {
+                if (!isPermanent(e)) {
+                    logger.warn("Failed to write audit entries, retrying later: {}", e.getMessage());
+                    requeue(batch.subList(i, batch.size()));
+                    return false;
+                }
+                failed.increment();
+                logger.error("Failed to write the audit entry of {} {}", audit.getEntityName(), audit.getEntityId(),
+                        e);
+            }
+        }
+        return true;
+    }
+
+    // Past the capacity if need be, as the entries were let in once already
+    private void requeue(List<PendingAudit> batch) {
+        depth.addAndGet(batch.size());
+        queue.addAll(batch);
+    }
+
+    private static AuditTrail render(PendingAudit pending) {
+        AuditTrail audit = pending.audit();
+        if (pending.oldValues() != null) {
+            audit.setOldValues(pending.oldValues().toString());
+        }
+        if (pending.newValues() != null) {
+            audit.setNewValues(pending.newValues().toString());
+        }
+        return audit;
+    }
+
+    /**
+     * An entry waiting to be written, with the snapshots to write into it.
+     */
+    private record PendingAudit(AuditTrail audit, JsonNode oldValues, JsonNode newValues) {
+    }
+
+    /**
+     * The fields of an entry as written to the journal.
+     */
+    private record JournalEntry(String entityName, String entityId, AuditTrail.Operation operation,
+            String oldValues, String newValues, String userId, String ipAddress, String userAgent,
+            String tenantId, Long entityVersion, Instant createdAt) {
+
+        static JournalEntry of(AuditTrail audit) {
+            return new JournalEntry(audit.getEntityName(), audit.getEntityId(), audit.getOperation(),
+                    audit.getOldValues(), audit.getNewValues(), audit.getUserId(), audit.getIpAddress(),
+                    audit.getUserAgent(), audit.getTenantId(), audit.getEntityVersion(), audit.getCreatedAt());
+        }
+
+        AuditTrail toAuditTrail() {
+            AuditTrail audit = new AuditTrail();
+            audit.setEntityName(entityName);
+            audit.setEntityId(entityId);
+            audit.setOperation(operation);
+            audit.setOldValues(oldValues);
+            audit.setNewValues(newValues);
+            audit.setUserId(userId);
+            audit.setIpAddress(ipAddress);
+            audit.setUserAgent(userAgent);
+            audit.setTenantId(tenantId);
+            audit.setEntityVersion(entityVersion);
+            audit.setCreatedAt(createdAt);
+            return audit;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.lending.backend.crud.service.audit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Computes which properties differ between two JSON snapshots of an entity.
+ * The snapshots are taken on the caller, while the entity is in a known
+ * state; the comparison can then run anywhere.
+ */
+final class EntityDiffer {
+
+    private EntityDiffer() {
+    }
+
+    /**
+     * The changed properties, by their JSON name, before and after the
+     * change. A property missing on one side is {@code null} there.
+     */
+    record Diff(ObjectNode before, ObjectNode after) {
+
+        boolean isEmpty() {
+            return after.isEmpty();
+        }
+    }
+
+    /**
+     * Compares two snapshots of the same entity.
+     */
+    static Diff diff(ObjectNode before, ObjectNode after) {
+        ObjectNode beforeNode = JsonNodeFactory.instance.objectNode();
+        ObjectNode afterNode = JsonNodeFactory.instance.objectNode();
+        for (Iterator<Map.Entry<String, JsonNode>> fields = after.fields(); fields.hasNext();) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode oldValue = before.get(field.getKey());
+            if (!field.getValue().equals(oldValue)) {
+                beforeNode.set(field.getKey(), oldValue != null ? oldValue : NullNode.getInstance());
+                afterNode.set(field.getKey(), field.getValue());
+            }
+        }
+        for (Iterator<String> names = before.fieldNames(); names.hasNext();) {
+            String name = names.next();
+            if (!after.has(name)) {
+                beforeNode.set(name, before.get(name));
+                afterNode.set(name, NullNode.getInstance());
+            }
+        }
+        return new Diff(beforeNode, afterNode);
+    }
+}
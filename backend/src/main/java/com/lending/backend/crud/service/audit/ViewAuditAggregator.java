@@ -0,0 +1,104 @@
+package com.lending.backend.crud.service.audit;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lending.backend.config.CrudProperties;
+import com.lending.backend.crud.entity.AuditTrail;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts reads of entities in the aggregated view audit mode, see
+ * {@link com.lending.backend.crud.annotations.ViewAuditMode#AGGREGATED}.
+ * Reads are counted per entity, user, tenant and time window without any
+ * write; once a window has closed, its counts are queued as one
+ * {@code VIEW} entry with the entity id {@code aggregate}, holding the number
+ * of reads, the number of records read and the window's bounds.
+ * <p>
+ * Counts are kept in memory only: those of open windows are written on
+ * shutdown, but lost if the process dies.
+ */
+@Component
+public class ViewAuditAggregator {
+
+    public static final String AGGREGATE_ENTITY_ID = "aggregate";
+
+    // Reads counted just as their window closes may still arrive this late
+    private static final long GRACE_MILLIS = 1_000;
+
+    private final AuditWriteBehindQueue auditQueue;
+    private final CrudProperties.Views properties;
+    private final Map<Window, Counts> windows = new ConcurrentHashMap<>();
+
+    public ViewAuditAggregator(AuditWriteBehindQueue auditQueue, CrudProperties properties) {
+        this.auditQueue = auditQueue;
+        this.properties = properties.getAudit().getViews();
+    }
+
+    /**
+     * Counts one read of {@code records} records in the current window.
+     */
+    public void record(String entityName, String userId, String tenantId, long records) {
+        long length = properties.getWindow().toMillis();
+        long start = System.currentTimeMillis() / length * length;
+        Counts counts = windows.computeIfAbsent(new Window(entityName, userId, tenantId, start, start + length),
+                window -> new Counts());
+        counts.views.increment();
+        counts.records.add(records);
+    }
+
+    @Scheduled(fixedDelayString = "${crud.audit.views.flush-interval-ms:10000}")
+    public void flushClosed() {
+        long closedBefore = System.currentTimeMillis() - GRACE_MILLIS;
+        for (Window window : windows.keySet()) {
+            if (window.end() <= closedBefore) {
+                flush(window);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        for (Window window : windows.keySet()) {
+            flush(window);
+        }
+    }
+
+    private void flush(Window window) {
+        Counts counts = windows.remove(window);
+        if (counts == null || counts.views.sum() == 0) {
+            return;
+        }
+        AuditTrail audit = new AuditTrail();
+        audit.setEntityName(window.entityName());
+        audit.setEntityId(AGGREGATE_ENTITY_ID);
+        audit.setOperation(AuditTrail.Operation.VIEW);
+        audit.setUserId(window.userId());
+        audit.setTenantId(window.tenantId());
+
+        ObjectNode summary = JsonNodeFactory.instance.objectNode();
+        summary.put("views", counts.views.sum());
+        summary.put("records", counts.records.sum());
+        summary.put("from", Instant.ofEpochMilli(window.start()).toString());
+        summary.put("to", Instant.ofEpochMilli(window.end()).toString());
+        auditQueue.enqueue(audit, null, summary);
+    }
+
+    /**
+     * What reads are counted together: those of one user and tenant on one
+     * entity within one window, bounded in epoch milliseconds.
+     */
+    private record Window(String entityName, String userId, String tenantId, long start, long end) {
+    }
+
+    private static final class Counts {
+        private final LongAdder views = new LongAdder();
+        private final LongAdder records = new LongAdder();
+    }
+}
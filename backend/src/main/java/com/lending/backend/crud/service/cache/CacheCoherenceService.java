@@ -0,0 +1,246 @@
+package com.lending.backend.crud.service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lending.backend.config.CrudProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the local caches of all application nodes coherent through a
+ * PostgreSQL LISTEN/NOTIFY channel.
+ * <p>
+ * Every {@link CacheInvalidation} published by {@link CacheService} is queued
+ * once the surrounding transaction has committed, so other nodes never reload
+ * the old row before the new one is visible. A scheduled flush coalesces the
+ * queue (duplicates are dropped, a cache with many evictions is cleared
+ * instead, a clear supersedes everything else for that cache) and sends it
+ * with as few NOTIFYs as the payload limit allows.
+ * <p>
+ * A dedicated listener thread holds its own connection outside the pool,
+ * applies the invalidations of the other nodes and, after losing the
+ * connection, clears all local caches because notifications sent in the
+ * meantime are lost.
+ */
+@Service
+@ConditionalOnProperty(prefix = "crud.cache.coherence", name = "enabled", havingValue = "true")
+public class CacheCoherenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheCoherenceService.class);
+
+    // NOTIFY payloads must be shorter than 8000 bytes in the default configuration
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final CacheService cacheService;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final CrudProperties.Coherence properties;
+    private final CacheInvalidationCodec codec;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Queue<CacheInvalidation> pending = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean running;
+    private volatile Connection listenConnection;
+    private Thread listenerThread;
+
+    public CacheCoherenceService(CacheService cacheService, JdbcTemplate jdbcTemplate,
+            DataSourceProperties dataSourceProperties, CrudProperties properties, ObjectMapper objectMapper) {
+        this.cacheService = cacheService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.properties = properties.getCache().getCoherence();
+        this.codec = new CacheInvalidationCodec(objectMapper, MAX_PAYLOAD_BYTES);
+        if (!CHANNEL_NAME.matcher(this.properties.getChannel()).matches()) {
+            throw new IllegalArgumentException("Invalid cache coherence channel: " + this.properties.getChannel());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        listenerThread = new Thread(this::listen, "cache-coherence-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+        logger.info("Cache coherence enabled on channel '{}' as node {}.", properties.getChannel(), nodeId);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        flush();
+        closeQuietly(listenConnection);
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    /**
+     * Queues an invalidation for the other nodes once the transaction that
+     * caused it has committed, or immediately outside of a transaction.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onInvalidation(CacheInvalidation invalidation) {
+        pending.offer(invalidation);
+    }
+
+    /**
+     * Sends the queued invalidations. Failed sends are queued again and
+     * retried with the next flush.
+     */
+    @Scheduled(fixedDelayString = "${crud.cache.coherence.flush-interval-ms:50}")
+    public void flush() {
+        List<CacheInvalidation> drained = new ArrayList<>();
+        CacheInvalidation invalidation;
+        while ((invalidation = pending.poll()) != null) {
+            drained.add(invalidation);
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        List<CacheInvalidation> coalesced = coalesce(drained);
+        try {
+            for (String payload : codec.encode(nodeId, coalesced)) {
+                jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class, properties.getChannel(),
+                        payload);
+            }
+            logger.debug("Published {} cache invalidations ({} before coalescing).", coalesced.size(),
+                    drained.size());
+        } catch (Exception e) {
+            logger.warn("Could not publish {} cache invalidations, retrying with the next flush.",
+                    coalesced.size(), e);
+            pending.addAll(coalesced);
+        }
+    }
+
+    private List<CacheInvalidation> coalesce(List<CacheInvalidation> invalidations) {
+        Map<String, CacheChanges> changesByCache = new LinkedHashMap<>();
+        for (CacheInvalidation invalidation : invalidations) {
+            CacheChanges changes = changesByCache.computeIfAbsent(invalidation.cacheName(), k -> new CacheChanges());
+            switch (invalidation.type()) {
+                case CLEAR -> changes.cleared = true;
+                case ADVANCE -> changes.namespaces.add(invalidation.namespace());
+                case EVICT -> {
+                    if (codec.encodable(invalidation.key())) {
+                        changes.keys.add(invalidation.key());
+                    } else {
+                        // The key cannot be rebuilt on the other nodes
+                        changes.cleared = true;
+                    }
+                }
+            }
+        }
+
+        List<CacheInvalidation> coalesced = new ArrayList<>();
+        changesByCache.forEach((cacheName, changes) -> {
+            if (changes.cleared || changes.keys.size() > properties.getMaxEvictionsPerCache()) {
+                coalesced.add(CacheInvalidation.clear(cacheName));
+                return;
+            }
+            changes.namespaces.forEach(namespace -> coalesced.add(CacheInvalidation.advance(cacheName, namespace)));
+            changes.keys.forEach(key -> coalesced.add(CacheInvalidation.evict(cacheName, key)));
+        });
+        return coalesced;
+    }
+
+    private void listen() {
+        boolean connectedBefore = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                listenConnection = connection;
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + properties.getChannel());
+                }
+                if (connectedBefore) {
+                    logger.warn("Cache coherence listener reconnected; clearing local caches.");
+                    cacheService.clearAllLocally();
+                }
+                connectedBefore = true;
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(properties.getPollTimeoutMs());
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            apply(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    logger.error("Cache coherence listener lost its connection, reconnecting in {} ms.",
+                            properties.getReconnectDelayMs(), e);
+                    sleep(properties.getReconnectDelayMs());
+                }
+            } finally {
+                listenConnection = null;
+            }
+        }
+    }
+
+    private void apply(String payload) {
+        try {
+            CacheInvalidationCodec.Message message = codec.decode(payload);
+            if (nodeId.equals(message.nodeId())) {
+                return;
+            }
+            message.invalidations().forEach(cacheService::apply);
+            logger.debug("Applied {} cache invalidations from node {}.", message.invalidations().size(),
+                    message.nodeId());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Ignoring malformed cache invalidation payload: {}", payload, e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.debug("Error closing cache coherence connection", e);
+            }
+        }
+    }
+
+    private static final class CacheChanges {
+        private boolean cleared;
+        private final Set<String> namespaces = new LinkedHashSet<>();
+        private final Set<Object> keys = new LinkedHashSet<>();
+    }
+}
@@ -0,0 +1,34 @@
+package com.lending.backend.crud.service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Weigher;
+
+/**
+ * Estimates the heap footprint of a cache entry from the size of its JSON
+ * form. The estimate is only computed when an entry is written, and only for
+ * caches with a byte budget.
+ */
+public class CacheEntryWeigher implements Weigher<Object, Object> {
+
+    // Fallback for values that cannot be serialized
+    private static final int DEFAULT_WEIGHT = 1024;
+
+    // Rough per-entry overhead of the key, the cache node and object headers
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final ObjectMapper objectMapper;
+
+    public CacheEntryWeigher(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public int weigh(Object key, Object value) {
+        try {
+            long bytes = (long) objectMapper.writeValueAsBytes(value).length + ENTRY_OVERHEAD;
+            return (int) Math.min(bytes, Integer.MAX_VALUE);
+        } catch (Exception e) {
+            return DEFAULT_WEIGHT;
+        }
+    }
+}
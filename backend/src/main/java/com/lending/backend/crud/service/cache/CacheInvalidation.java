@@ -0,0 +1,30 @@
+package com.lending.backend.crud.service.cache;
+
+/**
+ * A change to a cache that other application nodes must mirror. Published by
+ * {@link CacheService} as an application event whenever it evicts, clears or
+ * advances a generation.
+ *
+ * @param type      the kind of invalidation
+ * @param cacheName the affected cache
+ * @param namespace the generation namespace, for {@link Type#ADVANCE}
+ * @param key       the evicted key, for {@link Type#EVICT}
+ */
+public record CacheInvalidation(Type type, String cacheName, String namespace, Object key) {
+
+    public enum Type {
+        EVICT, ADVANCE, CLEAR
+    }
+
+    public static CacheInvalidation evict(String cacheName, Object key) {
+        return new CacheInvalidation(Type.EVICT, cacheName, null, key);
+    }
+
+    public static CacheInvalidation advance(String cacheName, String namespace) {
+        return new CacheInvalidation(Type.ADVANCE, cacheName, namespace, null);
+    }
+
+    public static CacheInvalidation clear(String cacheName) {
+        return new CacheInvalidation(Type.CLEAR, cacheName, null, null);
+    }
+}
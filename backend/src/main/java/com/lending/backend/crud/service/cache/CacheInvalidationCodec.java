@@ -0,0 +1,192 @@
+package com.lending.backend.crud.service.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Encodes batches of {@link CacheInvalidation}s into compact JSON payloads
+ * for a Postgres NOTIFY and back.
+ * <p>
+ * Evicted keys must be rebuilt on the receiving node with equal values, so
+ * only {@link CacheKey}s and plain keys whose parts are strings, numbers,
+ * booleans or UUIDs can be shipped. {@link #encodable} reports whether a key
+ * qualifies; callers replace other evictions by a clear of the cache.
+ */
+class CacheInvalidationCodec {
+
+    private final ObjectMapper objectMapper;
+    private final int maxPayloadBytes;
+
+    /**
+     * @param objectMapper    mapper used to write and read the JSON tree
+     * @param maxPayloadBytes upper bound of one payload in UTF-8 bytes
+     */
+    CacheInvalidationCodec(ObjectMapper objectMapper, int maxPayloadBytes) {
+        this.objectMapper = objectMapper;
+        this.maxPayloadBytes = maxPayloadBytes;
+    }
+
+    boolean encodable(Object key) {
+        if (key instanceof CacheKey cacheKey) {
+            return cacheKey.parts().stream().allMatch(CacheInvalidationCodec::isScalar);
+        }
+        return isScalar(key);
+    }
+
+    /**
+     * Splits the invalidations into as few payloads as fit the size limit.
+     *
+     * @param nodeId        the sending node, so it can skip its own messages
+     * @param invalidations the invalidations; every evicted key must be
+     *                      {@link #encodable}
+     * @return the payloads, in order
+     */
+    List<String> encode(String nodeId, List<CacheInvalidation> invalidations) {
+        List<String> payloads = new ArrayList<>();
+        int envelopeBytes = byteSize(newMessage(nodeId));
+        ObjectNode message = newMessage(nodeId);
+        int messageBytes = envelopeBytes;
+        for (CacheInvalidation invalidation : invalidations) {
+            ObjectNode operation = toNode(invalidation);
+            // One more byte for the separating comma
+            int operationBytes = byteSize(operation) + 1;
+            ArrayNode operations = (ArrayNode) message.get("ops");
+            if (!operations.isEmpty() && messageBytes + operationBytes > maxPayloadBytes) {
+                payloads.add(write(message));
+                message = newMessage(nodeId);
+                messageBytes = envelopeBytes;
+                operations = (ArrayNode) message.get("ops");
+            }
+            operations.add(operation);
+            messageBytes += operationBytes;
+        }
+        if (!message.get("ops").isEmpty()) {
+            payloads.add(write(message));
+        }
+        return payloads;
+    }
+
+    /**
+     * @return the decoded message
+     * @throws IllegalArgumentException if the payload is malformed
+     */
+    Message decode(String payload) {
+        try {
+            JsonNode message = objectMapper.readTree(payload);
+            List<CacheInvalidation> invalidations = new ArrayList<>();
+            for (JsonNode operation : message.path("ops")) {
+                invalidations.add(fromNode(operation));
+            }
+            return new Message(message.path("node").asText(), invalidations);
+        } catch (JsonProcessingException | RuntimeException e) {
+            throw new IllegalArgumentException("Malformed cache invalidation payload", e);
+        }
+    }
+
+    private ObjectNode newMessage(String nodeId) {
+        ObjectNode message = objectMapper.createObjectNode();
+        message.put("node", nodeId);
+        message.putArray("ops");
+        return message;
+    }
+
+    private ObjectNode toNode(CacheInvalidation invalidation) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("t", invalidation.type().name().substring(0, 1));
+        node.put("c", invalidation.cacheName());
+        switch (invalidation.type()) {
+            case ADVANCE -> node.put("n", invalidation.namespace());
+            case EVICT -> {
+                if (invalidation.key() instanceof CacheKey cacheKey) {
+                    ObjectNode key = node.putObject("k");
+                    key.put("o", cacheKey.operation());
+                    key.put("s", cacheKey.scope());
+                    key.put("g", cacheKey.generation());
+                    ArrayNode parts = key.putArray("p");
+                    cacheKey.parts().forEach(part -> parts.add(toScalar(part)));
+                } else {
+                    node.set("v", toScalar(invalidation.key()));
+                }
+            }
+            case CLEAR -> {
+            }
+        }
+        return node;
+    }
+
+    private CacheInvalidation fromNode(JsonNode node) {
+        String cacheName = node.get("c").asText();
+        return switch (node.get("t").asText()) {
+            case "A" -> CacheInvalidation.advance(cacheName, node.get("n").asText());
+            case "C" -> CacheInvalidation.clear(cacheName);
+            case "E" -> CacheInvalidation.evict(cacheName, node.has("k") ? toCacheKey(node.get("k"))
+                    : fromScalar(node.get("v")));
+            default -> throw new IllegalArgumentException("Unknown invalidation type " + node.get("t"));
+        };
+    }
+
+    private CacheKey toCacheKey(JsonNode key) {
+        List<Object> parts = new ArrayList<>();
+        key.get("p").forEach(part -> parts.add(fromScalar(part)));
+        String scope = key.get("s").isNull() ? null : key.get("s").asText();
+        return new CacheKey(key.get("o").asText(), scope, key.get("g").asLong(), parts);
+    }
+
+    // Scalars are written as a single-field object whose name is the type tag
+    private ObjectNode toScalar(Object value) {
+        ObjectNode node = objectMapper.createObjectNode();
+        if (value instanceof Long l) {
+            node.put("L", l);
+        } else if (value instanceof Integer i) {
+            node.put("I", i);
+        } else if (value instanceof Boolean b) {
+            node.put("B", b);
+        } else if (value instanceof UUID uuid) {
+            node.put("U", uuid.toString());
+        } else {
+            node.put("S", (String) value);
+        }
+        return node;
+    }
+
+    private Object fromScalar(JsonNode node) {
+        String tag = node.fieldNames().next();
+        JsonNode value = node.get(tag);
+        return switch (tag) {
+            case "L" -> value.asLong();
+            case "I" -> value.asInt();
+            case "B" -> value.asBoolean();
+            case "U" -> UUID.fromString(value.asText());
+            case "S" -> value.asText();
+            default -> throw new IllegalArgumentException("Unknown key part type " + tag);
+        };
+    }
+
+    private static boolean isScalar(Object value) {
+        return value instanceof String || value instanceof Long || value instanceof Integer
+                || value instanceof Boolean || value instanceof UUID;
+    }
+
+    private int byteSize(ObjectNode message) {
+        return write(message).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private String write(ObjectNode message) {
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not write cache invalidation payload", e);
+        }
+    }
+
+    record Message(String nodeId, List<CacheInvalidation> invalidations) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.lending.backend.crud.service.cache;
+
+import java.util.List;
+
+/**
+ * Value-typed cache key. Equal keys are built for equal requests, so entries
+ * are shared across callers, and the embedded generation lets whole families
+ * of keys be invalidated at once (see {@link CacheService#nextGeneration}).
+ *
+ * @param operation  the cached operation (e.g. "findAll")
+ * @param scope      the tenant the entry belongs to, or {@code null}
+ * @param generation the generation of the key's namespace
+ * @param parts      the operation's arguments; must have value semantics
+ */
+public record CacheKey(String operation, String scope, long generation, List<?> parts) {
+
+    public CacheKey {
+        parts = List.copyOf(parts);
+    }
+}
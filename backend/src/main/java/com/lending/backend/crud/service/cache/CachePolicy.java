@@ -0,0 +1,20 @@
+package com.lending.backend.crud.service.cache;
+
+import java.time.Duration;
+
+/**
+ * Sizing and expiry of one named cache.
+ *
+ * @param enabled        whether values are cached at all
+ * @param timeToLive     how long an entry lives after it was written
+ * @param maximumEntries upper bound on the number of entries, used when no
+ *                       byte budget is set
+ * @param maximumBytes   upper bound on the estimated size of all entries in
+ *                       bytes, or 0 to bound by entry count
+ */
+public record CachePolicy(boolean enabled, Duration timeToLive, long maximumEntries, long maximumBytes) {
+
+    public boolean isWeighted() {
+        return maximumBytes > 0;
+    }
+}
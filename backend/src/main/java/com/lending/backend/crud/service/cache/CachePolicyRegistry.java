@@ -0,0 +1,59 @@
+package com.lending.backend.crud.service.cache;
+
+import com.lending.backend.config.CrudProperties;
+import com.lending.backend.crud.registry.CrudEntityRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the {@link CachePolicy} of each cache. Caches named after a
+ * {@code @CrudEntity} take their policy from the annotation; any other cache
+ * gets the defaults from {@code crud.cache.*}. The count cache of an entity
+ * (its name plus {@link #COUNT_CACHE_SUFFIX}) follows the entity's policy
+ * with the longer {@code crud.cache.count-ttl-minutes}.
+ */
+@Component
+public class CachePolicyRegistry {
+
+    public static final String COUNT_CACHE_SUFFIX = ".counts";
+
+    private final CrudEntityRegistry entityRegistry;
+    private final CrudProperties.Cache properties;
+    private final Map<String, CachePolicy> policies = new ConcurrentHashMap<>();
+
+    public CachePolicyRegistry(CrudEntityRegistry entityRegistry, CrudProperties properties) {
+        this.entityRegistry = entityRegistry;
+        this.properties = properties.getCache();
+    }
+
+    public CachePolicy policyFor(String cacheName) {
+        return policies.computeIfAbsent(cacheName, this::resolve);
+    }
+
+    private CachePolicy resolve(String cacheName) {
+        if (cacheName.endsWith(COUNT_CACHE_SUFFIX)) {
+            // Resolved directly: policyFor would update the map from within computeIfAbsent
+            CachePolicy entityPolicy = resolve(
+                    cacheName.substring(0, cacheName.length() - COUNT_CACHE_SUFFIX.length()));
+            return new CachePolicy(
+                    entityPolicy.enabled(),
+                    Duration.ofMinutes(properties.getCountTtlMinutes()),
+                    entityPolicy.maximumEntries(),
+                    0);
+        }
+        return entityRegistry.findAnnotation(cacheName)
+                .map(annotation -> new CachePolicy(
+                        annotation.enableCache(),
+                        Duration.ofMinutes(annotation.cacheTimeoutMinutes()),
+                        annotation.cacheMaxEntries(),
+                        annotation.cacheMaxBytes()))
+                .orElseGet(() -> new CachePolicy(
+                        true,
+                        Duration.ofMinutes(properties.getDefaultTtlMinutes()),
+                        properties.getDefaultMaxEntries(),
+                        0));
+    }
+}
@@ -1,12 +1,28 @@
 package com.lending.backend.crud.service.cache;
 
+import com.lending.backend.config.CrudProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * A centralized service to interact with the application's cache manager.
@@ -17,9 +33,20 @@ public class CacheService {
 
     private static final Logger logger = LoggerFactory.getLogger(CacheService.class);
     private final CacheManager cacheManager;
+    private final Executor refreshExecutor;
+    private final CrudProperties.Cache properties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CachePolicyRegistry policyRegistry;
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final Map<InflightKey, CompletableFuture<Object>> inflight = new ConcurrentHashMap<>();
 
-    public CacheService(CacheManager cacheManager) {
+    public CacheService(CacheManager cacheManager, @Qualifier("asyncExecutor") Executor refreshExecutor,
+            CrudProperties properties, ApplicationEventPublisher eventPublisher, CachePolicyRegistry policyRegistry) {
         this.cacheManager = cacheManager;
+        this.refreshExecutor = refreshExecutor;
+        this.properties = properties.getCache();
+        this.eventPublisher = eventPublisher;
+        this.policyRegistry = policyRegistry;
     }
 
     /**
@@ -30,7 +57,7 @@ public class CacheService {
      * @param value     The value to store.
      * @param <T>       The type of the value.
      */
-    public <T> void put(String cacheName, String key, T value) {
+    public <T> void put(String cacheName, Object key, T value) {
         try {
             Cache cache = cacheManager.getCache(cacheName);
             if (cache != null) {
@@ -54,7 +81,7 @@ public class CacheService {
      * @return An {@link Optional} containing the value if found, otherwise an empty
      *         Optional.
      */
-    public <T> Optional<T> get(String cacheName, String key, Class<T> type) {
+    public <T> Optional<T> get(String cacheName, Object key, Class<T> type) {
         try {
             Cache cache = cacheManager.getCache(cacheName);
             if (cache != null) {
@@ -74,12 +101,203 @@ public class CacheService {
     }
 
     /**
-     * Removes a single entry from a cache.
+     * Returns the cached value for a key, loading and caching it on a miss.
+     * Concurrent misses on the same key are coalesced: one caller runs the
+     * loader while the others wait for its result, so an expired hot key
+     * causes one database query instead of one per request. A loader failure
+     * is propagated to every waiting caller and nothing is cached.
+     * <p>
+     * When refresh-ahead is enabled, a hit on an entry that is close to expiry
+     * also schedules a background reload with the same loader. The loader must
+     * therefore not depend on request-bound state resolved at call time, nor
+     * have side effects that belong to the request, such as audit entries.
+     *
+     * @param cacheName The name of the cache.
+     * @param key       The key of the item.
+     * @param loader    Loads the value on a miss; a {@code null} result is
+     *                  returned but not cached.
+     * @param <T>       The type of the value.
+     * @return The cached or freshly loaded value.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(String cacheName, Object key, Supplier<T> loader) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            logger.warn("Cache '{}' not found. Loading value for key '{}' without caching.", cacheName, key);
+            return loader.get();
+        }
+
+        Object cached = lookup(cache, key);
+        if (cached != null) {
+            logger.debug("Cache hit for key '{}' in cache '{}'.", key, cacheName);
+            if (properties.isRefreshAhead()) {
+                refreshIfNearExpiry(cache, key, loader);
+            }
+            return (T) cached;
+        }
+
+        logger.debug("Cache miss for key '{}' in cache '{}'.", key, cacheName);
+        return (T) loadOnce(cache, key, loader);
+    }
+
+    private Object loadOnce(Cache cache, Object key, Supplier<?> loader) {
+        InflightKey flightKey = new InflightKey(cache.getName(), key);
+        CompletableFuture<Object> ours = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inflight.putIfAbsent(flightKey, ours);
+        if (existing != null) {
+            logger.debug("Joining in-flight load of key '{}' in cache '{}'.", key, cache.getName());
+            return await(existing);
+        }
+
+        try {
+            // Another caller may have finished loading between our miss and our claim
+            Object value = lookup(cache, key);
+            if (value == null) {
+                value = loader.get();
+                if (value != null) {
+                    putSafely(cache, key, value);
+                }
+            }
+            ours.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            ours.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(flightKey, ours);
+        }
+    }
+
+    private void refreshIfNearExpiry(Cache cache, Object key, Supplier<?> loader) {
+        if (!(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache)) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> caffeine = (com.github.benmanes.caffeine.cache.Cache<Object, Object>) nativeCache;
+        // Entries promoted from L2 start out with less than the full time to live, and are refreshed as early
+        caffeine.policy().expireVariably().ifPresent(expiration -> {
+            Duration timeToLive = policyRegistry.policyFor(cache.getName()).timeToLive();
+            OptionalLong remaining = expiration.getExpiresAfter(key, TimeUnit.MILLISECONDS);
+            long threshold = (long) (timeToLive.toMillis() * (1 - properties.getRefreshAheadRatio()));
+            if (remaining.isPresent() && remaining.getAsLong() <= threshold) {
+                scheduleRefresh(cache, key, loader);
+            }
+        });
+    }
+
+    private void scheduleRefresh(Cache cache, Object key, Supplier<?> loader) {
+        InflightKey flightKey = new InflightKey(cache.getName(), key);
+        CompletableFuture<Object> ours = new CompletableFuture<>();
+        if (inflight.putIfAbsent(flightKey, ours) != null) {
+            return; // A load or refresh of this key is already running
+        }
+
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    Object value = loader.get();
+                    if (value != null) {
+                        putSafely(cache, key, value);
+                    }
+                    ours.complete(value);
+                    logger.debug("Refreshed key '{}' in cache '{}' ahead of expiry.", key, cache.getName());
+                } catch (Throwable e) {
+                    ours.completeExceptionally(e);
+                    logger.warn("Refresh-ahead of key '{}' in cache '{}' failed", key, cache.getName(), e);
+                } finally {
+                    inflight.remove(flightKey, ours);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inflight.remove(flightKey, ours);
+            ours.complete(null);
+            logger.debug("Refresh-ahead of key '{}' in cache '{}' skipped: executor saturated.", key,
+                    cache.getName());
+        }
+    }
+
+    private Object lookup(Cache cache, Object key) {
+        try {
+            Cache.ValueWrapper valueWrapper = cache.get(key);
+            return valueWrapper != null ? valueWrapper.get() : null;
+        } catch (Exception e) {
+            logger.error("Error getting value from cache '{}' with key '{}'", cache.getName(), key, e);
+            return null;
+        }
+    }
+
+    private void putSafely(Cache cache, Object key, Object value) {
+        try {
+            cache.put(key, value);
+            logger.debug("Cached value with key '{}' in cache '{}'.", key, cache.getName());
+        } catch (Exception e) {
+            logger.error("Error putting value into cache '{}' with key '{}'", cache.getName(), key, e);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Removes a single entry from a cache, once the current transaction
+     * commits. The eviction is also published as a {@link CacheInvalidation}
+     * so other nodes can mirror it.
      *
      * @param cacheName The name of the cache.
      * @param key       The key to evict.
      */
-    public void evict(String cacheName, String key) {
+    public void evict(String cacheName, Object key) {
+        afterCommit(() -> evictLocally(cacheName, key));
+        eventPublisher.publishEvent(CacheInvalidation.evict(cacheName, key));
+    }
+
+    /**
+     * Clears all entries from a cache, once the current transaction commits.
+     * The clear is also published as a {@link CacheInvalidation} so other
+     * nodes can mirror it.
+     *
+     * @param cacheName The name of the cache to clear.
+     */
+    public void clear(String cacheName) {
+        afterCommit(() -> clearLocally(cacheName));
+        eventPublisher.publishEvent(CacheInvalidation.clear(cacheName));
+    }
+
+    /**
+     * Applies an invalidation received from another node without publishing
+     * it again.
+     *
+     * @param invalidation The invalidation to mirror.
+     */
+    void apply(CacheInvalidation invalidation) {
+        switch (invalidation.type()) {
+            case EVICT -> evictLocally(invalidation.cacheName(), invalidation.key());
+            case ADVANCE -> advanceGeneration(invalidation.cacheName(), invalidation.namespace());
+            case CLEAR -> clearLocally(invalidation.cacheName());
+        }
+    }
+
+    /**
+     * Clears every cache of this node without publishing, used when
+     * invalidations from other nodes may have been missed.
+     */
+    void clearAllLocally() {
+        cacheManager.getCacheNames().forEach(this::clearLocally);
+    }
+
+    private void evictLocally(String cacheName, Object key) {
         try {
             Cache cache = cacheManager.getCache(cacheName);
             if (cache != null) {
@@ -93,12 +311,7 @@ public class CacheService {
         }
     }
 
-    /**
-     * Clears all entries from a cache.
-     *
-     * @param cacheName The name of the cache to clear.
-     */
-    public void clear(String cacheName) {
+    private void clearLocally(String cacheName) {
         try {
             Cache cache = cacheManager.getCache(cacheName);
             if (cache != null) {
@@ -111,4 +324,68 @@ public class CacheService {
             logger.error("Error clearing cache '{}'", cacheName, e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the current generation of a namespace within a cache. Keys that
+     * embed the generation become unreachable once it is advanced, which lets a
+     * write invalidate a whole family of entries (e.g. every list page of one
+     * tenant) without scanning or clearing the cache.
+     *
+     * @param cacheName The name of the cache.
+     * @param namespace The namespace within the cache (e.g. "list:tenantA").
+     * @return The current generation, starting at 0.
+     */
+    public long generation(String cacheName, String namespace) {
+        AtomicLong generation = generations.get(generationKey(cacheName, namespace));
+        return generation != null ? generation.get() : 0L;
+    }
+
+    /**
+     * Advances the generation of a namespace, making every entry keyed on the
+     * previous generation stale. Stale entries are never read again and age
+     * out through the cache's normal size and time based eviction. The advance
+     * takes effect once the current transaction commits, and is also
+     * published as a {@link CacheInvalidation} so other nodes can mirror it.
+     *
+     * @param cacheName The name of the cache.
+     * @param namespace The namespace within the cache.
+     */
+    public void nextGeneration(String cacheName, String namespace) {
+        afterCommit(() -> advanceGeneration(cacheName, namespace));
+        eventPublisher.publishEvent(CacheInvalidation.advance(cacheName, namespace));
+    }
+
+    /**
+     * Runs a local invalidation once the current transaction commits, or at
+     * once outside of one. Before the commit, a reader that missed the cache
+     * would still load the old row and cache it under the new generation,
+     * where it would stay until the next write. Other nodes apply their copy
+     * after the commit as well.
+     */
+    private static void afterCommit(Runnable invalidation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        } else {
+            invalidation.run();
+        }
+    }
+
+    private long advanceGeneration(String cacheName, String namespace) {
+        long next = generations.computeIfAbsent(generationKey(cacheName, namespace), k -> new AtomicLong())
+                .incrementAndGet();
+        logger.debug("Advanced generation of '{}' in cache '{}' to {}.", namespace, cacheName, next);
+        return next;
+    }
+
+    private String generationKey(String cacheName, String namespace) {
+        return cacheName + "|" + namespace;
+    }
+
+    private record InflightKey(String cacheName, Object key) {
+    }
+}
@@ -0,0 +1,24 @@
+package com.lending.backend.crud.service.cache;
+
+/**
+ * Point-in-time statistics of the {@link OffHeapCacheStore}.
+ *
+ * @param hits           lookups that returned a value
+ * @param misses         lookups that found nothing usable
+ * @param puts           values stored
+ * @param rejected       values not stored (too large, not serializable, or no
+ *                       capacity left in their size class)
+ * @param evictions      entries evicted by size or expiry
+ * @param entries        estimated number of live entries
+ * @param usedBytes      bytes of the chunks held by live entries
+ * @param allocatedBytes off-heap bytes reserved for pages
+ * @param capacityBytes  configured capacity
+ */
+public record OffHeapCacheStats(long hits, long misses, long puts, long rejected, long evictions, long entries,
+        long usedBytes, long allocatedBytes, long capacityBytes) {
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+}
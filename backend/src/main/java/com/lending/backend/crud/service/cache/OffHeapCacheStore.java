@@ -0,0 +1,406 @@
+package com.lending.backend.crud.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Second-level cache that keeps serialized values outside the Java heap,
+ * either in direct memory or in a memory-mapped file.
+ * <p>
+ * Values are stored in fixed-size chunks carved out of large pages, with one
+ * size class per power of two, so storing and freeing a value never moves
+ * other values. Only a small index entry per key lives on the heap; the index
+ * is a Caffeine cache weighted by chunk size, which provides TinyLFU eviction
+ * within the byte capacity and per-entry expiry. Evicted chunks are recycled.
+ * <p>
+ * Readers never block writers: every chunk carries a version that is bumped
+ * when the chunk is freed, and a read is discarded as a miss if the version
+ * changed while the bytes were being copied.
+ */
+public class OffHeapCacheStore implements MeterBinder, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapCacheStore.class);
+
+    private static final int MIN_CHUNK_SIZE = 256;
+
+    // How many of the coldest entries are scanned for a victim of the needed size class
+    private static final int EVICTION_SCAN = 64;
+
+    private final long capacityBytes;
+    private final int pageSize;
+    private final SizeClass[] sizeClasses;
+    private final Path file;
+    private final FileChannel channel;
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final Cache<StoreKey, Slot> index;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacityBytes maximum off-heap bytes used for values
+     * @param pageSize      size of each allocated page; bounds the largest value
+     * @param maxEntrySize  largest serialized value that is stored
+     * @param directory     directory of the memory-mapped backing file, or
+     *                      {@code null} to use direct memory
+     */
+    public OffHeapCacheStore(long capacityBytes, int pageSize, int maxEntrySize, Path directory) throws IOException {
+        if (maxEntrySize > pageSize) {
+            throw new IllegalArgumentException("maxEntrySize must not exceed pageSize");
+        }
+        this.capacityBytes = capacityBytes;
+        this.pageSize = pageSize;
+
+        int classCount = 1;
+        while ((MIN_CHUNK_SIZE << (classCount - 1)) < maxEntrySize) {
+            classCount++;
+        }
+        this.sizeClasses = new SizeClass[classCount];
+        for (int i = 0; i < classCount; i++) {
+            sizeClasses[i] = new SizeClass(Math.min(MIN_CHUNK_SIZE << i, pageSize));
+        }
+
+        if (directory != null) {
+            Files.createDirectories(directory);
+            this.file = Files.createTempFile(directory, "l2-cache-", ".dat");
+            this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+        } else {
+            this.file = null;
+            this.channel = null;
+        }
+
+        this.index = Caffeine.newBuilder()
+                .maximumWeight(capacityBytes)
+                .weigher((StoreKey key, Slot slot) -> sizeClasses[slot.sizeClass()].chunkSize)
+                .expireAfter(new Expiry<StoreKey, Slot>() {
+                    @Override
+                    public long expireAfterCreate(StoreKey key, Slot slot, long currentTime) {
+                        return slot.timeToLiveNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(StoreKey key, Slot slot, long currentTime,
+                            long currentDuration) {
+                        return slot.timeToLiveNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(StoreKey key, Slot slot, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                // Free chunks on the maintaining thread so they are reusable right away
+                .executor(Runnable::run)
+                .removalListener((StoreKey key, Slot slot, RemovalCause cause) -> {
+                    if (slot != null) {
+                        release(slot);
+                    }
+                    if (cause.wasEvicted()) {
+                        evictions.increment();
+                    }
+                })
+                .build();
+
+        logger.info("Off-heap L2 cache initialized: capacity={} bytes, pageSize={} bytes, backing={}",
+                capacityBytes, pageSize, file != null ? file : "direct memory");
+    }
+
+    /**
+     * Looks up and deserializes a value.
+     *
+     * @return the value, or {@code null} on a miss
+     */
+    public Object get(String cacheName, Object key) {
+        Slot slot = index.getIfPresent(new StoreKey(cacheName, key));
+        byte[] data = slot != null ? read(slot) : null;
+        Object value = data != null ? deserialize(data) : null;
+        if (value == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return value;
+    }
+
+    /**
+     * Serializes and stores a value. Values that are not {@link Serializable},
+     * larger than the biggest size class, or do not fit into the remaining
+     * capacity are rejected.
+     *
+     * @return whether the value was stored
+     */
+    public boolean put(String cacheName, Object key, Object value, Duration timeToLive) {
+        byte[] data = value instanceof Serializable ? serialize(value) : null;
+        int sizeClass = data != null ? sizeClassFor(data.length) : -1;
+        if (sizeClass < 0) {
+            rejected.increment();
+            return false;
+        }
+
+        SizeClass target = sizeClasses[sizeClass];
+        int chunk = target.allocate();
+        if (chunk < 0) {
+            // All pages are reserved: make room by evicting a cold entry of the same size class
+            index.cleanUp();
+            chunk = target.allocate();
+            if (chunk < 0 && evictColdest(sizeClass)) {
+                chunk = target.allocate();
+            }
+        }
+        if (chunk < 0) {
+            rejected.increment();
+            return false;
+        }
+
+        int version = target.write(chunk, data);
+        usedBytes.addAndGet(target.chunkSize);
+        index.put(new StoreKey(cacheName, key),
+                new Slot(sizeClass, chunk, data.length, version, timeToLive.toNanos()));
+        puts.increment();
+        return true;
+    }
+
+    /**
+     * Returns how long a stored value has left to live.
+     *
+     * @return the remaining time, or {@code null} if the value is not stored
+     */
+    public Duration remainingTimeToLive(String cacheName, Object key) {
+        return index.policy().expireVariably()
+                .flatMap(expiry -> expiry.getExpiresAfter(new StoreKey(cacheName, key)))
+                .orElse(null);
+    }
+
+    public void remove(String cacheName, Object key) {
+        index.invalidate(new StoreKey(cacheName, key));
+    }
+
+    public void removeAll(String cacheName) {
+        index.asMap().keySet().removeIf(key -> key.cacheName().equals(cacheName));
+    }
+
+    public OffHeapCacheStats stats() {
+        return new OffHeapCacheStats(hits.sum(), misses.sum(), puts.sum(), rejected.sum(), evictions.sum(),
+                index.estimatedSize(), usedBytes.get(), allocatedBytes.get(), capacityBytes);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("crud.cache.l2.requests", hits, LongAdder::sum)
+                .tag("result", "hit").description("L2 cache lookups").register(registry);
+        FunctionCounter.builder("crud.cache.l2.requests", misses, LongAdder::sum)
+                .tag("result", "miss").description("L2 cache lookups").register(registry);
+        FunctionCounter.builder("crud.cache.l2.puts", puts, LongAdder::sum)
+                .description("Values stored in the L2 cache").register(registry);
+        FunctionCounter.builder("crud.cache.l2.rejected", rejected, LongAdder::sum)
+                .description("Values too large, not serializable or without space").register(registry);
+        FunctionCounter.builder("crud.cache.l2.evictions", evictions, LongAdder::sum)
+                .description("Entries evicted by size or expiry").register(registry);
+        Gauge.builder("crud.cache.l2.entries", index, Cache::estimatedSize)
+                .description("Entries in the L2 cache").register(registry);
+        Gauge.builder("crud.cache.l2.bytes.used", usedBytes, AtomicLong::get)
+                .baseUnit("bytes").description("Bytes held by live entries").register(registry);
+        Gauge.builder("crud.cache.l2.bytes.allocated", allocatedBytes, AtomicLong::get)
+                .baseUnit("bytes").description("Off-heap bytes reserved for pages").register(registry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        index.invalidateAll();
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private boolean evictColdest(int sizeClass) {
+        return index.policy().eviction().map(eviction -> {
+            for (Map.Entry<StoreKey, Slot> entry : eviction.coldest(EVICTION_SCAN).entrySet()) {
+                if (entry.getValue().sizeClass() == sizeClass && index.asMap().remove(entry.getKey(), entry.getValue())) {
+                    evictions.increment();
+                    return true;
+                }
+            }
+            return false;
+        }).orElse(false);
+    }
+
+    private int sizeClassFor(int length) {
+        for (int i = 0; i < sizeClasses.length; i++) {
+            if (length <= sizeClasses[i].chunkSize) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private byte[] read(Slot slot) {
+        return sizeClasses[slot.sizeClass()].read(slot.chunk(), slot.length(), slot.version());
+    }
+
+    private void release(Slot slot) {
+        SizeClass sizeClass = sizeClasses[slot.sizeClass()];
+        sizeClass.free(slot.chunk());
+        usedBytes.addAndGet(-sizeClass.chunkSize);
+    }
+
+    private ByteBuffer newPage(long position) throws IOException {
+        if (channel == null) {
+            return ByteBuffer.allocateDirect(pageSize);
+        }
+        return channel.map(FileChannel.MapMode.READ_WRITE, position, pageSize);
+    }
+
+    /**
+     * Reserves capacity for one more page.
+     *
+     * @return the page's offset in the backing file, or -1 if the capacity is
+     *         exhausted
+     */
+    private long reservePage() {
+        long current;
+        do {
+            current = allocatedBytes.get();
+            if (current + pageSize > capacityBytes) {
+                return -1;
+            }
+        } while (!allocatedBytes.compareAndSet(current, current + pageSize));
+        return current;
+    }
+
+    private static byte[] serialize(Object value) {
+        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            logger.debug("Value of type {} could not be serialized for the L2 cache: {}",
+                    value.getClass().getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static Object deserialize(byte[] data) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            logger.debug("L2 cache entry could not be deserialized: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Pages of equally sized chunks with a free list and per-chunk versions.
+     */
+    private final class SizeClass {
+        private final int chunkSize;
+        private final int chunksPerPage;
+        private final List<ByteBuffer> pages = new CopyOnWriteArrayList<>();
+        private final List<AtomicIntegerArray> versions = new CopyOnWriteArrayList<>();
+        private final Queue<Integer> freeChunks = new ConcurrentLinkedQueue<>();
+
+        private SizeClass(int chunkSize) {
+            this.chunkSize = chunkSize;
+            this.chunksPerPage = pageSize / chunkSize;
+        }
+
+        private int allocate() {
+            Integer chunk = freeChunks.poll();
+            if (chunk != null) {
+                return chunk;
+            }
+            synchronized (this) {
+                chunk = freeChunks.poll();
+                if (chunk != null) {
+                    return chunk;
+                }
+                long position = reservePage();
+                if (position < 0) {
+                    return -1;
+                }
+                ByteBuffer page;
+                try {
+                    page = newPage(position);
+                } catch (IOException | OutOfMemoryError e) {
+                    allocatedBytes.addAndGet(-pageSize);
+                    logger.warn("Could not allocate an L2 cache page of {} bytes: {}", pageSize, e.getMessage());
+                    return -1;
+                }
+                int first = pages.size() * chunksPerPage;
+                versions.add(new AtomicIntegerArray(chunksPerPage));
+                pages.add(page);
+                for (int i = 1; i < chunksPerPage; i++) {
+                    freeChunks.offer(first + i);
+                }
+                return first;
+            }
+        }
+
+        private int write(int chunk, byte[] data) {
+            int page = chunk / chunksPerPage;
+            int offset = chunk % chunksPerPage;
+            pages.get(page).put(offset * chunkSize, data);
+            return versions.get(page).get(offset);
+        }
+
+        private byte[] read(int chunk, int length, int version) {
+            int page = chunk / chunksPerPage;
+            int offset = chunk % chunksPerPage;
+            AtomicIntegerArray pageVersions = versions.get(page);
+            if (pageVersions.get(offset) != version) {
+                return null;
+            }
+            byte[] data = new byte[length];
+            pages.get(page).get(offset * chunkSize, data);
+            // The copy must complete before the version is checked again
+            VarHandle.acquireFence();
+            return pageVersions.get(offset) == version ? data : null;
+        }
+
+        private void free(int chunk) {
+            versions.get(chunk / chunksPerPage).incrementAndGet(chunk % chunksPerPage);
+            freeChunks.offer(chunk);
+        }
+    }
+
+    private record StoreKey(String cacheName, Object key) {
+    }
+
+    private record Slot(int sizeClass, int chunk, int length, int version, long timeToLiveNanos) {
+    }
+}
@@ -0,0 +1,67 @@
+package com.lending.backend.crud.service.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.NoOpCache;
+
+/**
+ * {@link CaffeineCacheManager} that builds every cache from its own
+ * {@link CachePolicy} instead of one shared builder, so each entity gets its
+ * own size or byte budget and expiry. Caches whose policy is disabled are
+ * backed by a {@link NoOpCache}. When an {@link OffHeapCacheStore} is
+ * configured, every enabled cache is wrapped in a {@link TieredCache} that
+ * uses it as second level.
+ */
+public class PolicyCaffeineCacheManager extends CaffeineCacheManager {
+
+    private final CachePolicyRegistry policyRegistry;
+    private final Weigher<Object, Object> weigher;
+    private final OffHeapCacheStore offHeapStore;
+
+    /**
+     * @param policyRegistry resolves the policy of each cache
+     * @param weigher        estimates entry sizes for byte-budgeted caches
+     * @param offHeapStore   the second-level store, or {@code null} for L1 only
+     */
+    public PolicyCaffeineCacheManager(CachePolicyRegistry policyRegistry, Weigher<Object, Object> weigher,
+            OffHeapCacheStore offHeapStore) {
+        this.policyRegistry = policyRegistry;
+        this.weigher = weigher;
+        this.offHeapStore = offHeapStore;
+    }
+
+    @Override
+    protected Cache createCaffeineCache(String name) {
+        if (!policyRegistry.policyFor(name).enabled()) {
+            return new NoOpCache(name);
+        }
+        return super.createCaffeineCache(name);
+    }
+
+    @Override
+    protected com.github.benmanes.caffeine.cache.Cache<Object, Object> createNativeCaffeineCache(String name) {
+        CachePolicy policy = policyRegistry.policyFor(name);
+        // Per entry, so that entries promoted from L2 keep only what is left of their time to live
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .expireAfter(Expiry.writing((Object key, Object value) -> policy.timeToLive()))
+                .recordStats();
+        if (policy.isWeighted()) {
+            builder.maximumWeight(policy.maximumBytes()).weigher(weigher);
+        } else {
+            builder.maximumSize(policy.maximumEntries());
+        }
+        return builder.build();
+    }
+
+    @Override
+    protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+        Cache l1 = super.adaptCaffeineCache(name, cache);
+        if (offHeapStore == null) {
+            return l1;
+        }
+        return new TieredCache(l1, offHeapStore, policyRegistry.policyFor(name).timeToLive());
+    }
+}
@@ -0,0 +1,124 @@
+package com.lending.backend.crud.service.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * Two-tier {@link Cache}: an on-heap Caffeine cache (L1) in front of the
+ * shared {@link OffHeapCacheStore} (L2). L1 misses fall through to L2, and L2
+ * hits are promoted back into L1 for the rest of their L2 time to live, so no
+ * entry outlives the policy's time to live. Writes and evictions go to both
+ * tiers.
+ */
+public class TieredCache implements Cache {
+
+    private final Cache l1;
+    private final OffHeapCacheStore l2;
+    private final Duration timeToLive;
+
+    public TieredCache(Cache l1, OffHeapCacheStore l2, Duration timeToLive) {
+        this.l1 = l1;
+        this.l2 = l2;
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    public String getName() {
+        return l1.getName();
+    }
+
+    /**
+     * Returns the native L1 cache, so callers can inspect its expiry policy.
+     */
+    @Override
+    public Object getNativeCache() {
+        return l1.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper wrapper = l1.get(key);
+        if (wrapper != null) {
+            return wrapper;
+        }
+        Object value = l2.get(getName(), key);
+        if (value == null) {
+            return null;
+        }
+        promote(key, value);
+        return new SimpleValueWrapper(value);
+    }
+
+    private void promote(Object key, Object value) {
+        Duration remaining = l2.remainingTimeToLive(getName(), key);
+        if (remaining == null || remaining.isZero() || remaining.isNegative()
+                || !(l1.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache)) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> caffeine = (com.github.benmanes.caffeine.cache.Cache<Object, Object>) nativeCache;
+        caffeine.policy().expireVariably().ifPresent(expiry -> expiry.put(key, value, remaining));
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                    "Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return type != null ? type.cast(value) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        T value = l1.get(key, valueLoader);
+        if (value != null) {
+            l2.put(getName(), key, value, timeToLive);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        l1.put(key, value);
+        if (value != null) {
+            l2.put(getName(), key, value, timeToLive);
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        l1.evict(key);
+        l2.remove(getName(), key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = l1.evictIfPresent(key);
+        l2.remove(getName(), key);
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        l1.clear();
+        l2.removeAll(getName());
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean notEmpty = l1.invalidate();
+        l2.removeAll(getName());
+        return notEmpty;
+    }
+}
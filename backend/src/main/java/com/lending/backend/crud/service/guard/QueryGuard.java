@@ -0,0 +1,195 @@
+package com.lending.backend.crud.service.guard;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lending.backend.common.dto.CountMode;
+import com.lending.backend.common.exception.ApiException;
+import com.lending.backend.common.exception.ErrorConstants;
+import com.lending.backend.config.CrudProperties;
+import com.lending.backend.crud.annotations.CrudEntity;
+import com.lending.backend.crud.repository.QuerySqlRenderer;
+import com.lending.backend.crud.util.FilterCriterion;
+import com.lending.backend.crud.util.FilterOperator;
+import com.lending.backend.crud.util.QueryDescriptor;
+import com.lending.backend.crud.util.QueryShape;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Keeps pathological list queries away from the connection pool. Runs
+ * between the {@code SpecificationBuilder} and the query itself:
+ * <ul>
+ * <li>Substring filters and sorts are limited to the entity's
+ * {@link CrudEntity#searchableFields()} and {@link CrudEntity#sortableFields()}
+ * when it declares them; an empty list leaves them unrestricted.</li>
+ * <li>The planner's cost estimate of the page query and of its count is
+ * obtained with {@code EXPLAIN} and cached per entity, filter shape and page
+ * window, so only the first query of a shape pays for the plan.</li>
+ * <li>A page query above {@code crud.guard.max-query-cost} is rejected; an
+ * exact count above {@code crud.guard.max-count-cost} is dropped in favour of
+ * a slice.</li>
+ * </ul>
+ * Queries that cannot be rendered to SQL, such as searches, are admitted
+ * without a cost check. The estimate is taken with the values of the first
+ * query of a shape, including its tenant filter.
+ */
+@Component
+public class QueryGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryGuard.class);
+
+    private static final Set<FilterOperator> SUBSTRING = Set.of(FilterOperator.LIKE, FilterOperator.SEARCH);
+
+    private static final Cost UNKNOWN = new Cost(-1, -1);
+
+    private final QuerySqlRenderer sqlRenderer;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final CrudProperties.Guard properties;
+    private final Counter rejected;
+    private final Counter downgraded;
+    private final Cache<CostKey, Cost> costs;
+
+    public QueryGuard(QuerySqlRenderer sqlRenderer, JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry, CrudProperties properties) {
+        this.sqlRenderer = sqlRenderer;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties.getGuard();
+        this.rejected = Counter.builder("crud.query.guard")
+                .description("List queries stopped or changed by the query guard")
+                .tag("action", "rejected")
+                .register(meterRegistry);
+        this.downgraded = Counter.builder("crud.query.guard")
+                .description("List queries stopped or changed by the query guard")
+                .tag("action", "downgraded")
+                .register(meterRegistry);
+        this.costs = Caffeine.newBuilder()
+                .maximumSize(this.properties.getCostCacheMaxEntries())
+                .expireAfterWrite(this.properties.getCostCacheTtl())
+                .build();
+    }
+
+    /**
+     * Rejects filters and sorts outside the entity's allow-lists.
+     *
+     * @throws ApiException if a substring filter or sort is not allowed
+     */
+    public void checkAllowLists(Class<?> entityClass, QueryDescriptor descriptor) {
+        CrudEntity crudEntity = entityClass.getAnnotation(CrudEntity.class);
+        if (crudEntity == null) {
+            return;
+        }
+
+        Set<String> searchable = Set.of(crudEntity.searchableFields());
+        if (!searchable.isEmpty()) {
+            for (FilterCriterion criterion : descriptor.getCriteria()) {
+                if (SUBSTRING.contains(criterion.operator()) && !searchable.contains(criterion.field())) {
+                    throw new ApiException(HttpStatus.BAD_REQUEST,
+                            "Field '" + criterion.field() + "' cannot be searched; searchable fields are "
+                                    + searchable,
+                            ErrorConstants.INVALID_REQUEST);
+                }
+            }
+        }
+
+        Set<String> sortable = Set.of(crudEntity.sortableFields());
+        if (!sortable.isEmpty()) {
+            for (Sort.Order order : descriptor.getSort()) {
+                // The id is the keyset tie-breaker and always has an index
+                if (!sortable.contains(order.getProperty()) && !"id".equals(order.getProperty())) {
+                    throw new ApiException(HttpStatus.BAD_REQUEST,
+                            "Field '" + order.getProperty() + "' cannot be sorted on; sortable fields are "
+                                    + sortable,
+                            ErrorConstants.INVALID_REQUEST);
+                }
+            }
+        }
+    }
+
+    /**
+     * Admits a list query: checks the allow-lists and the planner's cost
+     * estimate.
+     *
+     * @param entityClass the queried entity
+     * @param descriptor  the query as requested
+     * @param criteria    the criteria actually applied, including security
+     *                    filters, or {@code null} if they cannot be rendered
+     *                    to SQL
+     * @param offset      the rows skipped
+     * @param limit       the rows fetched, or {@code -1} if unlimited
+     * @param mode        the requested count mode
+     * @return the count mode to use, {@link CountMode#SLICE} if an exact count
+     *         would be too expensive
+     * @throws ApiException if the query is not allowed or too expensive
+     */
+    public CountMode admit(Class<?> entityClass, QueryDescriptor descriptor, List<FilterCriterion> criteria,
+            long offset, int limit, CountMode mode) {
+        checkAllowLists(entityClass, descriptor);
+        if (!properties.isEnabled() || criteria == null) {
+            return mode;
+        }
+
+        // Deep offsets are explained at the power of two below, so pages share an estimate
+        long offsetBucket = offset > 0 ? Long.highestOneBit(offset) : 0;
+        CostKey key = new CostKey(entityClass, QueryShape.of(descriptor), offsetBucket, limit);
+        Cost cost = costs.get(key, k -> explain(entityClass, criteria, descriptor.getSort(), offsetBucket, limit));
+
+        if (cost.query() > properties.getMaxQueryCost()) {
+            rejected.increment();
+            logger.info("Rejected {} query {} with planner cost {}", entityClass.getSimpleName(),
+                    key.shape().signature(), cost.query());
+            throw new ApiException(HttpStatus.BAD_REQUEST, ErrorConstants.MSG_QUERY_TOO_EXPENSIVE,
+                    ErrorConstants.QUERY_TOO_EXPENSIVE);
+        }
+        if (mode == CountMode.EXACT && cost.count() > properties.getMaxCountCost()) {
+            downgraded.increment();
+            return CountMode.SLICE;
+        }
+        return mode;
+    }
+
+    private Cost explain(Class<?> entityClass, List<FilterCriterion> criteria, Sort sort, long offset, int limit) {
+        try {
+            Optional<QuerySqlRenderer.RenderedQuery> rendered = sqlRenderer.render(entityClass, criteria);
+            Optional<String> orderBy = sqlRenderer.orderBy(entityClass, sort);
+            if (rendered.isEmpty() || orderBy.isEmpty()) {
+                return UNKNOWN;
+            }
+            Object[] parameters = rendered.get().parameters().toArray();
+            String from = " FROM " + rendered.get().table() + " WHERE " + rendered.get().where();
+            double query = totalCost("EXPLAIN (FORMAT JSON) SELECT *" + from + orderBy.get()
+                    + (limit >= 0 ? " LIMIT " + limit : "") + (offset > 0 ? " OFFSET " + offset : ""), parameters);
+            double count = totalCost("EXPLAIN (FORMAT JSON) SELECT count(*)" + from, parameters);
+            return new Cost(query, count);
+        } catch (Exception e) {
+            logger.debug("Could not estimate the cost of a {} query", entityClass.getSimpleName(), e);
+            return UNKNOWN;
+        }
+    }
+
+    private double totalCost(String sql, Object[] parameters) throws Exception {
+        String plan = jdbcTemplate.queryForObject(sql, String.class, parameters);
+        return objectMapper.readTree(plan).path(0).path("Plan").path("Total Cost").asDouble(-1);
+    }
+
+    private record CostKey(Class<?> entityClass, QueryShape shape, long offset, int limit) {
+    }
+
+    /**
+     * Planner costs, {@code -1} where unknown.
+     */
+    private record Cost(double query, double count) {
+    }
+}
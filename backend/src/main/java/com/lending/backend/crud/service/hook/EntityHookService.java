@@ -3,6 +3,7 @@ package com.lending.backend.crud.service.hook;
 import com.lending.backend.crud.annotations.*;
 import com.lending.backend.common.audit.BaseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.ApplicationContext;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
@@ -10,8 +11,10 @@ import org.springframework.stereotype.Service;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 @Service
 public class EntityHookService {
@@ -19,6 +22,10 @@ public class EntityHookService {
     @Autowired
     private ApplicationContext applicationContext;
 
+    @Autowired
+    @Qualifier("bulkHookExecutor")
+    private Executor bulkHookExecutor;
+
     private final Map<String, Object> entityServices = new ConcurrentHashMap<>();
     private final Map<String, Map<String, Method>> hookMethods = new ConcurrentHashMap<>();
 
@@ -34,6 +41,23 @@ public class EntityHookService {
         }
     }
 
+    /**
+     * Runs the after-create hooks of many entities at once: synchronous hooks
+     * in order on the calling thread, asynchronous hooks as a single task for
+     * all of them on the bulk hook executor.
+     */
+    public void executeAfterCreate(String entityName, List<? extends BaseEntity> entities, boolean async) {
+        if (getHookMethod(entityName, "afterCreate", async) == null) {
+            return;
+        }
+        if (async) {
+            bulkHookExecutor.execute(
+                    () -> entities.forEach(entity -> executeAsyncHook(entityName, "afterCreate", entity)));
+        } else {
+            entities.forEach(entity -> executeHook(entityName, "afterCreate", entity));
+        }
+    }
+
     public void executeBeforeUpdate(String entityName, BaseEntity existing, BaseEntity updated) {
         executeHook(entityName, "beforeUpdate", existing, updated);
     }
@@ -1,16 +1,25 @@
 package com.lending.backend.crud.service.impl;
 
 import com.lending.backend.common.audit.BaseEntity;
+import com.lending.backend.crud.ingest.BulkIngestService;
+import com.lending.backend.crud.repository.CountEstimator;
 import com.lending.backend.crud.repository.CrudRepository;
+import com.lending.backend.crud.repository.EntityBatchWriter;
+import com.lending.backend.crud.repository.EntityStreamReader;
+import com.lending.backend.crud.repository.ProjectionReader;
 import com.lending.backend.crud.service.CrudService;
+import com.lending.backend.crud.service.analytics.FilterUsageRecorder;
 import com.lending.backend.crud.service.audit.AuditService;
 import com.lending.backend.crud.service.cache.CacheService;
 import com.lending.backend.crud.service.context.SecurityContextService;
+import com.lending.backend.crud.service.guard.QueryGuard;
+import com.lending.backend.crud.service.job.BulkJobService;
 import com.lending.backend.crud.service.hook.EntityHookService;
 import com.lending.backend.crud.service.permission.PermissionService;
 import org.springframework.stereotype.Service;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 
 @Service("crudServiceImpl")
 public class GenericCrudService<T extends BaseEntity> extends CrudService<T> {
@@ -25,9 +34,19 @@ public class GenericCrudService<T extends BaseEntity> extends CrudService<T> {
             EntityHookService hookService,
             PermissionService permissionService,
             SecurityContextService securityContextService,
+            CountEstimator countEstimator,
+            EntityStreamReader entityStreamReader,
+            ProjectionReader projectionReader,
+            FilterUsageRecorder filterUsageRecorder,
+            QueryGuard queryGuard,
+            EntityBatchWriter entityBatchWriter,
+            BulkIngestService bulkIngestService,
+            BulkJobService bulkJobService,
             Class<T> entityClass,
             String entityName) {
-        super(repository, auditService, cacheService, hookService, permissionService, securityContextService);
+        super(repository, auditService, cacheService, hookService, permissionService, securityContextService,
+                countEstimator, entityStreamReader, projectionReader, filterUsageRecorder, queryGuard,
+                entityBatchWriter, bulkIngestService, bulkJobService);
         this.entityClass = entityClass;
         this.entityName = entityName;
     }
@@ -62,7 +81,15 @@ public class GenericCrudService<T extends BaseEntity> extends CrudService<T> {
     protected T cloneEntity(T entity) {
         try {
             T clone = entityClass.getDeclaredConstructor().newInstance();
-            copyNonNullProperties(entity, clone);
+            // Including the inherited fields, so the copy is a complete snapshot for hooks and audit diffs
+            for (Class<?> type = entityClass; type != Object.class; type = type.getSuperclass()) {
+                for (Field field : type.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        field.set(clone, field.get(entity));
+                    }
+                }
+            }
             return clone;
         } catch (Exception e) {
             throw new RuntimeException("Failed to clone entity", e);
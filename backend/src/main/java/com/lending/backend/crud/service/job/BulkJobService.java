@@ -0,0 +1,427 @@
+package com.lending.backend.crud.service.job;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.lending.backend.common.audit.BaseEntity;
+import com.lending.backend.common.exception.ApiException;
+import com.lending.backend.common.exception.ErrorConstants;
+import com.lending.backend.common.exception.ResourceNotFoundException;
+import com.lending.backend.config.CrudProperties;
+import com.lending.backend.crud.entity.BranchAwareEntity;
+import com.lending.backend.crud.entity.BulkJob;
+import com.lending.backend.crud.entity.BulkJobChunk;
+import com.lending.backend.crud.entity.BulkJobError;
+import com.lending.backend.crud.repository.BulkJobChunkRepository;
+import com.lending.backend.crud.repository.BulkJobErrorRepository;
+import com.lending.backend.crud.repository.BulkJobRepository;
+import com.lending.backend.crud.repository.EntityBatchWriter;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Runs bulk creates as jobs, so that large payloads neither hold one
+ * transaction nor the request open:
+ * <ul>
+ * <li>On submission the rows are split into {@link BulkJobChunk}s of
+ * {@code crud.jobs.chunk-size} rows, stored with the {@link BulkJob}, and the
+ * job is queued; the caller gets the job back at once.</li>
+ * <li>A pool of {@code crud.jobs.workers} threads runs the queued jobs, at
+ * most {@code crud.jobs.max-queued-jobs} of them waiting. A job writes its
+ * chunks in order, each in its own transaction that also removes the chunk
+ * and advances the job's progress, so a committed chunk is never written
+ * twice.</li>
+ * <li>Rows that cannot be mapped or fail validation are reported as
+ * {@link BulkJobError}s and the rest of the chunk is written. If writing the
+ * chunk fails as a whole, its rows are retried one transaction each, so only
+ * the offending rows are rejected. Each of those transactions also records
+ * the row as done, so no committed row is written twice either.</li>
+ * <li>A job stopped by a shutdown or failure keeps its remaining chunks and
+ * can be resumed, continuing with its first uncommitted chunk, or row.</li>
+ * </ul>
+ * Chunks are written with the authentication of the user who submitted or
+ * resumed the job. Jobs are not claimed across nodes: a job must only be
+ * resumed once the node that ran it is gone.
+ */
+@Component
+public class BulkJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkJobService.class);
+
+    private final BulkJobRepository jobRepository;
+    private final BulkJobChunkRepository chunkRepository;
+    private final BulkJobErrorRepository errorRepository;
+    private final EntityBatchWriter entityBatchWriter;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactions;
+    private final CrudProperties.Jobs properties;
+    private final ThreadPoolExecutor workers;
+    // Jobs queued or running on this node
+    private final Set<UUID> active = ConcurrentHashMap.newKeySet();
+
+    public BulkJobService(BulkJobRepository jobRepository, BulkJobChunkRepository chunkRepository,
+            BulkJobErrorRepository errorRepository, EntityBatchWriter entityBatchWriter, ObjectMapper objectMapper,
+            Validator validator, PlatformTransactionManager transactionManager, CrudProperties properties) {
+        this.jobRepository = jobRepository;
+        this.chunkRepository = chunkRepository;
+        this.errorRepository = errorRepository;
+        this.entityBatchWriter = entityBatchWriter;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.properties = properties.getJobs();
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(this.properties.getWorkers(), this.properties.getWorkers(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(this.properties.getMaxQueuedJobs()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "BulkJob-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Running jobs stop after their current chunk and can be resumed
+        workers.shutdownNow();
+    }
+
+    /**
+     * Stores the rows as a new job and queues it.
+     *
+     * @param entityName the entity the job belongs to
+     * @param rows       the rows, a JSON object each, read as they are
+     *                   stored so only one chunk is held at a time
+     * @param tenantId   the branch of every created row of a
+     *                   {@link BranchAwareEntity}, or {@code null} to keep the
+     *                   branch of the input
+     * @param target     how the rows are written
+     * @return the queued job
+     * @throws ApiException if there are no rows, or too many jobs are waiting,
+     *                      in which case the stored job can be resumed later
+     */
+    public <T extends BaseEntity> BulkJob submit(String entityName, Iterator<JsonNode> rows, String tenantId,
+            BulkJobTarget<T> target) {
+        BulkJob job = transactions.execute(status -> store(entityName, rows, tenantId));
+        logger.info("Submitted bulk job {} with {} {} rows in {} chunks", job.getId(), job.getTotalRows(),
+                entityName, job.getTotalChunks());
+        active.add(job.getId());
+        return start(job, target);
+    }
+
+    /**
+     * Queues a job that was interrupted or failed again. Its committed chunks
+     * are not written again.
+     *
+     * @throws ApiException if the job is completed, or too many jobs are
+     *                      waiting
+     */
+    public <T extends BaseEntity> BulkJob resume(UUID jobId, String entityName, BulkJobTarget<T> target) {
+        BulkJob job = find(jobId, entityName);
+        if (job.getStatus() == BulkJob.Status.COMPLETED) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Bulk job " + jobId + " is already completed",
+                    ErrorConstants.INVALID_REQUEST);
+        }
+        // Claimed at once, so concurrent resumes queue the job only once
+        if (!active.add(jobId)) {
+            return job;
+        }
+
+        try {
+            job = transactions.execute(status -> update(jobId, current -> {
+                current.setStatus(BulkJob.Status.QUEUED);
+                current.setErrorMessage(null);
+            }));
+        } catch (RuntimeException e) {
+            active.remove(jobId);
+            throw e;
+        }
+        logger.info("Resuming bulk job {} at chunk {} of {}", jobId, job.getNextChunk(), job.getTotalChunks());
+        return start(job, target);
+    }
+
+    /**
+     * Returns a job with its progress.
+     *
+     * @throws ResourceNotFoundException if there is no such job of the entity
+     */
+    public BulkJob find(UUID jobId, String entityName) {
+        return jobRepository.findById(jobId)
+                .filter(job -> job.getEntityName().equals(entityName))
+                .orElseThrow(() -> new ResourceNotFoundException("BulkJob", "id", jobId));
+    }
+
+    /**
+     * Returns a page of a job's rejected rows, by row.
+     */
+    public Page<BulkJobError> errors(UUID jobId, Pageable pageable) {
+        return errorRepository.findByJobIdOrderByRowIndex(jobId, pageable);
+    }
+
+    private BulkJob store(String entityName, Iterator<JsonNode> rows, String tenantId) {
+        int chunkSize = properties.getChunkSize();
+        BulkJob job = new BulkJob();
+        job.setEntityName(entityName);
+        job.setStatus(BulkJob.Status.QUEUED);
+        job.setTenantId(tenantId);
+        job.setChunkSize(chunkSize);
+        UUID jobId = jobRepository.save(job).getId();
+
+        long totalRows = 0;
+        int totalChunks = 0;
+        ArrayNode payload = objectMapper.createArrayNode();
+        while (rows.hasNext()) {
+            payload.add(rows.next());
+            if (payload.size() == chunkSize || !rows.hasNext()) {
+                BulkJobChunk chunk = new BulkJobChunk();
+                chunk.setJobId(jobId);
+                chunk.setChunkIndex(totalChunks++);
+                chunk.setFirstRow(totalRows);
+                chunk.setPayload(payload.toString());
+                // Flushed and detached at once, so stored chunks are not kept in memory
+                entityBatchWriter.persistAll(List.of(chunk), written -> {
+                });
+                totalRows += payload.size();
+                payload = objectMapper.createArrayNode();
+            }
+        }
+        if (totalRows == 0) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "No rows given", ErrorConstants.INVALID_REQUEST);
+        }
+
+        long rowCount = totalRows;
+        int chunkCount = totalChunks;
+        return update(jobId, current -> {
+            current.setTotalRows(rowCount);
+            current.setTotalChunks(chunkCount);
+        });
+    }
+
+    /**
+     * Queues a job already marked as active.
+     */
+    private <T extends BaseEntity> BulkJob start(BulkJob job, BulkJobTarget<T> target) {
+        UUID jobId = job.getId();
+        // Copied, as the request's context is cleared once the response is sent
+        SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+        securityContext.setAuthentication(SecurityContextHolder.getContext().getAuthentication());
+
+        try {
+            workers.execute(() -> run(jobId, target, securityContext));
+        } catch (RejectedExecutionException e) {
+            active.remove(jobId);
+            transactions.executeWithoutResult(status -> update(jobId, current -> {
+                current.setStatus(BulkJob.Status.INTERRUPTED);
+                current.setErrorMessage("Not started, too many jobs were waiting");
+            }));
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many bulk jobs are waiting; resume job " + jobId + " later",
+                    ErrorConstants.SERVICE_UNAVAILABLE);
+        }
+        return job;
+    }
+
+    private <T extends BaseEntity> void run(UUID jobId, BulkJobTarget<T> target, SecurityContext securityContext) {
+        SecurityContextHolder.setContext(securityContext);
+        try {
+            BulkJob job = transactions.execute(status -> update(jobId, current -> {
+                current.setStatus(BulkJob.Status.RUNNING);
+                if (current.getStartedAt() == null) {
+                    current.setStartedAt(Instant.now());
+                }
+            }));
+
+            while (job.getNextChunk() < job.getTotalChunks()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    finish(jobId, BulkJob.Status.INTERRUPTED, "Interrupted by a shutdown");
+                    return;
+                }
+                job = writeChunk(job, target);
+            }
+            finish(jobId, BulkJob.Status.COMPLETED, null);
+            logger.info("Completed bulk job {}: {} rows created, {} rejected", jobId, job.getCreatedRows(),
+                    job.getFailedRows());
+        } catch (RuntimeException e) {
+            logger.error("Bulk job {} failed", jobId, e);
+            finish(jobId, BulkJob.Status.FAILED, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        } finally {
+            active.remove(jobId);
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    /**
+     * Writes the job's next chunk and commits it together with the progress.
+     *
+     * @return the job with its new progress
+     */
+    private <T extends BaseEntity> BulkJob writeChunk(BulkJob job, BulkJobTarget<T> target) {
+        BulkJobChunk chunk = chunkRepository.findByJobIdAndChunkIndex(job.getId(), job.getNextChunk())
+                .orElseThrow(() -> new IllegalStateException(
+                        "Chunk " + job.getNextChunk() + " of bulk job " + job.getId() + " is missing"));
+        List<JsonNode> rows = readPayload(chunk);
+
+        // A chunk already partly written row by row continues that way
+        if (job.getNextChunkRow() == 0) {
+            try {
+                return transactions.execute(status -> {
+                    ChunkOutcome outcome = writeRows(job, target, rows, chunk.getFirstRow());
+                    return commit(job.getId(), chunk, rows.size(), outcome);
+                });
+            } catch (RuntimeException e) {
+                logger.warn("Chunk {} of bulk job {} failed, retrying its rows one by one: {}",
+                        chunk.getChunkIndex(), job.getId(), NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            }
+        }
+
+        for (int i = job.getNextChunkRow(); i < rows.size(); i++) {
+            long rowIndex = chunk.getFirstRow() + i;
+            int nextRow = i + 1;
+            List<JsonNode> row = rows.subList(i, nextRow);
+            try {
+                transactions.execute(status -> record(job.getId(), 1, writeRows(job, target, row, rowIndex),
+                        current -> current.setNextChunkRow(nextRow)));
+            } catch (RuntimeException e) {
+                ChunkOutcome rejected = new ChunkOutcome(0, List.of(new BulkJobError(job.getId(), rowIndex,
+                        NestedExceptionUtils.getMostSpecificCause(e).getMessage())));
+                transactions.execute(status -> record(job.getId(), 1, rejected,
+                        current -> current.setNextChunkRow(nextRow)));
+            }
+        }
+        return transactions.execute(status -> commit(job.getId(), chunk, 0, new ChunkOutcome(0, List.of())));
+    }
+
+    private List<JsonNode> readPayload(BulkJobChunk chunk) {
+        try {
+            List<JsonNode> rows = new ArrayList<>();
+            objectMapper.readTree(chunk.getPayload()).forEach(rows::add);
+            return rows;
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Chunk " + chunk.getChunkIndex() + " cannot be read", e);
+        }
+    }
+
+    /**
+     * Maps and validates the rows, and writes those that pass.
+     */
+    private <T extends BaseEntity> ChunkOutcome writeRows(BulkJob job, BulkJobTarget<T> target,
+            List<JsonNode> rows, long firstRow) {
+        List<T> entities = new ArrayList<>(rows.size());
+        List<BulkJobError> errors = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            try {
+                entities.add(toEntity(job, target, rows.get(i)));
+            } catch (IllegalArgumentException | JsonProcessingException e) {
+                errors.add(new BulkJobError(job.getId(), firstRow + i, e.getMessage()));
+            }
+        }
+        if (!entities.isEmpty()) {
+            target.writer().accept(entities, job.getTenantId());
+        }
+        return new ChunkOutcome(entities.size(), errors);
+    }
+
+    private <T extends BaseEntity> T toEntity(BulkJob job, BulkJobTarget<T> target, JsonNode row)
+            throws JsonProcessingException {
+        T entity = objectMapper.treeToValue(row, target.entityClass());
+        if (job.getTenantId() != null && entity instanceof BranchAwareEntity branchAware) {
+            branchAware.setBranchId(job.getTenantId());
+        }
+        Set<ConstraintViolation<T>> violations = validator.validate(entity);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                    .collect(Collectors.joining("; ")));
+        }
+        try {
+            target.rowCheck().accept(entity);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+        return entity;
+    }
+
+    /**
+     * Records the outcome of the chunk's remaining rows, moves on to the next
+     * chunk and removes this one.
+     */
+    private BulkJob commit(UUID jobId, BulkJobChunk chunk, int rows, ChunkOutcome outcome) {
+        BulkJob job = record(jobId, rows, outcome, current -> {
+            current.setNextChunk(chunk.getChunkIndex() + 1);
+            current.setNextChunkRow(0);
+        });
+        chunkRepository.purge(chunk.getId());
+        return job;
+    }
+
+    /**
+     * Adds the outcome of written rows to the job's progress and moves its
+     * position.
+     */
+    private BulkJob record(UUID jobId, int rows, ChunkOutcome outcome, Consumer<BulkJob> advance) {
+        return update(jobId, current -> {
+            // Only the first rejected rows of a job are kept
+            long reportable = properties.getMaxReportedErrors() - current.getFailedRows();
+            if (reportable > 0) {
+                errorRepository.saveAll(outcome.errors().subList(0,
+                        (int) Math.min(reportable, outcome.errors().size())));
+            }
+            advance.accept(current);
+            current.setProcessedRows(current.getProcessedRows() + rows);
+            current.setCreatedRows(current.getCreatedRows() + outcome.created());
+            current.setFailedRows(current.getFailedRows() + outcome.errors().size());
+        });
+    }
+
+    private void finish(UUID jobId, BulkJob.Status status, String errorMessage) {
+        try {
+            transactions.executeWithoutResult(tx -> update(jobId, current -> {
+                current.setStatus(status);
+                current.setErrorMessage(errorMessage);
+                current.setFinishedAt(status == BulkJob.Status.COMPLETED ? Instant.now() : null);
+            }));
+        } catch (RuntimeException e) {
+            logger.error("Could not record the status {} of bulk job {}", status, jobId, e);
+        }
+    }
+
+    private BulkJob update(UUID jobId, Consumer<BulkJob> change) {
+        BulkJob job = jobRepository.findById(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("BulkJob", "id", jobId));
+        change.accept(job);
+        return jobRepository.save(job);
+    }
+
+    private record ChunkOutcome(int created, List<BulkJobError> errors) {
+    }
+}
@@ -0,0 +1,21 @@
+package com.lending.backend.crud.service.job;
+
+import com.lending.backend.common.audit.BaseEntity;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * What the rows of a bulk job are written to.
+ *
+ * @param entityClass the entity the rows are mapped to
+ * @param rowCheck    further validation of each mapped entity, which rejects
+ *                    the row by throwing
+ * @param writer      creates the accepted entities of a chunk within the
+ *                    chunk's transaction, for the job's tenant; the worker
+ *                    has no request to take the tenant from
+ */
+public record BulkJobTarget<T extends BaseEntity>(Class<T> entityClass, Consumer<? super T> rowCheck,
+        BiConsumer<List<T>, String> writer) {
+}
@@ -0,0 +1,125 @@
+package com.lending.backend.crud.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Converts the string form of a value, as found in request parameters and
+ * cursors, into the Java type of the entity attribute it is compared with.
+ * The string form is the one produced by {@code toString()}, or the constant
+ * name for enums.
+ */
+public final class AttributeValueConverter {
+
+    private AttributeValueConverter() {
+    }
+
+    /**
+     * @return whether values of the type can be converted
+     */
+    public static boolean supports(Class<?> type) {
+        return type == String.class || type.isEnum() || type.isPrimitive() && type != char.class
+                || type == Long.class || type == Integer.class || type == Short.class
+                || type == Double.class || type == Float.class || type == Boolean.class
+                || type == BigDecimal.class || type == BigInteger.class || type == UUID.class
+                || type == Instant.class || type == LocalDate.class || type == LocalDateTime.class
+                || type == OffsetDateTime.class || type == ZonedDateTime.class;
+    }
+
+    /**
+     * Converts a value that may already be typed; values that are instances of
+     * the target type are returned as they are.
+     *
+     * @throws IllegalArgumentException if the type is not supported or the
+     *                                  value cannot be parsed
+     */
+    public static Object convert(Object value, Class<?> type) {
+        if (value == null || type.isInstance(value)) {
+            return value;
+        }
+        return convert(value.toString(), type);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the type is not supported or the
+     *                                  value cannot be parsed
+     */
+    public static Object convert(String value, Class<?> type) {
+        return value == null ? null : parserFor(type).apply(value);
+    }
+
+    /**
+     * Resolves the parser of a type once, for callers that convert many values
+     * of the same attribute. The parser throws an
+     * {@link IllegalArgumentException} for values it cannot parse.
+     *
+     * @throws IllegalArgumentException if the type is not supported
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static Function<String, Object> parserFor(Class<?> type) {
+        if (type == String.class) {
+            return value -> value;
+        } else if (type == Long.class || type == long.class) {
+            return Long::valueOf;
+        } else if (type == Integer.class || type == int.class) {
+            return Integer::valueOf;
+        } else if (type == Short.class || type == short.class) {
+            return Short::valueOf;
+        } else if (type == Double.class || type == double.class) {
+            return Double::valueOf;
+        } else if (type == Float.class || type == float.class) {
+            return Float::valueOf;
+        } else if (type == Boolean.class || type == boolean.class) {
+            return AttributeValueConverter::parseBoolean;
+        } else if (type == BigDecimal.class) {
+            return BigDecimal::new;
+        } else if (type == BigInteger.class) {
+            return BigInteger::new;
+        } else if (type == UUID.class) {
+            return UUID::fromString;
+        } else if (type == Instant.class) {
+            return temporal(type, Instant::parse);
+        } else if (type == LocalDate.class) {
+            return temporal(type, LocalDate::parse);
+        } else if (type == LocalDateTime.class) {
+            return temporal(type, LocalDateTime::parse);
+        } else if (type == OffsetDateTime.class) {
+            return temporal(type, OffsetDateTime::parse);
+        } else if (type == ZonedDateTime.class) {
+            return temporal(type, ZonedDateTime::parse);
+        } else if (type.isEnum()) {
+            Class<? extends Enum> enumType = (Class<? extends Enum>) type;
+            return value -> Enum.valueOf(enumType, value);
+        }
+        throw new IllegalArgumentException("Unsupported attribute type " + type.getName());
+    }
+
+    // Boolean.valueOf reads anything but "true" as false, hiding typos
+    private static Boolean parseBoolean(String value) {
+        if ("true".equalsIgnoreCase(value)) {
+            return Boolean.TRUE;
+        }
+        if ("false".equalsIgnoreCase(value)) {
+            return Boolean.FALSE;
+        }
+        throw new IllegalArgumentException("Invalid Boolean value: " + value);
+    }
+
+    private static Function<String, Object> temporal(Class<?> type, Function<String, Object> parser) {
+        return value -> {
+            try {
+                return parser.apply(value);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid " + type.getSimpleName() + " value: " + value, e);
+            }
+        };
+    }
+}
@@ -0,0 +1,131 @@
+package com.lending.backend.crud.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lending.backend.common.exception.ApiException;
+import com.lending.backend.common.exception.ErrorConstants;
+import com.lending.backend.crud.annotations.CrudEntity;
+import com.lending.backend.crud.annotations.SearchMode;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.Metamodel;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Compiles filter parameter names into {@link FilterPlan}s. Every field is
+ * resolved against the JPA metamodel and given the parser of its Java type,
+ * so unknown fields, operators that do not fit the type and unparseable
+ * values are rejected with a 400 instead of being guessed at.
+ * <p>
+ * Plans are cached per entity and filter-key shape, the sorted parameter
+ * names, since clients repeat the same few shapes with different values.
+ */
+final class FilterCompiler {
+
+    // Bounds the plans kept for arbitrary client supplied parameter names
+    private static final int MAX_CACHED_PLANS = 1024;
+
+    private final Supplier<Metamodel> metamodel;
+    private final Cache<PlanKey, FilterPlan> plans = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_PLANS)
+            .build();
+
+    FilterCompiler(Supplier<Metamodel> metamodel) {
+        this.metamodel = metamodel;
+    }
+
+    /**
+     * @param entityClass the filtered entity
+     * @param keys        the filter parameter names, sorted
+     * @return the plan
+     * @throws ApiException if a parameter does not name a filterable attribute
+     *                      or its operator does not apply to the attribute
+     */
+    FilterPlan compile(Class<?> entityClass, List<String> keys) {
+        return plans.get(new PlanKey(entityClass, keys), this::resolve);
+    }
+
+    private FilterPlan resolve(PlanKey key) {
+        EntityType<?> entityType = metamodel.get().entity(key.entityClass());
+        List<FilterPlan.CompiledFilter> filters = new ArrayList<>(key.keys().size());
+        for (String parameter : key.keys()) {
+            filters.add(compileFilter(entityType, parameter));
+        }
+        return new FilterPlan(filters);
+    }
+
+    private FilterPlan.CompiledFilter compileFilter(EntityType<?> entityType, String key) {
+        FilterOperator operator = FilterOperator.fromKey(key);
+        String field = operator.fieldOf(key);
+        Attribute<?, ?> attribute = attributeOf(entityType, field);
+        if (attribute == null || attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC
+                || !AttributeValueConverter.supports(attribute.getJavaType())) {
+            throw invalidFilter(key, "'" + field + "' is not a filterable field of " + entityType.getName());
+        }
+
+        Class<?> type = attribute.getJavaType();
+        if (operator == FilterOperator.DEFAULT) {
+            // A bare field name is a contains search on text and equality on anything else
+            operator = type == String.class ? FilterOperator.LIKE : FilterOperator.EQ;
+        }
+        if (operator == FilterOperator.LIKE && type != String.class) {
+            throw invalidFilter(key, "'" + field + "' is not a text field");
+        }
+        boolean fullText = isFullTextSearchable(entityType.getJavaType(), field);
+        if (operator == FilterOperator.LIKE && fullText) {
+            // A substring match cannot use the entity's tsvector index
+            operator = FilterOperator.SEARCH;
+        } else if (operator == FilterOperator.SEARCH && !fullText) {
+            throw invalidFilter(key, "'" + field + "' is not a full-text searchable field");
+        }
+        Function<String, Object> parser = AttributeValueConverter.parserFor(type);
+        return new FilterPlan.CompiledFilter(key, field, operator, type, parser);
+    }
+
+    /**
+     * Resolves a {@code q=} search over the entity's searchable fields.
+     *
+     * @param entityClass the searched entity
+     * @param q           the search as entered by the user
+     * @return the search, or {@code null} if nothing searchable is left of it
+     * @throws ApiException if the entity has no searchable fields
+     */
+    SearchQuery search(Class<?> entityClass, String q) {
+        CrudEntity annotation = entityClass.getAnnotation(CrudEntity.class);
+        if (annotation == null || annotation.searchableFields().length == 0) {
+            throw new ApiException(HttpStatus.BAD_REQUEST,
+                    entityClass.getSimpleName() + " does not support search", ErrorConstants.INVALID_REQUEST);
+        }
+        return SearchQuery.of(annotation.searchMode(), List.of(annotation.searchableFields()), q);
+    }
+
+    private static boolean isFullTextSearchable(Class<?> entityClass, String field) {
+        CrudEntity annotation = entityClass.getAnnotation(CrudEntity.class);
+        return annotation != null && annotation.searchMode() == SearchMode.FULL_TEXT
+                && Arrays.asList(annotation.searchableFields()).contains(field);
+    }
+
+    private static Attribute<?, ?> attributeOf(EntityType<?> entityType, String field) {
+        // Looked up by name instead of getAttribute, which throws for unknown names
+        for (Attribute<?, ?> attribute : entityType.getAttributes()) {
+            if (attribute.getName().equals(field)) {
+                return attribute;
+            }
+        }
+        return null;
+    }
+
+    private static ApiException invalidFilter(String key, String problem) {
+        return new ApiException(HttpStatus.BAD_REQUEST, "Invalid filter '" + key + "': " + problem,
+                ErrorConstants.INVALID_REQUEST);
+    }
+
+    private record PlanKey(Class<?> entityClass, List<String> keys) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.lending.backend.crud.util;
+
+import com.lending.backend.crud.annotations.SearchMode;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A single normalized filter condition: one field, one operator and its
+ * already parsed values. Instances are immutable and compare by value.
+ *
+ * @param field    the entity attribute the condition applies to
+ * @param operator the filter operator
+ * @param values   the normalized operand values
+ */
+public record FilterCriterion(String field, FilterOperator operator, List<Object> values)
+        implements Comparable<FilterCriterion> {
+
+    private static final Comparator<FilterCriterion> ORDER = Comparator
+            .comparing(FilterCriterion::field)
+            .thenComparing(FilterCriterion::operator);
+
+    public FilterCriterion {
+        values = List.copyOf(values);
+    }
+
+    public Object value() {
+        return values.get(0);
+    }
+
+    @Override
+    public int compareTo(FilterCriterion other) {
+        return ORDER.compare(this, other);
+    }
+
+    /**
+     * Builds the JPA predicate for this condition. The field and values have
+     * been checked against the entity when the criterion was compiled.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    Predicate toPredicate(Root<?> root, CriteriaBuilder cb) {
+        switch (operator) {
+            case LIKE:
+                return cb.like(cb.lower(root.get(field)), "%" + value() + "%");
+            case EQ:
+                return cb.equal(root.get(field), value());
+            case NE:
+                return cb.notEqual(root.get(field), value());
+            case GT:
+                return cb.greaterThan(root.<Comparable>get(field), (Comparable) value());
+            case GTE:
+                return cb.greaterThanOrEqualTo(root.<Comparable>get(field), (Comparable) value());
+            case LT:
+                return cb.lessThan(root.<Comparable>get(field), (Comparable) value());
+            case LTE:
+                return cb.lessThanOrEqualTo(root.<Comparable>get(field), (Comparable) value());
+            case IN:
+                return root.get(field).in(values);
+            case BETWEEN:
+                return cb.between(root.<Comparable>get(field), (Comparable) values.get(0), (Comparable) values.get(1));
+            case SEARCH:
+                return SearchQuery.match(root.get(field), (String) value(), SearchMode.FULL_TEXT, cb);
+            default:
+                // Criteria built by SpecificationBuilder never carry DEFAULT
+                throw new IllegalStateException("Unresolved filter operator for " + field);
+        }
+    }
+}
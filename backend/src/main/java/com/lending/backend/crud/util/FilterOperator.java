@@ -0,0 +1,62 @@
+package com.lending.backend.crud.util;
+
+/**
+ * Filter operators understood by {@link SpecificationBuilder}, identified by the
+ * suffix of the request parameter name (e.g. {@code amount_gte}).
+ */
+public enum FilterOperator {
+    LIKE("_like"),
+    EQ("_eq"),
+    NE("_ne"),
+    GT("_gt"),
+    GTE("_gte"),
+    LT("_lt"),
+    LTE("_lte"),
+    IN("_in"),
+    BETWEEN("_between"),
+    /**
+     * Word-prefix full-text match, on the searchable fields of entities with
+     * {@code SearchMode.FULL_TEXT}. {@code _like} filters on those fields are
+     * compiled into it.
+     */
+    SEARCH("_search"),
+    /**
+     * No suffix: a like search for string fields, equality otherwise.
+     */
+    DEFAULT("");
+
+    private final String suffix;
+
+    FilterOperator(String suffix) {
+        this.suffix = suffix;
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+
+    /**
+     * Resolves the operator of a filter parameter name.
+     *
+     * @param key the parameter name
+     * @return the matching operator, or {@link #DEFAULT} if no suffix matches
+     */
+    public static FilterOperator fromKey(String key) {
+        for (FilterOperator operator : values()) {
+            if (operator != DEFAULT && key.endsWith(operator.suffix) && key.length() > operator.suffix.length()) {
+                return operator;
+            }
+        }
+        return DEFAULT;
+    }
+
+    /**
+     * Strips the operator suffix from a filter parameter name.
+     *
+     * @param key the parameter name
+     * @return the field the filter applies to
+     */
+    public String fieldOf(String key) {
+        return key.substring(0, key.length() - suffix.length());
+    }
+}
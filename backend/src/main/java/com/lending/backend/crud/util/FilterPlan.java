@@ -0,0 +1,98 @@
+package com.lending.backend.crud.util;
+
+import com.lending.backend.common.exception.ApiException;
+import com.lending.backend.common.exception.ErrorConstants;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * The compiled filters of one filter-key shape: for every request parameter,
+ * the attribute it applies to, its operator and the parser of the
+ * attribute's type, all resolved once by {@link FilterCompiler}. Applying a
+ * plan only parses the values.
+ */
+final class FilterPlan {
+
+    private final List<CompiledFilter> filters;
+
+    FilterPlan(List<CompiledFilter> filters) {
+        this.filters = List.copyOf(filters);
+    }
+
+    /**
+     * @param parameters the filter parameters of the request, containing at
+     *                   least the keys of this plan with non-blank values
+     * @return the criteria, without filters whose values are all blank
+     * @throws ApiException if a value cannot be parsed as the attribute's type
+     */
+    List<FilterCriterion> criteria(Map<String, String> parameters) {
+        List<FilterCriterion> criteria = new ArrayList<>(filters.size());
+        for (CompiledFilter filter : filters) {
+            FilterCriterion criterion = filter.toCriterion(parameters.get(filter.key()).trim());
+            if (criterion != null) {
+                criteria.add(criterion);
+            }
+        }
+        return criteria;
+    }
+
+    /**
+     * One request parameter resolved against the entity.
+     *
+     * @param key      the request parameter name
+     * @param field    the attribute the parameter filters on
+     * @param operator the operator, never {@link FilterOperator#DEFAULT}
+     * @param type     the attribute's Java type
+     * @param parser   the parser of the attribute's type
+     */
+    record CompiledFilter(String key, String field, FilterOperator operator, Class<?> type,
+            Function<String, Object> parser) {
+
+        FilterCriterion toCriterion(String value) {
+            switch (operator) {
+                case LIKE:
+                    return new FilterCriterion(field, operator, List.of(value.toLowerCase()));
+                case SEARCH:
+                    String query = SearchQuery.toPrefixQuery(value);
+                    return query.isEmpty() ? null : new FilterCriterion(field, operator, List.of(query));
+                case IN:
+                    // Order and duplicates do not change the result of an IN
+                    TreeSet<Object> values = new TreeSet<>();
+                    for (String element : value.split(",")) {
+                        String trimmed = element.trim();
+                        if (!trimmed.isEmpty()) {
+                            values.add(parse(trimmed));
+                        }
+                    }
+                    return values.isEmpty() ? null : new FilterCriterion(field, operator, new ArrayList<>(values));
+                case BETWEEN:
+                    String[] bounds = value.split(",", -1);
+                    if (bounds.length != 2) {
+                        throw invalidValue("expects two comma separated bounds");
+                    }
+                    return new FilterCriterion(field, operator,
+                            List.of(parse(bounds[0].trim()), parse(bounds[1].trim())));
+                default:
+                    return new FilterCriterion(field, operator, List.of(parse(value)));
+            }
+        }
+
+        private Object parse(String value) {
+            try {
+                return parser.apply(value);
+            } catch (IllegalArgumentException e) {
+                throw invalidValue("expects a " + type.getSimpleName() + " value but got '" + value + "'");
+            }
+        }
+
+        private ApiException invalidValue(String problem) {
+            return new ApiException(HttpStatus.BAD_REQUEST, "Filter '" + key + "' " + problem,
+                    ErrorConstants.INVALID_REQUEST);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.lending.backend.crud.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lending.backend.common.exception.ApiException;
+import com.lending.backend.common.exception.ErrorConstants;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the elements of a JSON array one at a time from a stream, so a bulk
+ * request body is never held on the heap as a whole. Each element is bound
+ * only when it is asked for, which lets the consumer pace the reading: what
+ * is in memory is the element being bound plus whatever the consumer keeps.
+ * <p>
+ * Elements are bean-validated when a validator is given, like an
+ * {@code @Valid} request body. Errors are reported by the 0-based position of
+ * the element.
+ *
+ * @param <T> the element type, or {@code JsonNode} for unbound elements
+ */
+public class JsonArrayReader<T> implements Iterator<T>, AutoCloseable {
+
+    private final JsonParser parser;
+    private final ObjectMapper objectMapper;
+    private final Class<T> type;
+    private final Validator validator;
+    private long index;
+    private JsonToken current;
+
+    /**
+     * @param validator validates each element, or {@code null} for none
+     * @throws ApiException if the input does not start with an array
+     */
+    public JsonArrayReader(ObjectMapper objectMapper, InputStream input, Class<T> type, Validator validator) {
+        this.objectMapper = objectMapper;
+        this.type = type;
+        this.validator = validator;
+        try {
+            this.parser = objectMapper.createParser(input);
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ApiException(HttpStatus.BAD_REQUEST, "The body must be a JSON array",
+                        ErrorConstants.INVALID_REQUEST);
+            }
+            this.current = parser.nextToken();
+        } catch (IOException e) {
+            throw unreadable(e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return current != null && current != JsonToken.END_ARRAY;
+    }
+
+    /**
+     * Binds and validates the next element.
+     *
+     * @throws ApiException if the element cannot be bound or is invalid
+     */
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        long position = index++;
+        T value;
+        try {
+            value = objectMapper.readValue(parser, type);
+            current = parser.nextToken();
+        } catch (JsonProcessingException e) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Row " + position + ": " + e.getOriginalMessage(),
+                    ErrorConstants.INVALID_REQUEST);
+        } catch (IOException e) {
+            throw unreadable(e);
+        }
+
+        if (validator != null) {
+            Set<ConstraintViolation<T>> violations = validator.validate(value);
+            if (!violations.isEmpty()) {
+                throw new ApiException(HttpStatus.BAD_REQUEST, "Row " + position + ": " + violations.stream()
+                        .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                        .collect(Collectors.joining("; ")), ErrorConstants.VALIDATION_ERROR);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void close() {
+        try {
+            parser.close();
+        } catch (IOException e) {
+            // Nothing is left to read
+        }
+    }
+
+    private static ApiException unreadable(IOException e) {
+        return new ApiException(HttpStatus.BAD_REQUEST, "Could not read the input: " + e.getMessage(),
+                ErrorConstants.INVALID_REQUEST);
+    }
+}
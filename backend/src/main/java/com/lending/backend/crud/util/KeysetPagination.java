@@ -0,0 +1,233 @@
+package com.lending.backend.crud.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lending.backend.common.exception.ApiException;
+import com.lending.backend.common.exception.ErrorConstants;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.SingularAttribute;
+import org.springframework.beans.PropertyAccessor;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Keyset (seek) pagination over a sort that always ends with the unique
+ * {@code id}. Instead of skipping rows with OFFSET, a page starts right after
+ * the sort key of the previous page's last row, so every page costs the same
+ * index range scan as the first one.
+ * <p>
+ * The opaque cursor carries the last row's sort values and the sort they
+ * belong to; a cursor is rejected when replayed against a different sort.
+ * Nulls are treated as larger than any value, matching PostgreSQL's default
+ * {@code NULLS LAST} for ascending and {@code NULLS FIRST} for descending
+ * order.
+ */
+public final class KeysetPagination {
+
+    private static final String ID = "id";
+
+    private static final ObjectMapper CURSOR_MAPPER = new ObjectMapper();
+
+    private final Sort sort;
+    private final String signature;
+    private final List<String> after;
+
+    private KeysetPagination(Sort sort, List<String> after) {
+        this.sort = sort;
+        this.signature = sort.stream()
+                .map(order -> order.getProperty() + ":" + order.getDirection())
+                .collect(Collectors.joining(","));
+        this.after = after;
+    }
+
+    /**
+     * @param requested the requested sort; {@code id} is appended as the
+     *                  tiebreaker in the direction of the last order
+     * @param cursor    the cursor of the previous page, or blank for the first
+     *                  page
+     * @return the pagination
+     * @throws ApiException if the cursor is malformed or belongs to another sort
+     */
+    public static KeysetPagination of(Sort requested, String cursor) {
+        Sort sort = withTiebreaker(requested != null ? requested : Sort.unsorted());
+        KeysetPagination pagination = new KeysetPagination(sort, null);
+        if (cursor == null || cursor.isBlank()) {
+            return pagination;
+        }
+
+        Cursor decoded = decode(cursor);
+        if (!pagination.signature.equals(decoded.sort()) || decoded.values().size() != sort.stream().count()) {
+            throw invalidCursor("Cursor does not match the requested sort");
+        }
+        return new KeysetPagination(sort, decoded.values());
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public boolean isFirstPage() {
+        return after == null;
+    }
+
+    /**
+     * Restricts a query to the rows after the cursor:
+     * {@code (s1 > v1) OR (s1 = v1 AND s2 > v2) OR ... } with the comparison
+     * flipped for descending orders. The first key is additionally bounded
+     * on its own so the planner can start an index range scan there.
+     *
+     * @param <T> the entity type
+     * @return the specification, matching everything on the first page
+     */
+    public <T> Specification<T> toSpecification() {
+        return (root, query, cb) -> {
+            if (after == null) {
+                return cb.conjunction();
+            }
+
+            List<Sort.Order> orders = sort.toList();
+            List<Predicate> alternatives = new ArrayList<>(orders.size());
+            List<Predicate> equalities = new ArrayList<>(orders.size());
+            Predicate leadingBound = null;
+            for (int i = 0; i < orders.size(); i++) {
+                Sort.Order order = orders.get(i);
+                Path<Comparable<Object>> path = root.get(order.getProperty());
+                Comparable<Object> value = convert(after.get(i), path.getJavaType(), order.getProperty());
+                boolean nullable = isNullable(root, order.getProperty());
+
+                List<Predicate> alternative = new ArrayList<>(equalities);
+                Predicate beyond = beyond(cb, path, value, order.isAscending(), nullable);
+                if (beyond != null) {
+                    alternative.add(beyond);
+                    alternatives.add(cb.and(alternative.toArray(new Predicate[0])));
+                }
+                equalities.add(value == null ? cb.isNull(path) : cb.equal(path, value));
+                if (i == 0) {
+                    leadingBound = bound(cb, path, value, order.isAscending(), nullable);
+                }
+            }
+
+            Predicate seek = cb.or(alternatives.toArray(new Predicate[0]));
+            return leadingBound != null ? cb.and(leadingBound, seek) : seek;
+        };
+    }
+
+    /**
+     * Builds the cursor that continues after the given row.
+     *
+     * @param lastRow the last row of the current page, an entity or a
+     *                projected row keyed by attribute name
+     * @return the opaque cursor
+     */
+    public String cursorAfter(Object lastRow) {
+        PropertyAccessor accessor = lastRow instanceof Map<?, ?> ? null
+                : PropertyAccessorFactory.forDirectFieldAccess(lastRow);
+        List<String> values = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            Object value = accessor != null ? accessor.getPropertyValue(order.getProperty())
+                    : ((Map<?, ?>) lastRow).get(order.getProperty());
+            values.add(value == null ? null : value instanceof Enum<?> e ? e.name() : value.toString());
+        }
+        try {
+            byte[] json = CURSOR_MAPPER.writeValueAsBytes(new Cursor(signature, values));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode cursor", e);
+        }
+    }
+
+    private static Sort withTiebreaker(Sort requested) {
+        List<Sort.Order> orders = new ArrayList<>();
+        Sort.Direction direction = Sort.Direction.ASC;
+        for (Sort.Order order : requested) {
+            if (ID.equals(order.getProperty())) {
+                // Nothing after a unique key affects the order
+                orders.add(Sort.Order.by(ID).with(order.getDirection()));
+                return Sort.by(orders);
+            }
+            if (order.getProperty().contains(".")) {
+                throw new ApiException(HttpStatus.BAD_REQUEST,
+                        "Cursor pagination does not support sorting by nested property " + order.getProperty(),
+                        ErrorConstants.INVALID_REQUEST);
+            }
+            orders.add(Sort.Order.by(order.getProperty()).with(order.getDirection()));
+            direction = order.getDirection();
+        }
+        orders.add(Sort.Order.by(ID).with(direction));
+        return Sort.by(orders);
+    }
+
+    // Strictly after the value; null when no row can be after it
+    private static Predicate beyond(CriteriaBuilder cb, Path<Comparable<Object>> path, Comparable<Object> value,
+            boolean ascending, boolean nullable) {
+        if (value == null) {
+            return ascending ? null : cb.isNotNull(path);
+        }
+        Predicate strict = ascending ? cb.greaterThan(path, value) : cb.lessThan(path, value);
+        return ascending && nullable ? cb.or(strict, cb.isNull(path)) : strict;
+    }
+
+    // Inclusive range of the first key; null when it cannot be expressed as a range
+    private static Predicate bound(CriteriaBuilder cb, Path<Comparable<Object>> path, Comparable<Object> value,
+            boolean ascending, boolean nullable) {
+        if (value == null) {
+            return ascending ? cb.isNull(path) : null;
+        }
+        if (ascending) {
+            return nullable ? null : cb.greaterThanOrEqualTo(path, value);
+        }
+        return cb.lessThanOrEqualTo(path, value);
+    }
+
+    private static boolean isNullable(Root<?> root, String property) {
+        Attribute<?, ?> attribute = root.getModel().getAttribute(property);
+        return !(attribute instanceof SingularAttribute<?, ?> singular) || singular.isOptional();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> convert(String value, Class<?> type, String property) {
+        if (!AttributeValueConverter.supports(type)) {
+            throw new ApiException(HttpStatus.BAD_REQUEST,
+                    "Cursor pagination does not support sorting by " + property, ErrorConstants.INVALID_REQUEST);
+        }
+        try {
+            return (Comparable<Object>) AttributeValueConverter.convert(value, type);
+        } catch (IllegalArgumentException e) {
+            throw invalidCursor("Cursor value of " + property + " is invalid");
+        }
+    }
+
+    private static Cursor decode(String cursor) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor.getBytes(StandardCharsets.US_ASCII));
+            Cursor decoded = CURSOR_MAPPER.readValue(json, Cursor.class);
+            if (decoded.sort() == null || decoded.values() == null) {
+                throw invalidCursor("Cursor is malformed");
+            }
+            return decoded;
+        } catch (IllegalArgumentException | IOException e) {
+            throw invalidCursor("Cursor is malformed");
+        }
+    }
+
+    private static ApiException invalidCursor(String message) {
+        return new ApiException(HttpStatus.BAD_REQUEST, message, ErrorConstants.INVALID_REQUEST);
+    }
+
+    private record Cursor(String sort, List<String> values) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.lending.backend.crud.util;
+
+import java.util.List;
+
+/**
+ * A validated sparse fieldset: the entity attributes a query selects instead
+ * of whole entities. Always starts with {@code id}, followed by the other
+ * attributes in alphabetical order, so equal field sets give equal plans.
+ *
+ * @param fields the selected attribute names
+ */
+public record ProjectionPlan(List<String> fields) {
+
+    public ProjectionPlan {
+        fields = List.copyOf(fields);
+    }
+}
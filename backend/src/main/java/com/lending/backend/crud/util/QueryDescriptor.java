@@ -0,0 +1,108 @@
+package com.lending.backend.crud.util;
+
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable, normalized description of a list query: the filter criteria
+ * sorted by field and operator, plus the requested sort. Two requests that ask
+ * for the same data produce equal descriptors with equal hash codes, which
+ * makes the descriptor usable as (part of) a cache key. The JPA
+ * {@link Specification} is only derived on demand, e.g. on a cache miss.
+ */
+public final class QueryDescriptor {
+
+    private static final QueryDescriptor EMPTY = new QueryDescriptor(List.of(), null, Sort.unsorted());
+
+    private final List<FilterCriterion> criteria;
+    private final SearchQuery search;
+    private final Sort sort;
+    private final int hash;
+
+    QueryDescriptor(List<FilterCriterion> criteria, SearchQuery search, Sort sort) {
+        List<FilterCriterion> sorted = new ArrayList<>(criteria);
+        Collections.sort(sorted);
+        this.criteria = List.copyOf(sorted);
+        this.search = search;
+        this.sort = sort != null ? sort : Sort.unsorted();
+        this.hash = Objects.hash(this.criteria, this.search, this.sort);
+    }
+
+    public static QueryDescriptor empty() {
+        return EMPTY;
+    }
+
+    public List<FilterCriterion> getCriteria() {
+        return criteria;
+    }
+
+    /**
+     * @return the search, or {@code null} if none was requested
+     */
+    public SearchQuery getSearch() {
+        return search;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public boolean hasCriteria() {
+        return !criteria.isEmpty() || search != null;
+    }
+
+    /**
+     * Builds the JPA specification matching the descriptor's criteria and
+     * search. Sorting is left to the caller's {@code Pageable}; only a search
+     * without a requested sort orders its rows, by relevance.
+     *
+     * @param <T> the entity type
+     * @return the specification
+     */
+    public <T> Specification<T> toSpecification() {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>(criteria.size() + 1);
+            for (FilterCriterion criterion : criteria) {
+                Predicate predicate = criterion.toPredicate(root, cb);
+                if (predicate != null) {
+                    predicates.add(predicate);
+                }
+            }
+            if (search != null) {
+                predicates.add(search.toPredicate(root, cb));
+                // A requested sort replaces this order, and count queries have none
+                if (sort.isUnsorted() && query != null && !Long.class.equals(query.getResultType())) {
+                    query.orderBy(cb.desc(search.rank(root, cb)));
+                }
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof QueryDescriptor))
+            return false;
+        QueryDescriptor that = (QueryDescriptor) o;
+        return hash == that.hash && criteria.equals(that.criteria) && Objects.equals(search, that.search)
+                && sort.equals(that.sort);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryDescriptor{criteria=" + criteria + ", search=" + search + ", sort=" + sort + '}';
+    }
+}
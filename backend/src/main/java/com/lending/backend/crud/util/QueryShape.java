@@ -0,0 +1,64 @@
+package com.lending.backend.crud.util;
+
+import com.lending.backend.crud.annotations.SearchMode;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * The shape of a list query: which fields are filtered with which operators,
+ * whether it searches and how it sorts, without any values. Queries of the
+ * same shape are served by the same indexes. Instances are immutable and
+ * compare by value.
+ *
+ * @param filters the filtered fields and operators, sorted
+ * @param search  the search mode of a {@code q=} search, or {@code null}
+ * @param sort    the requested sort
+ */
+public record QueryShape(List<Filter> filters, SearchMode search, List<Sort.Order> sort) {
+
+    public QueryShape {
+        filters = List.copyOf(filters);
+        sort = List.copyOf(sort);
+    }
+
+    /**
+     * @param field    the filtered attribute
+     * @param operator the operator applied to it
+     */
+    public record Filter(String field, FilterOperator operator) {
+    }
+
+    public static QueryShape of(QueryDescriptor descriptor) {
+        List<Filter> filters = new ArrayList<>(descriptor.getCriteria().size());
+        for (FilterCriterion criterion : descriptor.getCriteria()) {
+            filters.add(new Filter(criterion.field(), criterion.operator()));
+        }
+        SearchMode search = descriptor.getSearch() != null ? descriptor.getSearch().mode() : null;
+        return new QueryShape(filters, search, descriptor.getSort().toList());
+    }
+
+    /**
+     * @return a compact, stable description such as
+     *         {@code filter=mobile:LIKE,status:EQ;sort=createdAt:DESC}
+     */
+    public String signature() {
+        StringJoiner signature = new StringJoiner(";");
+        if (!filters.isEmpty()) {
+            StringJoiner fields = new StringJoiner(",", "filter=", "");
+            filters.forEach(filter -> fields.add(filter.field() + ":" + filter.operator()));
+            signature.add(fields.toString());
+        }
+        if (search != null) {
+            signature.add("q=" + search);
+        }
+        if (!sort.isEmpty()) {
+            StringJoiner orders = new StringJoiner(",", "sort=", "");
+            sort.forEach(order -> orders.add(order.getProperty() + ":" + order.getDirection()));
+            signature.add(orders.toString());
+        }
+        return signature.length() == 0 ? "unfiltered" : signature.toString();
+    }
+}
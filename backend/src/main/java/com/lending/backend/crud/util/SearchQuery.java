@@ -0,0 +1,114 @@
+package com.lending.backend.crud.util;
+
+import com.lending.backend.crud.annotations.SearchMode;
+import com.lending.backend.crud.search.SearchFunctions;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.StringJoiner;
+
+/**
+ * A normalized {@code q=} search over an entity's searchable fields. A row
+ * matches when any field matches, and matches are ranked by their summed
+ * relevance. The predicates are the indexed expressions of the entity's
+ * {@link SearchMode}. Instances are immutable and compare by value.
+ *
+ * @param mode   how the fields are matched
+ * @param fields the searchable fields
+ * @param text   the lowercased search text for {@link SearchMode#TRIGRAM},
+ *               the {@code tsquery} for {@link SearchMode#FULL_TEXT}
+ */
+public record SearchQuery(SearchMode mode, List<String> fields, String text) {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    public SearchQuery {
+        fields = List.copyOf(fields);
+    }
+
+    /**
+     * @param mode   how the fields are matched
+     * @param fields the searchable fields
+     * @param q      the search as entered by the user
+     * @return the search, or {@code null} if nothing searchable is left of it
+     */
+    static SearchQuery of(SearchMode mode, List<String> fields, String q) {
+        String text = mode == SearchMode.TRIGRAM ? q.trim().toLowerCase(Locale.ROOT) : toPrefixQuery(q);
+        return text.isEmpty() ? null : new SearchQuery(mode, fields, text);
+    }
+
+    /**
+     * Builds a {@code tsquery} matching every word of the text as a prefix,
+     * e.g. {@code "Ram Kum"} becomes {@code "ram:* & kum:*"}. Words are split
+     * on anything but letters and digits, as {@code to_tsvector} does, so the
+     * result never contains tsquery syntax.
+     *
+     * @return the query, empty if the text contains no words
+     */
+    static String toPrefixQuery(String text) {
+        StringJoiner query = new StringJoiner(" & ");
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                query.add(word + ":*");
+            }
+        }
+        return query.toString();
+    }
+
+    Predicate toPredicate(Root<?> root, CriteriaBuilder cb) {
+        List<Predicate> matches = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            matches.add(match(root.get(field), text, mode, cb));
+        }
+        return cb.or(matches.toArray(new Predicate[0]));
+    }
+
+    /**
+     * @return the relevance of a row, higher is better
+     */
+    Expression<Double> rank(Root<?> root, CriteriaBuilder cb) {
+        Expression<Double> rank = null;
+        for (String field : fields) {
+            Expression<String> path = root.get(field);
+            Expression<Double> fieldRank = mode == SearchMode.TRIGRAM
+                    ? cb.function(SearchFunctions.TRGM_SIMILARITY, Double.class, cb.lower(path), cb.literal(text))
+                    : cb.function(SearchFunctions.FTS_RANK, Double.class, path, cb.literal(text));
+            // Rows matching on one field only have no rank on the others
+            fieldRank = cb.coalesce(fieldRank, 0.0);
+            rank = rank == null ? fieldRank : cb.sum(rank, fieldRank);
+        }
+        return rank;
+    }
+
+    /**
+     * The predicate of one field, written as the expression its search index
+     * is built on.
+     */
+    static Predicate match(Expression<String> path, String text, SearchMode mode, CriteriaBuilder cb) {
+        if (mode == SearchMode.TRIGRAM) {
+            return cb.like(cb.lower(path), "%" + escapeLike(text) + "%", LIKE_ESCAPE);
+        }
+        return cb.isTrue(cb.function(SearchFunctions.FTS_MATCH, Boolean.class, path, cb.literal(text)));
+    }
+
+    /**
+     * Escapes the {@code LIKE} wildcards of the search text, so that a search
+     * for {@code _} or {@code %} matches those characters instead of every row.
+     */
+    private static String escapeLike(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
@@ -1,107 +1,94 @@
 package com.lending.backend.crud.util;
 
 import com.lending.backend.common.audit.BaseEntity;
+import com.lending.backend.common.exception.ApiException;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Component;
 
-import jakarta.persistence.criteria.Predicate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * Turns filter request parameters into {@link QueryDescriptor}s. Parameters
+ * are compiled against the entity's metamodel once per parameter-name shape
+ * (see {@link FilterCompiler}), so a request only parses its values with the
+ * parser of each attribute's type. The {@code q} parameter searches the
+ * entity's searchable fields, see {@link SearchQuery}.
+ */
 @Component
 public class SpecificationBuilder<T extends BaseEntity> {
 
-    public Specification<T> build(Map<String, String> filters) {
-        return (root, query, criteriaBuilder) -> {
-            List<Predicate> predicates = new ArrayList<>();
+    // Request parameters that control paging, output or search rather than filter rows
+    private static final Set<String> RESERVED_PARAMETERS = Set.of("page", "size", "sort", "cursor", "count",
+            "format", "fields", "q");
 
-            if (filters != null) {
-                filters.forEach((key, value) -> {
-                    if (value != null && !value.trim().isEmpty()) {
-                        addPredicate(predicates, root, query, criteriaBuilder, key, value);
-                    }
-                });
-            }
+    private static final String SEARCH_PARAMETER = "q";
+
+    private final FilterCompiler compiler;
 
-            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
-        };
+    public SpecificationBuilder(EntityManagerFactory entityManagerFactory) {
+        this.compiler = new FilterCompiler(entityManagerFactory::getMetamodel);
     }
 
-    private void addPredicate(List<Predicate> predicates,
-            jakarta.persistence.criteria.Root<T> root,
-            jakarta.persistence.criteria.CriteriaQuery<?> query,
-            jakarta.persistence.criteria.CriteriaBuilder cb,
-            String key, String value) {
+    public Specification<T> build(Class<T> entityClass, Map<String, String> filters) {
+        return describe(entityClass, filters, Sort.unsorted()).toSpecification();
+    }
 
-        // Handle different filter operations
-        if (key.endsWith("_like")) {
-            String field = key.substring(0, key.length() - 5);
-            predicates.add(cb.like(cb.lower(root.get(field)), "%" + value.toLowerCase() + "%"));
-        } else if (key.endsWith("_eq")) {
-            String field = key.substring(0, key.length() - 3);
-            predicates.add(cb.equal(root.get(field), value));
-        } else if (key.endsWith("_ne")) {
-            String field = key.substring(0, key.length() - 3);
-            predicates.add(cb.notEqual(root.get(field), value));
-        } else if (key.endsWith("_gt")) {
-            String field = key.substring(0, key.length() - 3);
-            predicates.add(cb.greaterThan(root.get(field), parseValue(value)));
-        } else if (key.endsWith("_gte")) {
-            String field = key.substring(0, key.length() - 4);
-            predicates.add(cb.greaterThanOrEqualTo(root.get(field), parseValue(value)));
-        } else if (key.endsWith("_lt")) {
-            String field = key.substring(0, key.length() - 3);
-            predicates.add(cb.lessThan(root.get(field), parseValue(value)));
-        } else if (key.endsWith("_lte")) {
-            String field = key.substring(0, key.length() - 4);
-            predicates.add(cb.lessThanOrEqualTo(root.get(field), parseValue(value)));
-        } else if (key.endsWith("_in")) {
-            String field = key.substring(0, key.length() - 3);
-            String[] values = value.split(",");
-            predicates.add(root.get(field).in((Object[]) values));
-        } else if (key.endsWith("_between")) {
-            String field = key.substring(0, key.length() - 8);
-            String[] values = value.split(",");
-            if (values.length == 2) {
-                predicates.add(cb.between(root.get(field),
-                        parseValue(values[0]), parseValue(values[1])));
-            }
-        } else {
-            // Default to like search for string fields
-            try {
-                if (root.get(key).getJavaType() == String.class) {
-                    predicates.add(cb.like(cb.lower(root.get(key)), "%" + value.toLowerCase() + "%"));
-                } else {
-                    predicates.add(cb.equal(root.get(key), parseValue(value)));
-                }
-            } catch (Exception e) {
-                // Skip invalid fields
-            }
+    /**
+     * Normalizes request filters and the pageable's sort into an immutable
+     * {@link QueryDescriptor} with stable equality.
+     *
+     * @param entityClass the filtered entity
+     * @param filters     the raw filter parameters (may contain paging parameters)
+     * @param pageable    the requested page and sort
+     * @return the descriptor
+     * @throws ApiException if a filter names an unknown field or has a value
+     *                      of the wrong type
+     */
+    public QueryDescriptor describe(Class<T> entityClass, Map<String, String> filters, Pageable pageable) {
+        return describe(entityClass, filters, pageable != null ? pageable.getSort() : Sort.unsorted());
+    }
+
+    /**
+     * Normalizes request filters and a sort into a {@link QueryDescriptor}.
+     *
+     * @param entityClass the filtered entity
+     * @param filters     the raw filter parameters (may contain paging parameters)
+     * @param sort        the requested sort
+     * @return the descriptor
+     * @throws ApiException if a filter names an unknown field or has a value
+     *                      of the wrong type
+     */
+    public QueryDescriptor describe(Class<T> entityClass, Map<String, String> filters, Sort sort) {
+        sort = sort != null ? sort : Sort.unsorted();
+        String q = filters != null ? filters.get(SEARCH_PARAMETER) : null;
+        SearchQuery search = q != null && !q.isBlank() ? compiler.search(entityClass, q) : null;
+        List<String> shape = shapeOf(filters);
+        if (shape.isEmpty() && search == null && sort.isUnsorted()) {
+            return QueryDescriptor.empty();
         }
+        List<FilterCriterion> criteria = shape.isEmpty() ? List.of()
+                : compiler.compile(entityClass, shape).criteria(filters);
+        return new QueryDescriptor(criteria, search, sort);
     }
 
-    @SuppressWarnings("unchecked")
-    private <V extends Comparable<V>> V parseValue(String value) {
-        // Try to parse as different types
-        try {
-            // Try as LocalDateTime
-            return (V) LocalDateTime.parse(value, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        } catch (Exception e1) {
-            try {
-                // Try as Long
-                return (V) Long.valueOf(value);
-            } catch (Exception e2) {
-                try {
-                    // Try as Double
-                    return (V) Double.valueOf(value);
-                } catch (Exception e3) {
-                    // Return as String
-                    return (V) value;
-                }
-            }
+    // The sorted names of the parameters that filter rows
+    private static List<String> shapeOf(Map<String, String> filters) {
+        if (filters == null || filters.isEmpty()) {
+            return List.of();
         }
+        List<String> keys = new ArrayList<>(filters.size());
+        filters.forEach((key, value) -> {
+            if (value != null && !value.isBlank() && !RESERVED_PARAMETERS.contains(key)) {
+                keys.add(key);
+            }
+        });
+        keys.sort(null);
+        return keys;
     }
-}
\ No newline at end of file
+}
@@ -1,11 +1,21 @@
 package com.lending.backend.crud.util;
 
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
-import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
 
-public class UuidV7Generator extends SequenceStyleGenerator {
+import java.util.EnumSet;
+
+public class UuidV7Generator implements BeforeExecutionGenerator {
     @Override
-    public Object generate(SharedSessionContractImplementor session, Object object) {
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+            EventType eventType) {
         return UuidUtil.randomV7();
     }
-}
\ No newline at end of file
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
@@ -1,5 +1,6 @@
 package com.lending.backend.modules.user.entity;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.lending.backend.common.audit.BaseEntity;
 import com.lending.backend.crud.annotations.CrudEntity;
 
@@ -13,7 +14,7 @@ import lombok.EqualsAndHashCode;
 @EqualsAndHashCode(callSuper = true)
 @Entity
 @Table(name = "users")
-@CrudEntity(value = "User", path = "/api/users")
+@CrudEntity(value = "User", path = "/api/users", searchableFields = { "fullName", "mobile" })
 public class User extends BaseEntity {
 
     @Column(nullable = false, unique = true, length = 100)
@@ -28,6 +29,8 @@ public class User extends BaseEntity {
     @Column(length = 20)
     private String mobile;
 
+    // Accepted on input but never serialized: not in responses, exports or audit values
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     @Column(nullable = false)
     private String passwordHash;
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+-- Bulk create jobs (see BulkJobService): the job, its pending chunks and its rejected rows.
+
+CREATE TABLE bulk_job (
+    id               uuid PRIMARY KEY,
+    version          bigint,
+    created_by       varchar(50)  NOT NULL,
+    created_at       timestamptz  NOT NULL,
+    last_modified_by varchar(50),
+    last_modified_at timestamptz,
+    is_deleted       boolean      NOT NULL DEFAULT false,
+    deleted_at       timestamptz,
+    deleted_by       varchar(50),
+    entity_name      varchar(255) NOT NULL,
+    status           varchar(20)  NOT NULL,
+    tenant_id        varchar(255),
+    total_rows       bigint       NOT NULL,
+    chunk_size       integer      NOT NULL,
+    total_chunks     integer      NOT NULL,
+    next_chunk       integer      NOT NULL,
+    processed_rows   bigint       NOT NULL,
+    created_rows     bigint       NOT NULL,
+    failed_rows      bigint       NOT NULL,
+    error_message    text,
+    started_at       timestamptz,
+    finished_at      timestamptz
+);
+
+CREATE TABLE bulk_job_chunk (
+    id               uuid PRIMARY KEY,
+    version          bigint,
+    created_by       varchar(50)  NOT NULL,
+    created_at       timestamptz  NOT NULL,
+    last_modified_by varchar(50),
+    last_modified_at timestamptz,
+    is_deleted       boolean      NOT NULL DEFAULT false,
+    deleted_at       timestamptz,
+    deleted_by       varchar(50),
+    job_id           uuid         NOT NULL REFERENCES bulk_job (id),
+    chunk_index      integer      NOT NULL,
+    first_row        bigint       NOT NULL,
+    payload          text         NOT NULL,
+    UNIQUE (job_id, chunk_index)
+);
+
+CREATE TABLE bulk_job_error (
+    id               uuid PRIMARY KEY,
+    version          bigint,
+    created_by       varchar(50)  NOT NULL,
+    created_at       timestamptz  NOT NULL,
+    last_modified_by varchar(50),
+    last_modified_at timestamptz,
+    is_deleted       boolean      NOT NULL DEFAULT false,
+    deleted_at       timestamptz,
+    deleted_by       varchar(50),
+    job_id           uuid         NOT NULL REFERENCES bulk_job (id),
+    row_index        bigint       NOT NULL,
+    message          text
+);
+
+CREATE INDEX bulk_job_error_job_row ON bulk_job_error (job_id, row_index);
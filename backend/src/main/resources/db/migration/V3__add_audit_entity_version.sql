@@ -0,0 +1,5 @@
+-- Update entries hold only the changed fields; an entity's entries are replayed in version order.
+
+ALTER TABLE audit_trail ADD COLUMN entity_version bigint;
+
+CREATE INDEX audit_trail_entity_version ON audit_trail (entity_name, entity_id, entity_version);
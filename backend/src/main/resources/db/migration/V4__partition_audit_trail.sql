@@ -0,0 +1,42 @@
+-- Partitions audit_trail by month of created_at (see AuditPartitionManager).
+-- The existing rows stay in place as one legacy partition up to the start of next month (UTC);
+-- later months get their own partitions, created ahead of time by the application.
+-- Retention treats the legacy partition as a whole: it expires once its newest month does,
+-- so older rows are kept longer than crud.audit.partitions.retention-months, never shorter.
+
+ALTER TABLE audit_trail RENAME TO audit_trail_legacy;
+
+CREATE TABLE audit_trail (LIKE audit_trail_legacy INCLUDING DEFAULTS INCLUDING CONSTRAINTS)
+    PARTITION BY RANGE (created_at);
+
+DO $$
+DECLARE
+    legacy_pkey name;
+    bound timestamptz := (date_trunc('month', now() AT TIME ZONE 'UTC') + interval '1 month') AT TIME ZONE 'UTC';
+BEGIN
+    -- The partition key must be part of every unique constraint, the legacy rows' included
+    SELECT conname INTO legacy_pkey
+    FROM pg_constraint
+    WHERE conrelid = 'audit_trail_legacy'::regclass AND contype = 'p';
+    IF legacy_pkey IS NOT NULL THEN
+        EXECUTE format('ALTER TABLE audit_trail_legacy DROP CONSTRAINT %I', legacy_pkey);
+    END IF;
+    ALTER TABLE audit_trail_legacy ADD CONSTRAINT audit_trail_legacy_pkey PRIMARY KEY (id, created_at);
+    ALTER TABLE audit_trail ADD CONSTRAINT audit_trail_pkey PRIMARY KEY (id, created_at);
+
+    -- A validated constraint implying the bound spares the attach its own scan under an exclusive lock
+    EXECUTE format('ALTER TABLE audit_trail_legacy ADD CONSTRAINT audit_trail_legacy_bound'
+                   ' CHECK (created_at IS NOT NULL AND created_at < %L) NOT VALID', bound);
+    ALTER TABLE audit_trail_legacy VALIDATE CONSTRAINT audit_trail_legacy_bound;
+    EXECUTE format('ALTER TABLE audit_trail ATTACH PARTITION audit_trail_legacy FOR VALUES FROM (MINVALUE) TO (%L)',
+                   bound);
+    ALTER TABLE audit_trail_legacy DROP CONSTRAINT audit_trail_legacy_bound;
+END
+$$;
+
+-- Catches rows outside the created partitions, which should stay empty
+CREATE TABLE audit_trail_default PARTITION OF audit_trail DEFAULT;
+
+-- The existing index of the legacy rows is attached rather than rebuilt
+ALTER INDEX audit_trail_entity_version RENAME TO audit_trail_legacy_entity_version;
+CREATE INDEX audit_trail_entity_version ON audit_trail (entity_name, entity_id, entity_version);
@@ -0,0 +1,3 @@
+-- Rows of the current chunk already committed one by one, so a resumed job does not write them again.
+
+ALTER TABLE bulk_job ADD COLUMN next_chunk_row integer NOT NULL DEFAULT 0;